@@ -0,0 +1,83 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention;
+
+import me.ryanhamshire.griefprevention.api.claim.ClaimType;
+import me.ryanhamshire.griefprevention.configuration.BinaryClaimStorageData;
+import me.ryanhamshire.griefprevention.configuration.ClaimBinaryFormat;
+import me.ryanhamshire.griefprevention.configuration.ClaimDataConfig;
+import me.ryanhamshire.griefprevention.configuration.ClaimStorageData;
+import me.ryanhamshire.griefprevention.configuration.TownDataConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+// Flat file store that keeps claims in ClaimBinaryFormat files using the same folder layout.
+// HOCON claim files found while loading are converted in place and converted back
+// when the regular flat file store loads a binary file.
+public class BinaryDataStore extends FlatFileDataStore {
+
+    @Override
+    ClaimStorageData loadClaimStorage(Path path, UUID worldUniqueId) throws IOException {
+        if (ClaimBinaryFormat.isBinary(path)) {
+            return BinaryClaimStorageData.load(path, worldUniqueId);
+        }
+
+        final long hoconSize = Files.size(path);
+        final ClaimStorageData hoconStorage = loadHoconClaimStorage(path, worldUniqueId);
+        final ClaimDataConfig claimData = hoconStorage.getConfig();
+        // legacy subdivisions are migrated from the HOCON node first, convert on next load
+        if (claimData == null || !claimData.getSubdivisions().isEmpty()) {
+            return hoconStorage;
+        }
+
+        final BinaryClaimStorageData claimStorage = new BinaryClaimStorageData(path, worldUniqueId, claimData);
+        ClaimBinaryFormat.write(path, claimData);
+        this.recordClaimConversion(hoconSize, Files.size(path));
+        return claimStorage;
+    }
+
+    @Override
+    String getClaimFormatName() {
+        return "binary";
+    }
+
+    @Override
+    public ClaimStorageData createClaimStorage(Path path, UUID worldUniqueId, UUID ownerUniqueId, ClaimType type, boolean cuboid) {
+        final ClaimDataConfig claimData = type == ClaimType.TOWN ? new TownDataConfig() : new ClaimDataConfig();
+        claimData.setWorldUniqueId(worldUniqueId);
+        claimData.setOwnerUniqueId(ownerUniqueId);
+        claimData.setType(type);
+        claimData.setCuboid(cuboid);
+        return new BinaryClaimStorageData(path, worldUniqueId, claimData);
+    }
+
+    @Override
+    public ClaimStorageData createClaimStorage(Path path, UUID worldUniqueId, ClaimDataConfig claimData) {
+        return new BinaryClaimStorageData(path, worldUniqueId, claimData);
+    }
+}
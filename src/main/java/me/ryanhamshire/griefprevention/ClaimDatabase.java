@@ -0,0 +1,329 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention;
+
+import me.ryanhamshire.griefprevention.configuration.ClaimDataConfig;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.service.sql.SqlService;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+
+// SQL storage for claims and player data.
+// Claims are stored as ClaimBinaryFormat blobs keyed by claim id, player data as the
+// HOCON text of its player file keyed by scope and player id. Connections come from a
+// pooled DataSource, every statement is prepared and writes are applied in batches by
+// the storage writer thread, one transaction per batch.
+public final class ClaimDatabase {
+
+    // scope of player data shared between all worlds
+    public static final String GLOBAL_SCOPE = "global";
+
+    private static final String CLAIM_TABLE = "gp_claims";
+    private static final String PLAYER_TABLE = "gp_playerdata";
+    private static final int FETCH_SIZE = 256;
+
+    private final DataSource dataSource;
+
+    public ClaimDatabase(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Gets a pooled data source from Sponge's SqlService, credentials are passed in the url
+    public static ClaimDatabase create(String url, String userName, String password) throws SQLException {
+        final SqlService sqlService = Sponge.getServiceManager().provideUnchecked(SqlService.class);
+        return new ClaimDatabase(sqlService.getDataSource(GriefPreventionPlugin.instance, applyCredentials(url, userName, password)));
+    }
+
+    private static String applyCredentials(String url, String userName, String password) {
+        final int hostIndex = url.indexOf("://");
+        if (userName.isEmpty() || hostIndex == -1 || url.indexOf('@', hostIndex) != -1) {
+            return url;
+        }
+        try {
+            final String credentials = URLEncoder.encode(userName, StandardCharsets.UTF_8.name())
+                    + (password.isEmpty() ? "" : ":" + URLEncoder.encode(password, StandardCharsets.UTF_8.name()));
+            return url.substring(0, hostIndex + 3) + credentials + "@" + url.substring(hostIndex + 3);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public static String getPlayerScope(@Nullable UUID worldUniqueId) {
+        return worldUniqueId == null ? GLOBAL_SCOPE : worldUniqueId.toString();
+    }
+
+    public void initializeSchema() throws SQLException {
+        try (Connection connection = this.dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            final String blobType = getBlobType(connection);
+            if (!tableExists(connection, CLAIM_TABLE)) {
+                statement.executeUpdate("CREATE TABLE " + CLAIM_TABLE + " (claim_id VARCHAR(36) NOT NULL, world_id VARCHAR(36) NOT NULL, "
+                        + "claim_type VARCHAR(16) NOT NULL, parent_id VARCHAR(36), data " + blobType + " NOT NULL, PRIMARY KEY (claim_id))");
+                statement.executeUpdate("CREATE INDEX " + CLAIM_TABLE + "_world ON " + CLAIM_TABLE + " (world_id)");
+            }
+            if (!tableExists(connection, PLAYER_TABLE)) {
+                statement.executeUpdate("CREATE TABLE " + PLAYER_TABLE + " (scope VARCHAR(36) NOT NULL, player_id VARCHAR(36) NOT NULL, "
+                        + "data " + blobType + " NOT NULL, PRIMARY KEY (scope, player_id))");
+            }
+        }
+    }
+
+    // MySQL's plain BLOB stops at 64 KiB, other databases have no MEDIUMBLOB
+    private static String getBlobType(Connection connection) throws SQLException {
+        final String productName = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ENGLISH);
+        return productName.contains("mysql") || productName.contains("mariadb") ? "MEDIUMBLOB" : "BLOB";
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        final DatabaseMetaData metaData = connection.getMetaData();
+        // unquoted identifiers are stored upper case by some databases
+        for (String name : new String[] {table, table.toUpperCase()}) {
+            try (ResultSet resultSet = metaData.getTables(null, null, name, null)) {
+                if (resultSet.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Streams the claim rows of a world to the consumer without buffering the result set
+    public void loadClaims(UUID worldUniqueId, BiConsumer<UUID, byte[]> consumer) throws SQLException {
+        try (Connection connection = this.dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement("SELECT claim_id, data FROM " + CLAIM_TABLE + " WHERE world_id = ?")) {
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setString(1, worldUniqueId.toString());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    final String claimId = resultSet.getString(1);
+                    try {
+                        consumer.accept(UUID.fromString(claimId), resultSet.getBytes(2));
+                    } catch (IllegalArgumentException e) {
+                        GriefPreventionPlugin.instance.getLogger().error("Skipping claim row with invalid id " + claimId);
+                    }
+                }
+            }
+        }
+    }
+
+    // Returns the HOCON text of a player's data, empty if the player has no data yet
+    public String loadPlayer(String scope, UUID playerUniqueId) throws SQLException {
+        try (Connection connection = this.dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement("SELECT data FROM " + PLAYER_TABLE + " WHERE scope = ? AND player_id = ?")) {
+            statement.setString(1, scope);
+            statement.setString(2, playerUniqueId.toString());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return "";
+                }
+                return new String(resultSet.getBytes(1), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    public List<UUID> loadPlayerIds(String scope) throws SQLException {
+        final List<UUID> playerIds = new ArrayList<>();
+        try (Connection connection = this.dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement("SELECT player_id FROM " + PLAYER_TABLE + " WHERE scope = ?")) {
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setString(1, scope);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    try {
+                        playerIds.add(UUID.fromString(resultSet.getString(1)));
+                    } catch (IllegalArgumentException e) {
+                        GriefPreventionPlugin.instance.getLogger().error("Skipping player row with invalid id " + resultSet.getString(1));
+                    }
+                }
+            }
+        }
+        return playerIds;
+    }
+
+    // Applies a batch in one transaction. Rows are replaced by a delete followed by an
+    // insert, which every database supports without vendor specific upsert syntax.
+    public void write(Batch batch) throws SQLException {
+        try (Connection connection = this.dataSource.getConnection()) {
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                this.writeClaims(connection, batch);
+                this.writePlayers(connection, batch);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void writeClaims(Connection connection, Batch batch) throws SQLException {
+        if (batch.claimRows.isEmpty() && batch.deletedClaims.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + CLAIM_TABLE + " WHERE claim_id = ?")) {
+            for (UUID claimId : batch.deletedClaims) {
+                statement.setString(1, claimId.toString());
+                statement.addBatch();
+            }
+            for (ClaimRow row : batch.claimRows) {
+                statement.setString(1, row.claimId.toString());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        if (batch.claimRows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + CLAIM_TABLE
+                + " (claim_id, world_id, claim_type, parent_id, data) VALUES (?, ?, ?, ?, ?)")) {
+            for (ClaimRow row : batch.claimRows) {
+                statement.setString(1, row.claimId.toString());
+                statement.setString(2, row.worldUniqueId.toString());
+                statement.setString(3, row.claimType);
+                if (row.parentId == null) {
+                    statement.setNull(4, Types.VARCHAR);
+                } else {
+                    statement.setString(4, row.parentId.toString());
+                }
+                statement.setBytes(5, row.data);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void writePlayers(Connection connection, Batch batch) throws SQLException {
+        if (batch.playerRows.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + PLAYER_TABLE + " WHERE scope = ? AND player_id = ?")) {
+            for (PlayerRow row : batch.playerRows) {
+                statement.setString(1, row.scope);
+                statement.setString(2, row.playerUniqueId.toString());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + PLAYER_TABLE + " (scope, player_id, data) VALUES (?, ?, ?)")) {
+            for (PlayerRow row : batch.playerRows) {
+                statement.setString(1, row.scope);
+                statement.setString(2, row.playerUniqueId.toString());
+                statement.setBytes(3, row.data);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    // Rows collected by a flush. Claim metadata is captured on the flushing thread together
+    // with the serialized data so the writer thread never reads live claim state.
+    public static final class Batch {
+
+        private final List<ClaimRow> claimRows = new ArrayList<>();
+        private final List<PlayerRow> playerRows = new ArrayList<>();
+        private final List<UUID> deletedClaims = new ArrayList<>();
+        private final List<Runnable> failureCallbacks = new ArrayList<>();
+
+        public void writeClaim(UUID claimId, ClaimDataConfig claimData, byte[] data, @Nullable Runnable onFailure) {
+            this.claimRows.add(new ClaimRow(claimId, claimData.getWorldUniqueId(), claimData.getType().name(), claimData.getParent().orElse(null), data));
+            if (onFailure != null) {
+                this.failureCallbacks.add(onFailure);
+            }
+        }
+
+        public void writePlayer(String scope, UUID playerUniqueId, byte[] data, @Nullable Runnable onFailure) {
+            this.playerRows.add(new PlayerRow(scope, playerUniqueId, data));
+            if (onFailure != null) {
+                this.failureCallbacks.add(onFailure);
+            }
+        }
+
+        public void deleteClaim(UUID claimId) {
+            this.deletedClaims.add(claimId);
+        }
+
+        public boolean isEmpty() {
+            return this.claimRows.isEmpty() && this.playerRows.isEmpty() && this.deletedClaims.isEmpty();
+        }
+
+        // Flags everything in the batch for the next flush after a failed transaction
+        public void fail() {
+            for (Runnable callback : this.failureCallbacks) {
+                callback.run();
+            }
+        }
+    }
+
+    private static final class ClaimRow {
+
+        private final UUID claimId;
+        private final UUID worldUniqueId;
+        private final String claimType;
+        @Nullable private final UUID parentId;
+        private final byte[] data;
+
+        private ClaimRow(UUID claimId, UUID worldUniqueId, String claimType, @Nullable UUID parentId, byte[] data) {
+            this.claimId = claimId;
+            this.worldUniqueId = worldUniqueId;
+            this.claimType = claimType;
+            this.parentId = parentId;
+            this.data = data;
+        }
+    }
+
+    private static final class PlayerRow {
+
+        private final String scope;
+        private final UUID playerUniqueId;
+        private final byte[] data;
+
+        private PlayerRow(String scope, UUID playerUniqueId, byte[] data) {
+            this.scope = scope;
+            this.playerUniqueId = playerUniqueId;
+            this.data = data;
+        }
+    }
+}
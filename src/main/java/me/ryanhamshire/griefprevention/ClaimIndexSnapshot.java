@@ -0,0 +1,245 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention;
+
+import com.flowpowered.math.vector.Vector3i;
+import com.google.common.collect.Maps;
+import me.ryanhamshire.griefprevention.api.claim.Claim;
+import me.ryanhamshire.griefprevention.api.claim.ClaimType;
+import me.ryanhamshire.griefprevention.claim.GPClaim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+
+// Snapshot of a world's claim index, kept next to its claim files.
+//
+// int magic, byte version, int entry count, entries, long crc32 of everything before
+//
+// Each entry holds what is needed to place a claim without reading its file: bounds,
+// type, parent and owner. Chunk membership follows from the bounds. An entry also records
+// the modification time and size of its claim file and is only trusted while both still
+// match, so any claim file changed outside of this snapshot is parsed as usual.
+final class ClaimIndexSnapshot {
+
+    static final String FILE_NAME = "claims.index";
+
+    private static final int MAGIC = 0x47504958;
+    private static final int VERSION = 1;
+
+    private static final int FLAG_CUBOID = 1;
+    private static final int FLAG_PARENT = 2;
+    private static final int FLAG_OWNER = 4;
+
+    private ClaimIndexSnapshot() {
+    }
+
+    // Returns the entries by claim id, or nothing if the snapshot is missing or damaged
+    static Map<UUID, Entry> read(Path claimDataFolder) {
+        final Path path = claimDataFolder.resolve(FILE_NAME);
+        if (!Files.isRegularFile(path)) {
+            return Collections.emptyMap();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < 17) {
+                throw new IOException("truncated");
+            }
+            final ByteBuffer body = buffer.duplicate();
+            body.limit(buffer.limit() - 8);
+            final CRC32 crc = new CRC32();
+            crc.update(body);
+            if (crc.getValue() != buffer.getLong(buffer.limit() - 8)) {
+                throw new IOException("checksum mismatch");
+            }
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                throw new IOException("unknown format");
+            }
+
+            final int count = buffer.getInt();
+            final Map<UUID, Entry> entries = Maps.newHashMapWithExpectedSize(count);
+            for (int i = 0; i < count; i++) {
+                final Entry entry = readEntry(buffer);
+                entries.put(entry.claimId, entry);
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            GriefPreventionPlugin.instance.getLogger().warn("Ignoring unreadable claim index " + path + ": " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    // Must only run once every claim file is written, entries take the current file stamps
+    static void write(Path claimDataFolder, Collection<Claim> worldClaims) throws IOException {
+        final List<GPClaim> claims = new ArrayList<>();
+        collectClaims(worldClaims, claims);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + claims.size() * 128);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(0);
+        int count = 0;
+        for (GPClaim claim : claims) {
+            final Path claimFile = claim.getClaimStoragePath();
+            if (claimFile == null || !claimFile.startsWith(claimDataFolder) || !Files.isRegularFile(claimFile)) {
+                continue;
+            }
+            // the file does not hold these bounds yet, leave the claim to be parsed
+            if (claim.isClaimStorageLoaded() && claim.getInternalClaimData().requiresSave()) {
+                continue;
+            }
+            final BasicFileAttributes attributes = Files.readAttributes(claimFile, BasicFileAttributes.class);
+            writeString(out, claimDataFolder.relativize(claimFile).toString());
+            out.writeLong(attributes.lastModifiedTime().toMillis());
+            out.writeLong(attributes.size());
+            writeUniqueId(out, claim.id);
+            final UUID ownerUniqueId = claim.getStoredOwnerUniqueId();
+            out.writeByte((claim.isCuboid() ? FLAG_CUBOID : 0) | (claim.parent != null ? FLAG_PARENT : 0) | (ownerUniqueId != null ? FLAG_OWNER : 0));
+            if (claim.parent != null) {
+                writeUniqueId(out, claim.parent.id);
+            }
+            if (ownerUniqueId != null) {
+                writeUniqueId(out, ownerUniqueId);
+            }
+            writeString(out, claim.getType().name());
+            writeVector(out, claim.lesserBoundaryCorner.getBlockPosition());
+            writeVector(out, claim.greaterBoundaryCorner.getBlockPosition());
+            count++;
+        }
+        out.flush();
+
+        final byte[] data = bytes.toByteArray();
+        ByteBuffer.wrap(data).putInt(5, count);
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        final ByteBuffer snapshot = ByteBuffer.allocate(data.length + 8);
+        snapshot.put(data).putLong(crc.getValue());
+        StorageWriter.writeAtomic(claimDataFolder.resolve(FILE_NAME), snapshot.array());
+    }
+
+    private static void collectClaims(Collection<Claim> claims, List<GPClaim> result) {
+        for (Claim claim : claims) {
+            result.add((GPClaim) claim);
+            collectClaims(((GPClaim) claim).children, result);
+        }
+    }
+
+    private static Entry readEntry(ByteBuffer buffer) {
+        final String path = readString(buffer);
+        final long lastModified = buffer.getLong();
+        final long size = buffer.getLong();
+        final UUID claimId = readUniqueId(buffer);
+        final int flags = buffer.get();
+        final UUID parentId = (flags & FLAG_PARENT) != 0 ? readUniqueId(buffer) : null;
+        final UUID ownerUniqueId = (flags & FLAG_OWNER) != 0 ? readUniqueId(buffer) : null;
+        final ClaimType type = ClaimType.valueOf(readString(buffer));
+        final Vector3i lesserCorner = readVector(buffer);
+        final Vector3i greaterCorner = readVector(buffer);
+        return new Entry(path, lastModified, size, claimId, parentId, ownerUniqueId, type, (flags & FLAG_CUBOID) != 0, lesserCorner, greaterCorner);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        final byte[] utf = string.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(utf.length);
+        out.write(utf);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final byte[] utf = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(utf);
+        return new String(utf, StandardCharsets.UTF_8);
+    }
+
+    private static void writeUniqueId(DataOutputStream out, UUID uniqueId) throws IOException {
+        out.writeLong(uniqueId.getMostSignificantBits());
+        out.writeLong(uniqueId.getLeastSignificantBits());
+    }
+
+    private static UUID readUniqueId(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static void writeVector(DataOutputStream out, Vector3i vector) throws IOException {
+        out.writeInt(vector.getX());
+        out.writeInt(vector.getY());
+        out.writeInt(vector.getZ());
+    }
+
+    private static Vector3i readVector(ByteBuffer buffer) {
+        return new Vector3i(buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+
+    static final class Entry {
+
+        private final String path;
+        private final long lastModified;
+        private final long size;
+        final UUID claimId;
+        @Nullable final UUID parentId;
+        @Nullable final UUID ownerUniqueId;
+        final ClaimType type;
+        final boolean cuboid;
+        final Vector3i lesserCorner;
+        final Vector3i greaterCorner;
+
+        private Entry(String path, long lastModified, long size, UUID claimId, @Nullable UUID parentId, @Nullable UUID ownerUniqueId,
+                ClaimType type, boolean cuboid, Vector3i lesserCorner, Vector3i greaterCorner) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.claimId = claimId;
+            this.parentId = parentId;
+            this.ownerUniqueId = ownerUniqueId;
+            this.type = type;
+            this.cuboid = cuboid;
+            this.lesserCorner = lesserCorner;
+            this.greaterCorner = greaterCorner;
+        }
+
+        // True while the claim file is still the one this entry was taken from
+        boolean matches(String path, BasicFileAttributes attributes) {
+            return this.path.equals(path) && this.lastModified == attributes.lastModifiedTime().toMillis() && this.size == attributes.size();
+        }
+    }
+}
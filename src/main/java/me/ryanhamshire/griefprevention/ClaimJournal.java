@@ -0,0 +1,210 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention;
+
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nullable;
+
+// Append-only log of claim file contents for a single world's ClaimData folder.
+// Every record carries the complete serialized claim file, or a delete marker, keyed by
+// its path relative to the folder. Compaction writes the latest record of each path
+// back to the regular claim files and truncates the log, which is also how the log is
+// replayed on startup. Only the storage writer thread appends or compacts.
+final class ClaimJournal {
+
+    static final String FILE_NAME = "journal.log";
+
+    private static final int OP_WRITE = 1;
+    private static final int OP_DELETE = 2;
+
+    private final Path claimDataFolder;
+    private final Path journalPath;
+
+    ClaimJournal(Path claimDataFolder) {
+        this.claimDataFolder = claimDataFolder;
+        this.journalPath = claimDataFolder.resolve(FILE_NAME);
+    }
+
+    Path getClaimDataFolder() {
+        return this.claimDataFolder;
+    }
+
+    // Appends a batch of records with a single sync, returns the journal size afterwards
+    long append(List<Record> records) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream bodyOut = new DataOutputStream(body);
+        final CRC32 crc = new CRC32();
+        for (Record record : records) {
+            body.reset();
+            bodyOut.writeByte(record.data == null ? OP_DELETE : OP_WRITE);
+            bodyOut.writeUTF(record.path);
+            if (record.data != null) {
+                bodyOut.writeInt(record.data.length);
+                bodyOut.write(record.data);
+            }
+            bodyOut.flush();
+            crc.reset();
+            crc.update(body.toByteArray(), 0, body.size());
+            out.writeInt(body.size());
+            out.writeLong(crc.getValue());
+            body.writeTo(out);
+        }
+        out.flush();
+
+        Files.createDirectories(this.claimDataFolder);
+        try (FileChannel channel = FileChannel.open(this.journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            return channel.size();
+        }
+    }
+
+    // Applies the journal to the claim files and removes it, returns the number of records read.
+    // The first pass finds the last record of each path and the second applies only those,
+    // so at most one claim file is held in memory however large the journal grew.
+    int compact() throws IOException {
+        if (!Files.exists(this.journalPath)) {
+            return 0;
+        }
+
+        final Object2LongOpenHashMap<String> latest = new Object2LongOpenHashMap<>();
+        latest.defaultReturnValue(-1);
+        final int[] recordCount = new int[1];
+        final long end = this.readRecords(Files.size(this.journalPath), (offset, path, data) -> {
+            latest.put(path, offset);
+            recordCount[0]++;
+        });
+        this.readRecords(end, (offset, path, data) -> {
+            if (latest.getLong(path) != offset) {
+                return;
+            }
+            final Path claimFile = this.claimDataFolder.resolve(path);
+            if (data == null) {
+                Files.deleteIfExists(claimFile);
+            } else {
+                StorageWriter.writeAtomic(claimFile, data);
+            }
+        });
+        Files.delete(this.journalPath);
+        return recordCount[0];
+    }
+
+    // Reads records up to the limit or the first torn or corrupt one, returns the offset past the last good record
+    private long readRecords(long limit, RecordConsumer consumer) throws IOException {
+        long offset = 0;
+        try (InputStream stream = Files.newInputStream(this.journalPath);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            final CRC32 crc = new CRC32();
+            while (offset < limit) {
+                final int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                // a torn or corrupt length would otherwise allocate whatever it claims
+                if (length <= 0 || length > limit - offset - 12) {
+                    GriefPreventionPlugin.instance.getLogger().warn("Ignoring corrupt records at the end of " + this.journalPath);
+                    break;
+                }
+                final byte[] body = new byte[length];
+                final long checksum;
+                try {
+                    checksum = in.readLong();
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    GriefPreventionPlugin.instance.getLogger().warn("Ignoring torn record at the end of " + this.journalPath);
+                    break;
+                }
+                crc.reset();
+                crc.update(body, 0, body.length);
+                if (crc.getValue() != checksum) {
+                    GriefPreventionPlugin.instance.getLogger().warn("Ignoring corrupt records at the end of " + this.journalPath);
+                    break;
+                }
+
+                final DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(body));
+                final int op = recordIn.readUnsignedByte();
+                final String path = recordIn.readUTF();
+                byte[] data = null;
+                if (op == OP_WRITE) {
+                    data = new byte[recordIn.readInt()];
+                    recordIn.readFully(data);
+                }
+                consumer.accept(offset, path, data);
+                offset += 12 + length;
+            }
+        }
+        return offset;
+    }
+
+    private interface RecordConsumer {
+
+        void accept(long offset, String path, @Nullable byte[] data) throws IOException;
+    }
+
+    static final class Record {
+
+        private final String path;
+        @Nullable private final byte[] data;
+        @Nullable private final Runnable onFailure;
+
+        // A null data marks the claim file as deleted
+        Record(String path, @Nullable byte[] data, @Nullable Runnable onFailure) {
+            this.path = path;
+            this.data = data;
+            this.onFailure = onFailure;
+        }
+
+        // Flags the record's source for the next flush after a failed append
+        void fail() {
+            if (this.onFailure != null) {
+                this.onFailure.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import me.ryanhamshire.griefprevention.claim.GPClaim;
+import me.ryanhamshire.griefprevention.claim.GPClaimManager;
+import org.spongepowered.api.world.World;
+import org.spongepowered.common.SpongeImpl;
+
+import javax.annotation.Nullable;
+
+// Block position -> claim lookups made during the current tick.
+// A single action often resolves the same positions from several listeners, a piston
+// extension for example fires pre, notify and place events. Entries are dropped as soon
+// as the tick advances or any claim changes. Main thread only.
+final class ClaimLookupMemo {
+
+    private static final int MAX_ENTRIES = 4096;
+
+    private final Long2ObjectOpenHashMap<GPClaim> claims = new Long2ObjectOpenHashMap<>();
+    private int tick;
+    private int layoutVersion;
+    private long hits;
+    private long misses;
+
+    @Nullable
+    GPClaim get(World world, int x, int y, int z) {
+        final int currentTick = SpongeImpl.getServer().getTickCounter();
+        final int currentLayoutVersion = GPClaimManager.getClaimLayoutVersion();
+        if (currentTick != this.tick || currentLayoutVersion != this.layoutVersion) {
+            this.claims.clear();
+            this.tick = currentTick;
+            this.layoutVersion = currentLayoutVersion;
+        }
+
+        final GPClaim claim = this.claims.get(pack(x, y, z));
+        // positions are shared by all worlds, a claim from another world is a miss
+        if (claim == null || claim.world != world) {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        return claim;
+    }
+
+    void put(int x, int y, int z, GPClaim claim) {
+        if (this.claims.size() >= MAX_ENTRIES) {
+            this.claims.clear();
+        }
+        this.claims.put(pack(x, y, z), claim);
+    }
+
+    long getHits() {
+        return this.hits;
+    }
+
+    long getMisses() {
+        return this.misses;
+    }
+
+    // Same layout as BlockPos#toLong
+    private static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) y & 0xFFFL) << 26 | ((long) z & 0x3FFFFFFL);
+    }
+}
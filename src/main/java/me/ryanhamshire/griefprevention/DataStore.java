@@ -40,8 +40,13 @@
 import me.ryanhamshire.griefprevention.claim.GPClaim;
 import me.ryanhamshire.griefprevention.claim.GPClaimManager;
 import me.ryanhamshire.griefprevention.claim.GPClaimResult;
+import me.ryanhamshire.griefprevention.configuration.ClaimDataConfig;
+import me.ryanhamshire.griefprevention.configuration.ClaimStorageData;
 import me.ryanhamshire.griefprevention.configuration.ClaimTemplateStorage;
 import me.ryanhamshire.griefprevention.configuration.GriefPreventionConfig;
+import me.ryanhamshire.griefprevention.configuration.PlayerDataConfig;
+import me.ryanhamshire.griefprevention.configuration.PlayerStorageData;
+import me.ryanhamshire.griefprevention.configuration.TownStorageData;
 import me.ryanhamshire.griefprevention.configuration.type.DimensionConfig;
 import me.ryanhamshire.griefprevention.configuration.type.GlobalConfig;
 import me.ryanhamshire.griefprevention.configuration.type.WorldConfig;
@@ -63,12 +68,11 @@
 import org.spongepowered.api.world.Location;
 import org.spongepowered.api.world.World;
 import org.spongepowered.api.world.storage.WorldProperties;
+import org.spongepowered.common.SpongeImpl;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
@@ -80,21 +84,31 @@
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 //singleton class which manages all GriefPrevention data (except for config options)
 public abstract class DataStore {
 
     // World UUID -> PlayerDataWorldManager
     protected final Map<UUID, GPClaimManager> claimWorldManagers = Maps.newHashMap();
+    private final StorageWriter storageWriter = new StorageWriter(GriefPreventionPlugin.getGlobalConfig().getConfig().storage.claimJournal,
+            GriefPreventionPlugin.getGlobalConfig().getConfig().storage.journalMaxSize * 1024L);
+    private final PlayerDataLoader playerDataLoader = new PlayerDataLoader();
+    private final PlayerFileService playerFileService = new PlayerFileService();
+    private final ClaimLookupMemo claimLookupMemo = new ClaimLookupMemo();
 
     // in-memory cache for claim data
-    public static Map<UUID, GriefPreventionConfig<DimensionConfig>> dimensionConfigMap = Maps.newHashMap();
-    public static Map<UUID, GriefPreventionConfig<WorldConfig>> worldConfigMap = Maps.newHashMap();
+    // config maps are also read from the player data prefetch during login authentication
+    public static Map<UUID, GriefPreventionConfig<DimensionConfig>> dimensionConfigMap = new ConcurrentHashMap<>();
+    public static Map<UUID, GriefPreventionConfig<WorldConfig>> worldConfigMap = new ConcurrentHashMap<>();
     public static Map<String, ClaimTemplateStorage> globalTemplates = new HashMap<>();
     public static GriefPreventionConfig<GlobalConfig> globalConfig;
-    public static Map<UUID, GPPlayerData> GLOBAL_PLAYER_DATA = Maps.newHashMap();
+    public static PlayerDataCache GLOBAL_PLAYER_DATA = new PlayerDataCache();
     public static boolean USE_GLOBAL_PLAYER_STORAGE = true;
     public static Map<ClaimType, Map<String, Boolean>> CLAIM_FLAG_DEFAULTS = Maps.newHashMap();
 
@@ -254,35 +268,73 @@ public boolean isSoftMuted(UUID playerID) {
     }
 
     private void saveSoftMutes() {
-        BufferedWriter outStream = null;
+        final List<String> lines = new ArrayList<>();
+        for (Map.Entry<UUID, Boolean> entry : this.softMuteMap.entrySet()) {
+            if (entry.getValue().booleanValue()) {
+                lines.add(entry.getKey().toString());
+            }
+        }
+        this.playerFileService.writeLines(softMuteFilePath, lines);
+    }
 
-        try {
-            // open the file and write the new value
-            File softMuteFile = softMuteFilePath.toFile();
-            softMuteFile.createNewFile();
-            outStream = new BufferedWriter(new FileWriter(softMuteFile));
-
-            for (Map.Entry<UUID, Boolean> entry : softMuteMap.entrySet()) {
-                if (entry.getValue().booleanValue()) {
-                    outStream.write(entry.getKey().toString());
-                    outStream.newLine();
+    // Ignore lists are kept in the player data record instead of .ignore files
+    public static boolean isIgnoreListMerged() {
+        return USE_GLOBAL_PLAYER_STORAGE && GriefPreventionPlugin.getGlobalConfig().getConfig().storage.ignoreListsInPlayerData;
+    }
+
+    // Reads a player's ignore list into their data without blocking
+    public CompletableFuture<Void> loadIgnoreList(GPPlayerData playerData) {
+        final boolean merged = isIgnoreListMerged();
+        if (merged) {
+            final PlayerDataConfig playerConfig = playerData.getStorageData().getConfig();
+            final List<String> entries = playerConfig.getIgnoredPlayers();
+            // records written before the migrated flag existed only count as migrated when they hold entries
+            if (playerConfig.hasMigratedIgnoreList() || !entries.isEmpty()) {
+                parseIgnoreList(entries, playerData.ignoredPlayers);
+                if (!playerConfig.hasMigratedIgnoreList()) {
+                    playerConfig.setMigratedIgnoreList(true);
                 }
+                return CompletableFuture.completedFuture(null);
             }
+        }
 
+        return this.playerFileService.readLines(globalPlayerDataPath.resolve(playerData.playerID + ".ignore")).thenAccept(lines -> {
+            parseIgnoreList(lines, playerData.ignoredPlayers);
+            if (merged) {
+                // move the old ignore file into the player data with its next save, the record is authoritative from then on
+                final PlayerDataConfig playerConfig = playerData.getStorageData().getConfig();
+                playerConfig.setIgnoredPlayers(new ArrayList<>(lines));
+                playerConfig.setMigratedIgnoreList(true);
+            }
+        });
+    }
+
+    // Queues a write of a player's ignore list, the caller's thread never touches the disk
+    public void saveIgnoreList(GPPlayerData playerData) {
+        final List<String> lines = new ArrayList<>();
+        for (Map.Entry<UUID, Boolean> entry : playerData.ignoredPlayers.entrySet()) {
+            // admin-enforced ignores begin with an asterisk
+            lines.add(entry.getValue() ? "*" + entry.getKey() : entry.getKey().toString());
         }
+        playerData.ignoreListChanged = false;
 
-        // if any problem, log it
-        catch (Exception e) {
-            GriefPreventionPlugin.addLogEntry("Unexpected exception saving soft mute data: " + e.getMessage());
-            e.printStackTrace();
+        if (isIgnoreListMerged()) {
+            playerData.getStorageData().getConfig().setIgnoredPlayers(lines);
+            playerData.getStorageData().getConfig().setMigratedIgnoreList(true);
+            this.storageWriter.saveLater(playerData.getStorageData());
+        } else {
+            this.playerFileService.writeLines(globalPlayerDataPath.resolve(playerData.playerID + ".ignore"), lines);
         }
+    }
 
-        // close the file
-        try {
-            if (outStream != null) {
-                outStream.close();
+    private static void parseIgnoreList(List<String> lines, Map<UUID, Boolean> ignoredPlayers) {
+        for (String line : lines) {
+            final boolean adminIgnore = line.startsWith("*");
+            try {
+                ignoredPlayers.put(UUID.fromString(adminIgnore ? line.substring(1) : line), adminIgnore);
+            } catch (IllegalArgumentException e) {
+                // if a bad UUID, ignore the line
             }
-        } catch (IOException exception) {
         }
     }
 
@@ -293,6 +345,96 @@ public void clearCachedPlayerData(WorldProperties worldProperties, UUID playerUn
 
     public abstract void writeClaimToStorage(GPClaim claim);
 
+    public StorageWriter getStorageWriter() {
+        return this.storageWriter;
+    }
+
+    public PlayerDataLoader getPlayerDataLoader() {
+        return this.playerDataLoader;
+    }
+
+    // Writes all pending claim and player data and stops the writer thread
+    public void shutdownStorageWriter() {
+        for (GPClaimManager claimWorldManager : this.claimWorldManagers.values()) {
+            this.storageWriter.flush(claimWorldManager.getPlayerDataMap().values());
+        }
+        this.storageWriter.shutdown();
+        this.playerDataLoader.shutdown();
+        this.playerFileService.shutdown();
+        // every claim file is written now, so the index snapshot can take their stamps
+        this.saveClaimIndexes();
+    }
+
+    // Stores that keep claims in files persist their claim index here for the next startup
+    void saveClaimIndexes() {
+    }
+
+    // Creates the storage for a newly created claim
+    public ClaimStorageData createClaimStorage(Path path, UUID worldUniqueId, UUID ownerUniqueId, ClaimType type, boolean cuboid) {
+        if (type == ClaimType.TOWN) {
+            return new TownStorageData(path, worldUniqueId, ownerUniqueId, cuboid);
+        }
+        return new ClaimStorageData(path, worldUniqueId, ownerUniqueId, type, cuboid);
+    }
+
+    // Binds existing claim data to a claim file, used after a claim file has been moved
+    public ClaimStorageData createClaimStorage(Path path, UUID worldUniqueId, ClaimDataConfig claimData) {
+        return new ClaimStorageData(path, worldUniqueId, claimData);
+    }
+
+    // Moves a claim to a new storage path, used when its type or parent changes
+    public abstract void moveClaimStorage(GPClaim claim, Path newPath) throws IOException;
+
+    // The world is null when player data is global
+    public static Path getPlayerDataPath(@Nullable UUID worldUniqueId, UUID playerUniqueId) {
+        if (worldUniqueId == null) {
+            return globalPlayerDataPath.resolve(playerUniqueId.toString());
+        }
+        return worldConfigMap.get(worldUniqueId).getPath().getParent().resolve("PlayerData").resolve(playerUniqueId.toString());
+    }
+
+    // Loads a player's storage on the player data loader thread, the world is null when player data is global
+    public CompletableFuture<PlayerStorageData> loadPlayerStorage(@Nullable UUID worldUniqueId, UUID playerUniqueId) {
+        final Path path = getPlayerDataPath(worldUniqueId, playerUniqueId);
+        return this.playerDataLoader.load(path, () -> this.readPlayerStorage(path, worldUniqueId, playerUniqueId));
+    }
+
+    // Loads a player's storage on the calling thread for callers that would block on the result anyway
+    public PlayerStorageData loadPlayerStorageNow(@Nullable UUID worldUniqueId, UUID playerUniqueId) {
+        final Path path = getPlayerDataPath(worldUniqueId, playerUniqueId);
+        return this.playerDataLoader.loadNow(path, () -> this.readPlayerStorage(path, worldUniqueId, playerUniqueId));
+    }
+
+    private PlayerStorageData readPlayerStorage(Path path, @Nullable UUID worldUniqueId, UUID playerUniqueId) {
+        // an evicted player's last snapshot may still be in flight
+        this.storageWriter.awaitPlayerWrite(path);
+        return this.createPlayerStorage(path, worldUniqueId, playerUniqueId);
+    }
+
+    // Prepares a player's data while their client is still authenticating, called off the main thread.
+    // Data is prepared for the default world, logins elsewhere with per world storage load normally.
+    public void prefetchPlayerData(UUID playerUniqueId) {
+        final WorldProperties worldProperties = Sponge.getServer().getDefaultWorld().orElse(null);
+        if (worldProperties == null || (USE_GLOBAL_PLAYER_STORAGE ? GLOBAL_PLAYER_DATA.asMap().containsKey(playerUniqueId)
+                : !worldConfigMap.containsKey(worldProperties.getUniqueId()))) {
+            return;
+        }
+
+        final UUID storageWorldUniqueId = USE_GLOBAL_PLAYER_STORAGE ? null : worldProperties.getUniqueId();
+        this.playerDataLoader.prefetch(playerUniqueId, storageWorldUniqueId, this.loadPlayerStorage(storageWorldUniqueId, playerUniqueId),
+                playerStorage -> {
+                    final GPPlayerData playerData = new GPPlayerData(worldProperties, playerUniqueId, playerStorage);
+                    playerData.loadPlayerOptions();
+                    this.loadIgnoreList(playerData).join();
+                    return playerData;
+                });
+    }
+
+    // Creates the storage for a player's data, the world is null when player data is global
+    public PlayerStorageData createPlayerStorage(Path path, @Nullable UUID worldUniqueId, UUID playerUniqueId) {
+        return new PlayerStorageData(path);
+    }
+
     public abstract void deleteClaimFromSecondaryStorage(GPClaim claim);
 
     // finds a claim by ID
@@ -306,34 +448,7 @@ public void asyncSaveGlobalPlayerData(UUID playerID, GPPlayerData playerData) {
 
         // save the ignore list
         if (playerData.ignoreListChanged) {
-            StringBuilder fileContent = new StringBuilder();
-            try {
-                for (UUID uuidKey : playerData.ignoredPlayers.keySet()) {
-                    Boolean value = playerData.ignoredPlayers.get(uuidKey);
-                    if (value == null) {
-                        continue;
-                    }
-
-                    // admin-enforced ignores begin with an asterisk
-                    if (value) {
-                        fileContent.append("*");
-                    }
-
-                    fileContent.append(uuidKey);
-                    fileContent.append("\n");
-                }
-
-                // write data to file
-                File playerDataFile = globalPlayerDataPath.resolve(playerID.toString() + ".ignore").toFile();
-                Files.write(fileContent.toString().trim().getBytes("UTF-8"), playerDataFile);
-            }
-
-            // if any problem, log it
-            catch (Exception e) {
-                GriefPreventionPlugin.addLogEntry(
-                        "GriefPrevention: Unexpected exception saving data for player \"" + playerID.toString() + "\": " + e.getMessage());
-                e.printStackTrace();
-            }
+            this.saveIgnoreList(playerData);
         }
     }
 
@@ -373,6 +488,7 @@ public void extendClaim(GPClaim claim, int newDepth) {
         }
 
         claim.updateClaimStorageData();
+        this.getClaimWorldManager(claim.world.getProperties()).invalidateChunkRasters(claim.getChunkHashes(false));
     }
 
     public ClaimResult createClaim(World world, Vector3i point1, Vector3i point2, ClaimType claimType, UUID ownerUniqueId, boolean cuboid) {
@@ -445,7 +561,7 @@ public ClaimResult deleteClaim(Claim claim, boolean deleteChildren) {
     // deletes all claims owned by a player
     public void deleteClaimsForPlayer(UUID playerID) {
         if (DataStore.USE_GLOBAL_PLAYER_STORAGE && playerID != null) {
-            List<Claim> claimsToDelete = new ArrayList<>(DataStore.GLOBAL_PLAYER_DATA.get(playerID).getInternalClaims());
+            List<Claim> claimsToDelete = new ArrayList<>(this.getClaimWorldManager(null).getOrCreatePlayerData(playerID).getInternalClaims());
             for (Claim claim : claimsToDelete) {
                 ((GPClaim) claim).removeSurfaceFluids(null);
                 GriefPreventionPlugin.GLOBAL_SUBJECT.getSubjectData().clearPermissions(ImmutableSet.of(claim.getContext()));
@@ -562,13 +678,62 @@ public GPClaim getClaimAtPlayer(GPPlayerData playerData, Location<World> locatio
     }
 
     public GPClaim getClaimAt(Location<World> location) {
-        GPClaimManager claimManager = this.getClaimWorldManager(location.getExtent().getProperties());
-        return (GPClaim) claimManager.getClaimAt(location, null);
+        return this.getClaimAt(location, null);
     }
 
     public GPClaim getClaimAt(Location<World> location, GPClaim cachedClaim) {
+        // a cached claim may answer for its own bounds even inside a child, so only plain lookups are memoised
+        final boolean memoise = cachedClaim == null && SpongeImpl.getServer().isCallingFromMinecraftThread();
+        final int x = location.getBlockX();
+        final int y = location.getBlockY();
+        final int z = location.getBlockZ();
+        if (memoise) {
+            final GPClaim claim = this.claimLookupMemo.get(location.getExtent(), x, y, z);
+            if (claim != null) {
+                return claim;
+            }
+        }
+
         GPClaimManager claimManager = this.getClaimWorldManager(location.getExtent().getProperties());
-        return (GPClaim) claimManager.getClaimAt(location, cachedClaim);
+        final GPClaim claim = (GPClaim) claimManager.getClaimAt(location, cachedClaim);
+        if (memoise) {
+            this.claimLookupMemo.put(x, y, z, claim);
+        }
+        return claim;
+    }
+
+    public long getClaimLookupMemoHits() {
+        return this.claimLookupMemo.getHits();
+    }
+
+    public long getClaimLookupMemoMisses() {
+        return this.claimLookupMemo.getMisses();
+    }
+
+    public long getEntityBlockCacheHits() {
+        long hits = 0;
+        for (GPClaimManager claimWorldManager : this.claimWorldManagers.values()) {
+            hits += claimWorldManager.getEntityBlockCache().getHits();
+        }
+        return hits;
+    }
+
+    public long getEntityBlockCacheMisses() {
+        long misses = 0;
+        for (GPClaimManager claimWorldManager : this.claimWorldManagers.values()) {
+            misses += claimWorldManager.getEntityBlockCache().getMisses();
+        }
+        return misses;
+    }
+
+    public Map<GPClaim, List<Location<World>>> getClaimsAt(World world, Iterable<Location<World>> locations) {
+        GPClaimManager claimManager = this.getClaimWorldManager(world.getProperties());
+        return claimManager.getClaimsAt(locations);
+    }
+
+    public <T> Map<GPClaim, List<T>> getClaimsAt(World world, Iterable<T> elements, Function<T, Location<World>> locationMapper) {
+        GPClaimManager claimManager = this.getClaimWorldManager(world.getProperties());
+        return claimManager.getClaimsAt(elements, locationMapper);
     }
 
     public GPPlayerData getPlayerData(World world, UUID playerUniqueId) {
@@ -578,7 +743,7 @@ public GPPlayerData getPlayerData(World world, UUID playerUniqueId) {
     public GPPlayerData getPlayerData(WorldProperties worldProperties, UUID playerUniqueId) {
         GPPlayerData playerData = null;
         GPClaimManager claimWorldManager = this.getClaimWorldManager(worldProperties);
-        playerData = claimWorldManager.getPlayerDataMap().get(playerUniqueId);
+        playerData = claimWorldManager.getPlayerDataCache().get(playerUniqueId);
         return playerData;
     }
 
@@ -25,509 +25,261 @@
  */
 package me.ryanhamshire.griefprevention;
 
+import me.ryanhamshire.griefprevention.api.claim.ClaimType;
 import me.ryanhamshire.griefprevention.claim.GPClaim;
-import org.spongepowered.api.world.World;
+import me.ryanhamshire.griefprevention.configuration.ClaimBinaryFormat;
+import me.ryanhamshire.griefprevention.configuration.ClaimDataConfig;
+import me.ryanhamshire.griefprevention.configuration.ClaimStorageData;
+import me.ryanhamshire.griefprevention.configuration.PlayerStorageData;
+import me.ryanhamshire.griefprevention.configuration.SqlClaimStorageData;
+import me.ryanhamshire.griefprevention.configuration.SqlPlayerStorageData;
+import me.ryanhamshire.griefprevention.configuration.TownDataConfig;
+import me.ryanhamshire.griefprevention.logging.CustomLogEntryTypes;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.world.storage.WorldProperties;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.Properties;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
-//manages data stored in the file system
-public class DatabaseDataStore extends DataStore {
+import javax.annotation.Nullable;
 
-    private Connection databaseConnection = null;
+// Stores claims and player data in a SQL database.
+// World configs and claim templates stay on disk. Claims are loaded by streaming the rows of a
+// world through the regular link phase, and every write goes through the storage writer which
+// applies it to the database in batched transactions.
+public class DatabaseDataStore extends FlatFileDataStore {
 
-    private String databaseUrl;
-    private String userName;
-    private String password;
+    private final String databaseUrl;
+    private final String userName;
+    private final String password;
+    private ClaimDatabase database;
 
-    DatabaseDataStore(String url, String userName, String password) throws Exception {
+    DatabaseDataStore(String url, String userName, String password) {
         this.databaseUrl = url;
         this.userName = userName;
         this.password = password;
-
-        this.initialize();
     }
 
-    @SuppressWarnings({"unused", "null"})
     @Override
     void initialize() throws Exception {
-        /*try {
-            // load the java driver for mySQL
-            Class.forName("com.mysql.jdbc.Driver");
-        } catch (Exception e) {
-            GriefPreventionPlugin.addLogEntry("ERROR: Unable to load Java's mySQL database driver.  Check to make sure you've installed it properly.");
-            throw e;
-        }
-
         try {
-            this.refreshDataConnection();
-        } catch (Exception e2) {
+            this.database = ClaimDatabase.create(this.databaseUrl, this.userName, this.password);
+            this.database.initializeSchema();
+        } catch (SQLException e) {
             GriefPreventionPlugin.addLogEntry("ERROR: Unable to connect to database.  Check your config file settings.");
-            throw e2;
+            throw e;
         }
 
-        try {
-            // ensure the data tables exist
-            Statement statement = databaseConnection.createStatement();
-
-            statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_nextclaimid (nextid INT(15));");
-
-            statement.execute(
-                    "CREATE TABLE IF NOT EXISTS griefprevention_claimdata (id INT(15), owner VARCHAR(50), lessercorner VARCHAR(100), greatercorner "
-                            + "VARCHAR(100), builders VARCHAR(1000), containers VARCHAR(1000), accessors VARCHAR(1000), managers VARCHAR(1000), "
-                            + "parentid INT(15));");
-
-            statement.execute(
-                    "CREATE TABLE IF NOT EXISTS griefprevention_playerdata (name VARCHAR(50), lastlogin DATETIME, accruedblocks INT(15), "
-                            + "bonusblocks INT(15));");
+        super.initialize();
+    }
 
-            statement.execute("CREATE TABLE IF NOT EXISTS griefprevention_schemaversion (version INT(15));");
+    public ClaimDatabase getDatabase() {
+        return this.database;
+    }
 
-            // if the next claim id table is empty, this is a brand new database
-            // which will write using the latest schema
-            // otherwise, schema version is determined by schemaversion table
-            // (or =0 if table is empty, see getSchemaVersion())
-            ResultSet results = statement.executeQuery("SELECT * FROM griefprevention_nextclaimid;");
-            if (!results.next()) {
-                this.setSchemaVersion(latestSchemaVersion);
+    @Override
+    void loadClaims(WorldProperties worldProperties, Path claimDataFolder) throws Exception {
+        // claim files left by the flat file store are moved into the database once
+        this.getStorageWriter().replayJournal(claimDataFolder);
+        this.importClaimFiles(worldProperties, claimDataFolder);
+        this.importPlayerFiles(worldProperties, claimDataFolder.getParent());
+
+        long startTime = System.nanoTime();
+        final UUID worldUniqueId = worldProperties.getUniqueId();
+        final List<ClaimFileRecord> records = new ArrayList<>();
+        this.database.loadClaims(worldUniqueId, (claimId, data) -> {
+            ClaimFileRecord record;
+            try {
+                final ClaimDataConfig claimData = ClaimBinaryFormat.decode(data);
+                final Path path = claimDataFolder.resolve(claimData.getType().name().toLowerCase()).resolve(claimId.toString());
+                record = new ClaimFileRecord(path.toFile(), claimId);
+                record.claimStorage = new SqlClaimStorageData(this.database, path, worldUniqueId, claimData);
+                record.parentId = claimData.getParent().orElse(null);
+            } catch (IOException e) {
+                record = new ClaimFileRecord(claimDataFolder.resolve(claimId.toString()).toFile(), claimId);
+                record.error = e;
             }
-        } catch (Exception e3) {
-            GriefPreventionPlugin.addLogEntry("ERROR: Unable to create the necessary database table.  Details:");
-            GriefPreventionPlugin.addLogEntry(e3.getMessage());
-            e3.printStackTrace();
-            throw e3;
+            records.add(record);
+        });
+        final long readMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        startTime = System.nanoTime();
+        this.linkClaimRecords(records, worldProperties);
+        final long linkMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        if (!records.isEmpty()) {
+            GriefPreventionPlugin.instance.getLogger().info("[" + worldProperties.getWorldName() + "] Read " + records.size() + " claim rows in "
+                    + readMillis + " ms, linked claims in " + linkMillis + " ms.");
         }
+    }
 
-        // load group data into memory
-        Statement statement = databaseConnection.createStatement();
-        // load next claim number into memory
-        ResultSet results = statement.executeQuery("SELECT * FROM griefprevention_nextclaimid;");
-
-        // if there's nothing yet, add it
-        if (!results.next()) {
-            statement.execute("INSERT INTO griefprevention_nextclaimid VALUES(0);");
+    private void importClaimFiles(WorldProperties worldProperties, Path claimDataFolder) throws IOException, SQLException {
+        final File[] files = claimDataFolder.toFile().listFiles();
+        if (files == null || files.length == 0) {
+            return;
         }
 
-        if (this.getSchemaVersion() == 0) {
-            try {
-                this.refreshDataConnection();
-
-                // pull ALL player data from the database
-                statement = this.databaseConnection.createStatement();
-                results = statement.executeQuery("SELECT * FROM griefprevention_playerdata;");
-
-                // make a list of changes to be made
-                HashMap<String, UUID> changes = new HashMap<String, UUID>();
-
-                ArrayList<String> namesToConvert = new ArrayList<String>();
-                while (results.next()) {
-                    // get the id
-                    String playerName = results.getString("name");
-
-                    // add to list of names to convert to UUID
-                    namesToConvert.add(playerName);
-                }
-
-                // reset results cursor
-                results.beforeFirst();
-
-                // for each result
-                while (results.next()) {
-                    // get the id
-                    String playerName = results.getString("name");
-
-                    // try to convert player name to UUID
-                    try {
-                        Optional<User> user = Sponge.getGame().getServiceManager().provide(UserStorageService.class).get().get(playerName);
-
-                        // if successful, update the playerdata row by replacing
-                        // the player's name with the player's UUID
-                        if (user.isPresent()) {
-                            changes.put(playerName, user.get().getUniqueId());
-                        }
-                    }
-                    // otherwise leave it as-is. no harm done - it won't be
-                    // requested by name, and this update only happens once.
-                    catch (Exception ex) {
-                    }
-                }
-
-                // refresh data connection in case data migration took a long time
-                this.refreshDataConnection();
-
-                for (String name : changes.keySet()) {
-                    try {
-                        statement = this.databaseConnection.createStatement();
-                        statement.execute(
-                                "UPDATE griefprevention_playerdata SET name = '" + changes.get(name).toString() + "' WHERE name = '" + name + "';");
-                    } catch (SQLException e) {
-                        GriefPreventionPlugin.addLogEntry("Unable to convert player data for " + name + ".  Skipping.");
-                        GriefPreventionPlugin.addLogEntry(e.getMessage());
-                    }
-                }
-            } catch (SQLException e) {
-                GriefPreventionPlugin.addLogEntry("Unable to convert player data.  Details:");
-                GriefPreventionPlugin.addLogEntry(e.getMessage());
-                e.printStackTrace();
+        final List<File> claimFiles = new ArrayList<>();
+        this.collectClaimFiles(files, claimFiles);
+        final ClaimDatabase.Batch batch = new ClaimDatabase.Batch();
+        int count = 0;
+        for (File claimFile : claimFiles) {
+            // UUID's should always be 36 in length
+            if (claimFile.getName().length() != 36) {
+                continue;
             }
-        }
-
-        // load claims data into memory
-        results = statement.executeQuery("SELECT * FROM griefprevention_claimdata;");
-
-        ArrayList<GPClaim> claimsToRemove = new ArrayList<GPClaim>();
-        ArrayList<GPClaim> subdivisionsToLoad = new ArrayList<GPClaim>();
-        List<World> validWorlds = (List<World>) Sponge.getGame().getServer().getWorlds();
-
-        while (results.next()) {
+            final UUID claimId;
             try {
-                // problematic claims will be removed from secondary storage,
-                // and never added to in-memory data store
-                boolean removeClaim = false;
-
-                long parentId = results.getLong("parentid");
-                long claimID = results.getLong("id");
-
-                Location<World> lesserBoundaryCorner = null;
-                Location<World> greaterBoundaryCorner = null;
-                String lesserCornerString = "(location not available)";
-                try {
-                    lesserCornerString = results.getString("lessercorner");
-                    Vector3i lesserPos = BlockUtils.positionFromString(lesserCornerString);
-                    // lesserBoundaryCorner = positionFromString(lesserCornerString);
-
-                    String greaterCornerString = results.getString("greatercorner");
-                    //greaterBoundaryCorner = positionFromString(greaterCornerString);
-                } catch (Exception e) {
-                    if (e.getMessage().contains("World not found")) {
-                        removeClaim = true;
-                        GriefPreventionPlugin.addLogEntry("Removing a claim in a world which does not exist: " + lesserCornerString);
-                        continue;
-                    } else {
-                        throw e;
-                    }
-                }
-
-                String ownerName = results.getString("owner");
-                Optional<User> owner = Optional.empty();
-                if (ownerName.isEmpty() || ownerName.startsWith("--")) {
-                    owner = Optional.empty(); // administrative land claim or subdivision
-                } else if (this.getSchemaVersion() < 1) {
-                    try {
-                        owner = Sponge.getGame().getServiceManager().provide(UserStorageService.class).get().get(ownerName);
-                    } catch (Exception ex) {
-                        GriefPreventionPlugin.addLogEntry("This owner name did not convert to a UUID: " + ownerName + ".");
-                        GriefPreventionPlugin.addLogEntry("  Converted land claim to administrative @ " + lesserBoundaryCorner.toString());
-                    }
-                }
-
-                String managersString = results.getString("managers");
-                List<String> managerNames = Arrays.asList(managersString.split(";"));
-                managerNames = this.convertNameListToUUIDList(managerNames);
-
-                GPClaim claim = new GPClaim(lesserBoundaryCorner, greaterBoundaryCorner, ClaimType.BASIC);
-                claim.ownerID = owner.get().getUniqueId();
-
-                if (removeClaim) {
-                    claimsToRemove.add(claim);
-                } else if (parentId == -1) {
-                    // top level claim
-                    this.addClaim(claim, false);
-                } else {
-                    // subdivision
-                    subdivisionsToLoad.add(claim);
-                }
-            } catch (SQLException e) {
-                GriefPreventionPlugin.addLogEntry("Unable to load a claim.  Details: " + e.getMessage() + " ... " + results.toString());
-                e.printStackTrace();
+                claimId = UUID.fromString(claimFile.getName());
+            } catch (IllegalArgumentException e) {
+                GriefPreventionPlugin.instance.getLogger().error("Could not read claim file " + claimFile.getAbsolutePath());
+                continue;
             }
-        }
-
-        // add subdivisions to their parent claims
-        for (Claim childClaim : subdivisionsToLoad) {
-            // find top level claim parent
-            Claim topLevelClaim = this.getClaimAt(childClaim.getLesserBoundaryCorner(), true, null);
 
-            if (topLevelClaim == null) {
-                claimsToRemove.add(childClaim);
-                GriefPreventionPlugin.addLogEntry("Removing orphaned claim subdivision: " + childClaim.getLesserBoundaryCorner().toString());
+            final Path path = claimFile.toPath();
+            final ClaimDataConfig claimData = ClaimBinaryFormat.isBinary(path) ? ClaimBinaryFormat.read(path)
+                    : loadHoconClaimStorage(path, worldProperties.getUniqueId()).getConfig();
+            if (claimData == null) {
+                GriefPreventionPlugin.instance.getLogger().error("Could not read claim file " + claimFile.getAbsolutePath());
                 continue;
             }
-
-            // add this claim to the list of children of the current top level
-            // claim
-            childClaim.parent = topLevelClaim;
-            topLevelClaim.children.add(childClaim);
+            if (claimData.getWorldUniqueId() == null) {
+                claimData.setWorldUniqueId(worldProperties.getUniqueId());
+            }
+            // legacy subdivisions nested in the parent file become rows of their own
+            for (Map.Entry<UUID, ClaimDataConfig> subdivisionEntry : claimData.getSubdivisions().entrySet()) {
+                final ClaimDataConfig subdivisionData = subdivisionEntry.getValue();
+                subdivisionData.setWorldUniqueId(claimData.getWorldUniqueId());
+                subdivisionData.setOwnerUniqueId(claimData.getOwnerUniqueId());
+                subdivisionData.setType(ClaimType.SUBDIVISION);
+                subdivisionData.setParent(claimId);
+                batch.writeClaim(subdivisionEntry.getKey(), subdivisionData, ClaimBinaryFormat.encode(subdivisionData), null);
+                count++;
+            }
+            claimData.getSubdivisions().clear();
+            batch.writeClaim(claimId, claimData, ClaimBinaryFormat.encode(claimData), null);
+            count++;
         }
-
-        for (int i = 0; i < claimsToRemove.size(); i++) {
-            this.deleteClaimFromSecondaryStorage(claimsToRemove.get(i));
+        if (count == 0) {
+            return;
         }
 
-        if (this.getSchemaVersion() <= 2) {
-            this.refreshDataConnection();
-            statement = this.databaseConnection.createStatement();
-            statement.execute("DELETE FROM griefprevention_claimdata WHERE id='-1';");
-        }*/
-
-        super.initialize();
+        this.database.write(batch);
+        // keep the files around but out of the way, the database is authoritative from now on
+        Files.move(claimDataFolder, claimDataFolder.resolveSibling(claimDataFolder.getFileName() + ".imported-" + System.currentTimeMillis()));
+        Files.createDirectories(claimDataFolder);
+        GriefPreventionPlugin.instance.getLogger().info("[" + worldProperties.getWorldName() + "] Imported " + count + " claim files into the database.");
     }
 
-    // see datastore.cs. this will ALWAYS be a top level claim
-    @Override
-    public void writeClaimToStorage(GPClaim claim) {
-        try {
-            this.refreshDataConnection();
-
-            // wipe out any existing data about this claim
-            this.deleteClaimFromSecondaryStorage(claim);
-
-            // write claim data to the database
-            this.writeClaimData(claim);
-        } catch (SQLException e) {
-            //GriefPrevention.AddLogEntry("Unable to save data for claim at " + this.locationToString(claim.lesserBoundaryCorner) + ".  Details:");
-            GriefPreventionPlugin.addLogEntry(e.getMessage());
+    // Player files left by the flat file store are moved into the database once, rows already in the database win
+    private void importPlayerFiles(WorldProperties worldProperties, Path worldDataPath) throws IOException, SQLException {
+        final Path playerDataFolder = USE_GLOBAL_PLAYER_STORAGE ? globalPlayerDataPath : worldDataPath.resolve("PlayerData");
+        final File[] files = playerDataFolder.toFile().listFiles();
+        if (files == null || files.length == 0) {
+            return;
         }
-    }
-
-    // actually writes claim data to the database
-    private void writeClaimData(GPClaim claim) throws SQLException {
-        /*String lesserCornerString = this.locationToString(claim.getLesserBoundaryCorner());
-        String greaterCornerString = this.locationToString(claim.getGreaterBoundaryCorner());
-        String owner = "";
-        if (claim.ownerID != null)
-            owner = claim.ownerID.toString();
-
-        ArrayList<String> builders = new ArrayList<String>();
-        ArrayList<String> containers = new ArrayList<String>();
-        ArrayList<String> accessors = new ArrayList<String>();
-        ArrayList<String> managers = new ArrayList<String>();
 
-        claim.getPermissions(builders, containers, accessors, managers);
-
-        String buildersString = "";
-        for (int i = 0; i < builders.size(); i++) {
-            buildersString += builders.get(i) + ";";
-        }
+        final String scope = ClaimDatabase.getPlayerScope(USE_GLOBAL_PLAYER_STORAGE ? null : worldProperties.getUniqueId());
+        final Set<UUID> existingPlayers = new HashSet<>(this.database.loadPlayerIds(scope));
+        final ClaimDatabase.Batch batch = new ClaimDatabase.Batch();
+        final List<File> playerFiles = new ArrayList<>();
+        for (File playerFile : files) {
+            // ignore lists and other files next to the player files stay where they are
+            if (!playerFile.isFile() || playerFile.getName().length() != 36) {
+                continue;
+            }
+            final UUID playerUniqueId;
+            try {
+                playerUniqueId = UUID.fromString(playerFile.getName());
+            } catch (IllegalArgumentException e) {
+                GriefPreventionPlugin.instance.getLogger().error("Could not read player file " + playerFile.getAbsolutePath());
+                continue;
+            }
 
-        String containersString = "";
-        for (int i = 0; i < containers.size(); i++) {
-            containersString += containers.get(i) + ";";
+            if (!existingPlayers.contains(playerUniqueId)) {
+                batch.writePlayer(scope, playerUniqueId, Files.readAllBytes(playerFile.toPath()), null);
+            }
+            playerFiles.add(playerFile);
         }
-
-        String accessorsString = "";
-        for (int i = 0; i < accessors.size(); i++) {
-            accessorsString += accessors.get(i) + ";";
+        if (playerFiles.isEmpty()) {
+            return;
         }
 
-        String managersString = "";
-        for (int i = 0; i < managers.size(); i++) {
-            managersString += managers.get(i) + ";";
+        if (!batch.isEmpty()) {
+            this.database.write(batch);
         }
-
-        long parentId;
-        if (claim.parent == null) {
-            parentId = -1;
-        } else {
-            parentId = claim.parent.id;
+        // keep the files around but out of the way, the database is authoritative from now on
+        final Path importedFolder = playerDataFolder.resolveSibling(playerDataFolder.getFileName() + ".imported-" + System.currentTimeMillis());
+        Files.createDirectories(importedFolder);
+        for (File playerFile : playerFiles) {
+            Files.move(playerFile.toPath(), importedFolder.resolve(playerFile.getName()));
         }
-
-        try {
-            this.refreshDataConnection();
-
-            Statement statement = databaseConnection.createStatement();
-            statement.execute(
-                    "INSERT INTO griefprevention_claimdata (id, owner, lessercorner, greatercorner, builders, containers, accessors, managers,
-                    parentid) VALUES("
-                            +
-                            claim.id + ", '" +
-                            owner + "', '" +
-                            lesserCornerString + "', '" +
-                            greaterCornerString + "', '" +
-                            buildersString + "', '" +
-                            containersString + "', '" +
-                            accessorsString + "', '" +
-                            managersString + "', " +
-                            parentId +
-                            ");");
-        } catch (SQLException e) {
-            GriefPrevention.AddLogEntry("Unable to save data for claim at " + this.locationToString(claim.lesserBoundaryCorner) + ".  Details:");
-            GriefPrevention.AddLogEntry(e.getMessage());
-        }*/
+        GriefPreventionPlugin.instance.getLogger().info("[" + worldProperties.getWorldName() + "] Imported " + playerFiles.size()
+                + " player files into the database.");
     }
 
-    // deletes a claim from the database
     @Override
-    public void deleteClaimFromSecondaryStorage(GPClaim claim) {
-        try {
-            this.refreshDataConnection();
-
-            Statement statement = this.databaseConnection.createStatement();
-            statement.execute("DELETE FROM griefprevention_claimdata WHERE id='" + claim.id + "';");
-        } catch (SQLException e) {
-            GriefPreventionPlugin.addLogEntry("Unable to delete data for claim " + claim.id + ".  Details:");
-            GriefPreventionPlugin.addLogEntry(e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
-    /*@Override
-    PlayerData getPlayerDataFromStorage(UUID playerID) {
-        PlayerData playerData = new PlayerData();
-        playerData.playerID = playerID;
-
-        try {
-            this.refreshDataConnection();
-
-            Statement statement = this.databaseConnection.createStatement();
-            ResultSet results = statement.executeQuery("SELECT * FROM griefprevention_playerdata WHERE name='" + playerID.toString() + "';");
-
-            // if data for this player exists, use it
-            if (results.next()) {
-                playerData.setLastLogin(results.getTimestamp("lastlogin"));
-                playerData.setAccruedClaimBlocks(results.getInt("accruedblocks"));
-                playerData.setBonusClaimBlocks(results.getInt("bonusblocks"));
+    void loadPlayers(WorldProperties worldProperties, Path worldDataPath) throws Exception {
+        if (!isMigratingPlayerData()) {
+            for (Player player : Sponge.getServer().getOnlinePlayers()) {
+                this.getOrCreatePlayerData(worldProperties, player.getUniqueId());
             }
-        } catch (SQLException e) {
-            StringWriter errors = new StringWriter();
-            e.printStackTrace(new PrintWriter(errors));
-            GriefPrevention.AddLogEntry(playerID + " " + errors.toString(), CustomLogEntryTypes.Exception);
-        }
-
-        return playerData;
-    }*/
-
-    // saves changes to player data. MUST be called after you're done making
-    // changes, otherwise a reload will lose them
-    @Override
-    public void overrideSavePlayerData(UUID playerID, GPPlayerData playerData) {
-        // never save data for the "administrative" account. an empty string for
-        // player name indicates administrative account
-        if (playerID == null) {
             return;
         }
 
-        //this.savePlayerData(playerID.toString(), playerData);
-    }
-
-   /* private void savePlayerData(String playerID, PlayerData playerData) {
-        try {
-            this.refreshDataConnection();
-
-            SimpleDateFormat sqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            String dateString = sqlFormat.format(playerData.getLastLogin());
-
-            Statement statement = databaseConnection.createStatement();
-            statement.execute("DELETE FROM griefprevention_playerdata WHERE name='" + playerID.toString() + "';");
-            statement = databaseConnection.createStatement();
-            statement.execute("INSERT INTO griefprevention_playerdata (name, lastlogin, accruedblocks, bonusblocks) VALUES ('" + playerID.toString()
-                    + "', '" + dateString + "', " + playerData.getAccruedClaimBlocks() + ", " + playerData.getBonusClaimBlocks() + ");");
-        } catch (SQLException e) {
-            StringWriter errors = new StringWriter();
-            e.printStackTrace(new PrintWriter(errors));
-            GriefPrevention.AddLogEntry(playerID + " " + errors.toString(), CustomLogEntryTypes.Exception);
-        }
-    }*/
-
-    void close() {
-        if (this.databaseConnection != null) {
+        final UUID worldUniqueId = USE_GLOBAL_PLAYER_STORAGE ? null : worldProperties.getUniqueId();
+        for (UUID playerUniqueId : this.database.loadPlayerIds(ClaimDatabase.getPlayerScope(worldUniqueId))) {
             try {
-                if (!this.databaseConnection.isClosed()) {
-                    this.databaseConnection.close();
-                }
-            } catch (SQLException e) {
-            }
-            ;
-        }
-
-        this.databaseConnection = null;
-    }
-
-    private void refreshDataConnection() throws SQLException {
-        if (this.databaseConnection == null || !this.databaseConnection.isValid(3)) {
-            // set username/pass properties
-            Properties connectionProps = new Properties();
-            connectionProps.put("user", this.userName);
-            connectionProps.put("password", this.password);
-            connectionProps.put("autoReconnect", "true");
-            connectionProps.put("maxReconnects", String.valueOf(Integer.MAX_VALUE));
-
-            // establish connection
-            this.databaseConnection = DriverManager.getConnection(this.databaseUrl, connectionProps);
-        }
-    }
-
-    @Override
-    protected int getSchemaVersionFromStorage() {
-        try {
-            this.refreshDataConnection();
-
-            Statement statement = this.databaseConnection.createStatement();
-            ResultSet results = statement.executeQuery("SELECT * FROM griefprevention_schemaversion;");
-
-            // if there's nothing yet, assume 0 and add it
-            if (!results.next()) {
-                this.setSchemaVersion(0);
-                return 0;
+                this.getOrCreatePlayerData(worldProperties, playerUniqueId);
+            } catch (Exception e) {
+                StringWriter errors = new StringWriter();
+                e.printStackTrace(new PrintWriter(errors));
+                GriefPreventionPlugin.addLogEntry(playerUniqueId + " " + errors.toString(), CustomLogEntryTypes.Exception);
             }
-
-            // otherwise return the value that's in the table
-            else {
-                return results.getInt("version");
-            }
-
-        } catch (SQLException e) {
-            GriefPreventionPlugin.addLogEntry("Unable to retrieve schema version from database.  Details:");
-            GriefPreventionPlugin.addLogEntry(e.getMessage());
-            e.printStackTrace();
-            return 0;
-        }
-    }
-
-    @Override
-    protected void updateSchemaVersionInStorage(int versionToSet) {
-        try {
-            this.refreshDataConnection();
-
-            Statement statement = databaseConnection.createStatement();
-            statement.execute("DELETE FROM griefprevention_schemaversion;");
-            statement.execute("INSERT INTO griefprevention_schemaversion VALUES (" + versionToSet + ");");
-        } catch (SQLException e) {
-            GriefPreventionPlugin.addLogEntry("Unable to set next schema version to " + versionToSet + ".  Details:");
-            GriefPreventionPlugin.addLogEntry(e.getMessage());
         }
     }
 
     @Override
-    GPPlayerData getPlayerDataFromStorage(UUID playerID) {
-        return null;
-    }
-
-    @Override
-    public GPPlayerData getOrCreatePlayerData(WorldProperties worldProperties, UUID playerUniqueId) {
-        return null;
+    public ClaimStorageData createClaimStorage(Path path, UUID worldUniqueId, UUID ownerUniqueId, ClaimType type, boolean cuboid) {
+        final ClaimDataConfig claimData = type == ClaimType.TOWN ? new TownDataConfig() : new ClaimDataConfig();
+        claimData.setWorldUniqueId(worldUniqueId);
+        claimData.setOwnerUniqueId(ownerUniqueId);
+        claimData.setType(type);
+        claimData.setCuboid(cuboid);
+        return new SqlClaimStorageData(this.database, path, worldUniqueId, claimData);
     }
 
     @Override
-    public void registerWorld(WorldProperties worldProperties) {
+    public ClaimStorageData createClaimStorage(Path path, UUID worldUniqueId, ClaimDataConfig claimData) {
+        return new SqlClaimStorageData(this.database, path, worldUniqueId, claimData);
     }
 
     @Override
-    public void loadWorldData(World world) {
+    public PlayerStorageData createPlayerStorage(Path path, @Nullable UUID worldUniqueId, UUID playerUniqueId) {
+        return new SqlPlayerStorageData(this.database, path, worldUniqueId, playerUniqueId);
     }
 
     @Override
-    public void unloadWorldData(WorldProperties worldProperties) {
+    public void moveClaimStorage(GPClaim claim, Path newPath) {
+        // the row is keyed by claim id, only its type and parent columns change
+        claim.setClaimStorage(this.createClaimStorage(newPath, claim.getWorldUniqueId(), (ClaimDataConfig) claim.getInternalClaimData()));
+        claim.getClaimStorage().save();
     }
 
     @Override
-    void loadClaimTemplates() {
+    public void deleteClaimFromSecondaryStorage(GPClaim claim) {
+        this.getStorageWriter().deleteLater(claim.getClaimStorage());
     }
-
 }
@@ -32,6 +32,8 @@
 import me.ryanhamshire.griefprevention.api.claim.ClaimType;
 import me.ryanhamshire.griefprevention.claim.GPClaim;
 import me.ryanhamshire.griefprevention.claim.GPClaimManager;
+import me.ryanhamshire.griefprevention.configuration.ClaimBinaryFormat;
+import me.ryanhamshire.griefprevention.configuration.ClaimDataConfig;
 import me.ryanhamshire.griefprevention.configuration.ClaimStorageData;
 import me.ryanhamshire.griefprevention.configuration.ClaimTemplateStorage;
 import me.ryanhamshire.griefprevention.configuration.GriefPreventionConfig;
@@ -56,11 +58,25 @@
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
 
 //manages data stored in the file system
 public class FlatFileDataStore extends DataStore {
@@ -77,6 +93,11 @@ public class FlatFileDataStore extends DataStore {
     private final Path rootConfigPath = GriefPreventionPlugin.instance.getConfigPath().resolve("worlds");
     public static Path rootWorldSavePath;
     private int claimLoadCount = 0;
+    private final AtomicInteger convertedClaimCount = new AtomicInteger();
+    private final AtomicLong convertedBytesBefore = new AtomicLong();
+    private final AtomicLong convertedBytesAfter = new AtomicLong();
+    // World UUID -> claim data folder, for writing claim index snapshots on shutdown
+    private final Map<UUID, Path> claimIndexFolders = Maps.newHashMap();
 
     public FlatFileDataStore() {
     }
@@ -184,20 +205,11 @@ public void loadWorldData(World world) {
 
         // Load Claim Data
         try {
-            File[] files = newWorldDataPath.resolve("ClaimData").toFile().listFiles();
-            if (files != null && files.length > 0) {
-                this.loadClaimData(files, worldProperties);
+            this.loadClaims(worldProperties, newWorldDataPath.resolve("ClaimData"));
+            if (this.claimLoadCount > 0) {
                 GriefPreventionPlugin.instance.getLogger().info("[" + worldProperties.getWorldName() + "] " + this.claimLoadCount + " total claims loaded.");
             }
-
-            if (GriefPreventionPlugin.getGlobalConfig().getConfig().playerdata.useGlobalPlayerDataStorage) {
-                files = globalPlayerDataPath.toFile().listFiles();
-            } else {
-                files = newWorldDataPath.resolve("PlayerData").toFile().listFiles();
-            }
-            if (files != null && files.length > 0) {
-                this.loadPlayerData(worldProperties, files);
-            }
+            this.loadPlayers(worldProperties, newWorldDataPath);
 
             // If a wilderness claim was not loaded, create a new one
             if (claimWorldManager.getWildernessClaim() == null) {
@@ -230,68 +242,227 @@ public void unloadWorldData(WorldProperties worldProperties) {
         DataStore.worldConfigMap.remove(worldProperties.getUniqueId());
     }
 
-    void loadClaimData(File[] files, WorldProperties worldProperties) throws Exception {
-        for (int i = 0; i < files.length; i++) {
-            File file = files[i];
+    void loadClaims(WorldProperties worldProperties, Path claimDataFolder) throws Exception {
+        final int replayed = this.getStorageWriter().replayJournal(claimDataFolder);
+        if (replayed > 0) {
+            GriefPreventionPlugin.instance.getLogger().info("[" + worldProperties.getWorldName() + "] Replayed " + replayed + " claim journal records.");
+        }
+        final Map<UUID, ClaimIndexSnapshot.Entry> claimIndex = isClaimIndexEnabled() ? ClaimIndexSnapshot.read(claimDataFolder) : Collections.emptyMap();
+        if (isClaimIndexEnabled()) {
+            this.claimIndexFolders.put(worldProperties.getUniqueId(), claimDataFolder);
+        }
+        final File[] files = claimDataFolder.toFile().listFiles();
+        if (files != null && files.length > 0) {
+            this.loadClaimData(files, worldProperties, claimDataFolder, claimIndex);
+        }
+    }
+
+    // The snapshot holds claim data as it was read from the file, which the classic migrator rewrites on every load
+    static boolean isClaimIndexEnabled() {
+        return GriefPreventionPlugin.getGlobalConfig().getConfig().storage.claimIndex
+                && !GriefPreventionPlugin.getGlobalConfig().getConfig().migrator.classicMigrator;
+    }
+
+    @Override
+    void saveClaimIndexes() {
+        for (Map.Entry<UUID, Path> entry : this.claimIndexFolders.entrySet()) {
+            final GPClaimManager claimManager = this.claimWorldManagers.get(entry.getKey());
+            if (claimManager == null) {
+                continue;
+            }
+            try {
+                ClaimIndexSnapshot.write(entry.getValue(), claimManager.getWorldClaims());
+            } catch (IOException e) {
+                GriefPreventionPlugin.instance.getLogger().error("Failed to write claim index " + entry.getValue(), e);
+            }
+        }
+    }
+
+    void loadPlayers(WorldProperties worldProperties, Path worldDataPath) throws Exception {
+        final File[] files;
+        if (GriefPreventionPlugin.getGlobalConfig().getConfig().playerdata.useGlobalPlayerDataStorage) {
+            files = globalPlayerDataPath.toFile().listFiles();
+        } else {
+            files = worldDataPath.resolve("PlayerData").toFile().listFiles();
+        }
+        if (files != null && files.length > 0) {
+            this.loadPlayerData(worldProperties, files);
+        }
+    }
+
+    void loadClaimData(File[] files, WorldProperties worldProperties, Path claimDataFolder, Map<UUID, ClaimIndexSnapshot.Entry> claimIndex)
+            throws Exception {
+        final List<File> claimFiles = new ArrayList<>();
+        this.collectClaimFiles(files, claimFiles);
+        if (claimFiles.isEmpty()) {
+            return;
+        }
+
+        // Phase 1 : parse claim files in parallel, nothing here touches the claim manager
+        long startTime = System.nanoTime();
+        final List<ClaimFileRecord> records = this.parseClaimFiles(claimFiles, worldProperties.getUniqueId(), claimDataFolder, claimIndex);
+        final long parseMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        if (this.convertedClaimCount.get() > 0) {
+            GriefPreventionPlugin.instance.getLogger().info("[" + worldProperties.getWorldName() + "] Converted " + this.convertedClaimCount.get()
+                    + " claim files to " + this.getClaimFormatName() + ", " + this.convertedBytesBefore.get() + " bytes -> "
+                    + this.convertedBytesAfter.get() + " bytes.");
+            this.convertedClaimCount.set(0);
+            this.convertedBytesBefore.set(0);
+            this.convertedBytesAfter.set(0);
+        }
+
+        // Phase 2 : link parents before their children and register claims on the main thread
+        startTime = System.nanoTime();
+        this.linkClaimRecords(records, worldProperties);
+        final long linkMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        int indexedCount = 0;
+        for (ClaimFileRecord record : records) {
+            if (record.indexEntry != null) {
+                indexedCount++;
+            }
+        }
+        GriefPreventionPlugin.instance.getLogger().info("[" + worldProperties.getWorldName() + "] Parsed " + (records.size() - indexedCount)
+                + " claim files and placed " + indexedCount + " claims from the claim index in " + parseMillis + " ms, linked claims in "
+                + linkMillis + " ms.");
+    }
+
+    // Collects claim files, files in a folder are listed before its sub folders
+    void collectClaimFiles(File[] files, List<File> claimFiles) {
+        for (File file : files) {
             if (file.isFile()) {
-                this.loadClaimFile(file, worldProperties);
+                claimFiles.add(file);
             }
         }
-        for (int i = 0; i < files.length; i++) {
-            File file = files[i];
+        for (File file : files) {
             if (file.isDirectory()) {
-                this.loadClaimData(file.listFiles(), worldProperties);
+                final File[] children = file.listFiles();
+                if (children != null) {
+                    this.collectClaimFiles(children, claimFiles);
+                }
             }
         }
     }
 
-    void loadClaimFile(File file, WorldProperties worldProperties) {
-        if (file.isFile()) // avoids folders
-        {
+    private List<ClaimFileRecord> parseClaimFiles(List<File> claimFiles, UUID worldUniqueId, Path claimDataFolder,
+            Map<UUID, ClaimIndexSnapshot.Entry> claimIndex) throws Exception {
+        final List<Callable<ClaimFileRecord>> tasks = new ArrayList<>(claimFiles.size());
+        for (File claimFile : claimFiles) {
             // the filename is the claim ID. try to parse it
-            UUID claimId;
+            final String fileName = claimFile.getName();
+            // UUID's should always be 36 in length
+            if (fileName.length() != 36) {
+                continue;
+            }
 
+            final UUID claimId;
             try {
-                final String fileName = file.getName();
-                // UUID's should always be 36 in length
-                if (fileName.length() != 36) {
-                    return;
-                }
-
                 claimId = UUID.fromString(fileName);
             } catch (Exception e) {
-                GriefPreventionPlugin.instance.getLogger().error("Could not read claim file " + file.getAbsolutePath());
-                return;
+                GriefPreventionPlugin.instance.getLogger().error("Could not read claim file " + claimFile.getAbsolutePath());
+                continue;
             }
+            final ClaimIndexSnapshot.Entry indexEntry = claimIndex.get(claimId);
+            tasks.add(() -> this.parseClaimFile(claimFile, claimId, worldUniqueId, claimDataFolder, indexEntry));
+        }
 
-            try {
-               this.loadClaim(file, worldProperties, claimId);
+        final List<ClaimFileRecord> records = new ArrayList<>(tasks.size());
+        final ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        try {
+            for (Future<ClaimFileRecord> future : pool.invokeAll(tasks)) {
+                records.add(future.get());
             }
+        } finally {
+            pool.shutdown();
+        }
+        return records;
+    }
 
-            // if there's any problem with the file's content, log an error message and skip it
-            catch (Exception e) {
-                if (e.getMessage() != null && e.getMessage().contains("World not found")) {
-                    file.delete();
-                } else {
-                    StringWriter errors = new StringWriter();
-                    e.printStackTrace(new PrintWriter(errors));
-                    GriefPreventionPlugin.addLogEntry(file.getName() + " " + errors.toString(), CustomLogEntryTypes.Exception);
+    private ClaimFileRecord parseClaimFile(File claimFile, UUID claimId, UUID worldUniqueId, Path claimDataFolder,
+            @Nullable ClaimIndexSnapshot.Entry indexEntry) {
+        final ClaimFileRecord record = new ClaimFileRecord(claimFile, claimId);
+        if (indexEntry != null) {
+            try {
+                final BasicFileAttributes attributes = Files.readAttributes(claimFile.toPath(), BasicFileAttributes.class);
+                if (indexEntry.matches(claimDataFolder.relativize(claimFile.toPath()).toString(), attributes)) {
+                    // the file is unchanged since the snapshot, it is read on first access instead
+                    record.indexEntry = indexEntry;
+                    record.parentId = indexEntry.parentId;
+                    return record;
                 }
+            } catch (IOException e) {
+                // parse the file instead
             }
         }
+        try {
+            record.claimStorage = this.loadClaimStorage(claimFile.toPath(), worldUniqueId);
+            record.parentId = record.claimStorage.getConfig().getParent().orElse(null);
+        } catch (Exception e) {
+            record.error = e;
+        }
+        return record;
     }
 
-    void loadPlayerData(WorldProperties worldProperties, File[] files) throws Exception {
+    void linkClaimRecords(List<ClaimFileRecord> records, WorldProperties worldProperties) {
+        final Map<UUID, ClaimFileRecord> recordMap = Maps.newHashMapWithExpectedSize(records.size());
+        for (ClaimFileRecord record : records) {
+            recordMap.put(record.claimId, record);
+        }
+        for (ClaimFileRecord record : records) {
+            this.linkClaimRecord(record, recordMap, worldProperties);
+        }
+    }
+
+    private void linkClaimRecord(ClaimFileRecord record, Map<UUID, ClaimFileRecord> recordMap, WorldProperties worldProperties) {
+        if (record.linked) {
+            return;
+        }
+
+        // mark first so a corrupted parent cycle cannot recurse forever
+        record.linked = true;
+        if (record.parentId != null) {
+            final ClaimFileRecord parentRecord = recordMap.get(record.parentId);
+            if (parentRecord != null) {
+                this.linkClaimRecord(parentRecord, recordMap, worldProperties);
+            }
+        }
+
+        try {
+            if (record.error != null) {
+                throw record.error;
+            }
+            if (record.indexEntry != null) {
+                this.loadIndexedClaim(record.claimFile, record.indexEntry, worldProperties);
+            } else {
+                this.loadClaim(record.claimFile, record.claimStorage, worldProperties, record.claimId);
+            }
+        } catch (Exception e) {
+            this.handleClaimLoadError(record.claimFile, e);
+        }
+    }
+
+    // if there's any problem with the file's content, log an error message and skip it
+    private void handleClaimLoadError(File claimFile, Exception e) {
+        if (e.getMessage() != null && e.getMessage().contains("World not found")) {
+            claimFile.delete();
+        } else {
+            StringWriter errors = new StringWriter();
+            e.printStackTrace(new PrintWriter(errors));
+            GriefPreventionPlugin.addLogEntry(claimFile.getName() + " " + errors.toString(), CustomLogEntryTypes.Exception);
+        }
+    }
+
+    // load all player data if migrating
+    static boolean isMigratingPlayerData() {
         final boolean resetMigration = GriefPreventionPlugin.getGlobalConfig().getConfig().playerdata.resetMigrations;
         final boolean resetClaimData = GriefPreventionPlugin.getGlobalConfig().getConfig().playerdata.resetAccruedClaimBlocks;
         final int migration2dRate = GriefPreventionPlugin.getGlobalConfig().getConfig().playerdata.migrateAreaRate;
         final int migration3dRate = GriefPreventionPlugin.getGlobalConfig().getConfig().playerdata.migrateVolumeRate;
-        boolean migrate = false;
-        if (resetMigration || resetClaimData || (migration2dRate > -1 && GriefPreventionPlugin.CLAIM_BLOCK_SYSTEM == ClaimBlockSystem.AREA) 
-                || (migration3dRate > -1 && GriefPreventionPlugin.CLAIM_BLOCK_SYSTEM == ClaimBlockSystem.VOLUME)) {
-            // load all player data if migrating
-            migrate = true;
-        }
+        return resetMigration || resetClaimData || (migration2dRate > -1 && GriefPreventionPlugin.CLAIM_BLOCK_SYSTEM == ClaimBlockSystem.AREA)
+                || (migration3dRate > -1 && GriefPreventionPlugin.CLAIM_BLOCK_SYSTEM == ClaimBlockSystem.VOLUME);
+    }
+
+    void loadPlayerData(WorldProperties worldProperties, File[] files) throws Exception {
+        final boolean migrate = isMigratingPlayerData();
         for (int i = 0; i < files.length; i++) {
             if (files[i].isFile()) // avoids folders
             {
@@ -329,17 +500,46 @@ void loadPlayerData(WorldProperties worldProperties, File[] files) throws Except
 
     public GPClaim loadClaim(File claimFile, WorldProperties worldProperties, UUID claimId)
             throws Exception {
-        GPClaim claim;
+        return this.loadClaim(claimFile, this.loadClaimStorage(claimFile.toPath(), worldProperties.getUniqueId()), worldProperties, claimId);
+    }
 
-        boolean isTown = claimFile.toPath().getParent().endsWith("town");
-        boolean writeToStorage = false;
-        ClaimStorageData claimStorage = null;
-        if (isTown) {
-            claimStorage = new TownStorageData(claimFile.toPath(), worldProperties.getUniqueId());
-        } else {
-            claimStorage = new ClaimStorageData(claimFile.toPath(), worldProperties.getUniqueId());
+    // Loads the storage of a claim file, converting files written in the other claim format
+    ClaimStorageData loadClaimStorage(Path path, UUID worldUniqueId) throws IOException {
+        if (!ClaimBinaryFormat.isBinary(path)) {
+            return loadHoconClaimStorage(path, worldUniqueId);
         }
 
+        final long binarySize = Files.size(path);
+        final ClaimDataConfig claimData = ClaimBinaryFormat.read(path);
+        // serialize through a scratch file and swap the result in
+        final Path scratchPath = path.resolveSibling(path.getFileName() + ".convert");
+        StorageWriter.writeAtomic(path, new ClaimStorageData(scratchPath, worldUniqueId, claimData).serialize());
+        Files.deleteIfExists(scratchPath);
+        this.recordClaimConversion(binarySize, Files.size(path));
+        return new ClaimStorageData(path, worldUniqueId, claimData);
+    }
+
+    static ClaimStorageData loadHoconClaimStorage(Path path, UUID worldUniqueId) {
+        if (path.getParent().endsWith("town")) {
+            return new TownStorageData(path, worldUniqueId);
+        }
+        return new ClaimStorageData(path, worldUniqueId);
+    }
+
+    void recordClaimConversion(long sizeBefore, long sizeAfter) {
+        this.convertedClaimCount.incrementAndGet();
+        this.convertedBytesBefore.addAndGet(sizeBefore);
+        this.convertedBytesAfter.addAndGet(sizeAfter);
+    }
+
+    String getClaimFormatName() {
+        return "HOCON";
+    }
+
+    private GPClaim loadClaim(File claimFile, ClaimStorageData claimStorage, WorldProperties worldProperties, UUID claimId)
+            throws Exception {
+        GPClaim claim;
+        boolean writeToStorage = false;
         final ClaimType type = claimStorage.getConfig().getType();
         final UUID parent = claimStorage.getConfig().getParent().orElse(null);
         final String fileName = claimFile.getName();
@@ -353,7 +553,7 @@ public GPClaim loadClaim(File claimFile, WorldProperties worldProperties, UUID c
             Files.createDirectories(newPath);
             Files.move(claimStorage.filePath, newPath.resolve(fileName));
             claimStorage.filePath = newPath.resolve(fileName);
-            claimStorage = new ClaimStorageData(claimStorage.filePath, worldProperties.getUniqueId());
+            claimStorage = this.loadClaimStorage(claimStorage.filePath, worldProperties.getUniqueId());
         }
 
         // identify world the claim is in
@@ -393,6 +593,7 @@ public GPClaim loadClaim(File claimFile, WorldProperties worldProperties, UUID c
         claim = new GPClaim(lesserBoundaryCorner, greaterBoundaryCorner, claimId, claimStorage.getConfig().getType(), ownerID, cuboid);
         claim.setClaimStorage(claimStorage);
         claim.setClaimData(claimStorage.getConfig());
+        claim.setClaimStorageLoader(this.createClaimStorageLoader(worldProperties.getUniqueId()));
         final GPClaimManager claimManager = this.getClaimWorldManager(worldProperties);
 
         // add parent claim first
@@ -415,6 +616,55 @@ public GPClaim loadClaim(File claimFile, WorldProperties worldProperties, UUID c
         return claim;
     }
 
+    // Reads released claim data back from the claim file once pending writes have reached it
+    private Function<Path, ClaimStorageData> createClaimStorageLoader(UUID worldUniqueId) {
+        return path -> {
+            this.getStorageWriter().awaitFlush();
+            try {
+                return this.loadClaimStorage(path, worldUniqueId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    // Places a claim from its claim index entry, the claim file is read on first access to the claim data
+    private GPClaim loadIndexedClaim(File claimFile, ClaimIndexSnapshot.Entry entry, WorldProperties worldProperties) throws Exception {
+        final World world = Sponge.getServer().loadWorld(worldProperties).orElse(null);
+        if (world == null) {
+            throw new Exception("World [Name: " + worldProperties.getWorldName() + "][UUID: " + worldProperties.getUniqueId().toString() + "] is not loaded.");
+        }
+
+        final GPClaim claim = new GPClaim(new Location<World>(world, entry.lesserCorner), new Location<World>(world, entry.greaterCorner),
+                entry.claimId, entry.type, entry.ownerUniqueId, entry.cuboid);
+        claim.setClaimStorageLoader(this.createClaimStorageLoader(worldProperties.getUniqueId()));
+        claim.deferClaimStorage(claimFile.toPath());
+
+        final GPClaimManager claimManager = this.getClaimWorldManager(worldProperties);
+        if (entry.parentId != null) {
+            claim.parent = (GPClaim) claimManager.getClaimByUUID(entry.parentId).orElse(null);
+        }
+        claimManager.addClaim(claim, false);
+        this.claimLoadCount++;
+        return claim;
+    }
+
+    static final class ClaimFileRecord {
+
+        private final File claimFile;
+        private final UUID claimId;
+        ClaimStorageData claimStorage;
+        ClaimIndexSnapshot.Entry indexEntry;
+        UUID parentId;
+        Exception error;
+        private boolean linked;
+
+        ClaimFileRecord(File claimFile, UUID claimId) {
+            this.claimFile = claimFile;
+            this.claimId = claimId;
+        }
+    }
+
     @Override
     public void writeClaimToStorage(GPClaim claim) {
         try {
@@ -431,11 +681,27 @@ public void writeClaimToStorage(GPClaim claim) {
         }
     }
 
+    @Override
+    public void moveClaimStorage(GPClaim claim, Path newPath) throws IOException {
+        this.getStorageWriter().checkpoint();
+        Files.createDirectories(newPath.getParent());
+        Files.move(claim.getClaimStorage().filePath, newPath);
+        claim.setClaimStorage(this.createClaimStorage(newPath, claim.getWorldUniqueId(), (ClaimDataConfig) claim.getInternalClaimData()));
+    }
+
     // deletes a claim from the file system
     @Override
     public void deleteClaimFromSecondaryStorage(GPClaim claim) {
+        if (this.getStorageWriter().isJournaling()) {
+            this.getStorageWriter().deleteLater(claim.getClaimStorage());
+            return;
+        }
+
+        this.getStorageWriter().discard((ClaimDataConfig) claim.getInternalClaimData());
+        this.getStorageWriter().awaitFlush();
         try {
-            Files.delete(claim.getClaimStorage().filePath);
+            // a claim saved since the last group commit may not have a file yet
+            Files.deleteIfExists(claim.getClaimStorage().filePath);
         } catch (IOException e) {
             e.printStackTrace();
             GriefPreventionPlugin.addLogEntry("Error: Unable to delete claim file \"" + claim.getClaimStorage().filePath + "\".");
@@ -110,6 +110,14 @@ public static void populateFlagStatus() {
         PORTAL_USE  = GriefPreventionPlugin.getGlobalConfig().getConfig().modules.isProtectionModuleEnabled(ClaimFlag.PORTAL_USE.toString());
         PROJECTILE_IMPACT_BLOCK  = GriefPreventionPlugin.getGlobalConfig().getConfig().modules.isProtectionModuleEnabled(ClaimFlag.PROJECTILE_IMPACT_BLOCK.toString());
         PROJECTILE_IMPACT_ENTITY  = GriefPreventionPlugin.getGlobalConfig().getConfig().modules.isProtectionModuleEnabled(ClaimFlag.PROJECTILE_IMPACT_ENTITY.toString());
+        requestListenerUpdate();
+    }
+
+    // Flag listeners are registered on demand, see FlagListenerRegistry
+    public static void requestListenerUpdate() {
+        if (GriefPreventionPlugin.instance != null && GriefPreventionPlugin.instance.flagListenerRegistry != null) {
+            GriefPreventionPlugin.instance.flagListenerRegistry.requestUpdate();
+        }
     }
 
     public static String getEntitySpawnFlag(ClaimFlag flag, String target) {
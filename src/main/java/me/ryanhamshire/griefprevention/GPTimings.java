@@ -71,7 +71,10 @@ public class GPTimings {
     public static final Timing PROJECTILE_IMPACT_BLOCK_EVENT = Timings.of(GriefPreventionPlugin.instance.pluginContainer, "onProjectileImpactBlock");
     public static final Timing PROJECTILE_IMPACT_ENTITY_EVENT = Timings.of(GriefPreventionPlugin.instance.pluginContainer, "onProjectileImpactEntity");
     public static final Timing EXPLOSION_EVENT = Timings.of(GriefPreventionPlugin.instance.pluginContainer, "onExplosion");
+    public static final Timing CLAIM_SAVE = Timings.of(GriefPreventionPlugin.instance.pluginContainer, "claimSave");
     public static final Timing CLAIM_GETCLAIM = Timings.of(GriefPreventionPlugin.instance.pluginContainer, "getClaimAt");
+    public static final Timing CHUNK_LOAD_EVENT = Timings.of(GriefPreventionPlugin.instance.pluginContainer, "onChunkLoad");
+    public static final Timing CHUNK_UNLOAD_EVENT = Timings.of(GriefPreventionPlugin.instance.pluginContainer, "onChunkUnload");
     public static final Timing WORLD_LOAD_EVENT = Timings.of(GriefPreventionPlugin.instance.pluginContainer, "onWorldSave");
     public static final Timing WORLD_SAVE_EVENT = Timings.of(GriefPreventionPlugin.instance.pluginContainer, "onWorldSave");
     public static final Timing WORLD_UNLOAD_EVENT = Timings.of(GriefPreventionPlugin.instance.pluginContainer, "onWorldSave");
@@ -115,11 +115,16 @@
 import me.ryanhamshire.griefprevention.configuration.GriefPreventionConfig.Type;
 import me.ryanhamshire.griefprevention.configuration.MessageDataConfig;
 import me.ryanhamshire.griefprevention.configuration.MessageStorage;
+import me.ryanhamshire.griefprevention.configuration.category.DatabaseCategory;
 import me.ryanhamshire.griefprevention.configuration.type.DimensionConfig;
 import me.ryanhamshire.griefprevention.configuration.type.GlobalConfig;
 import me.ryanhamshire.griefprevention.configuration.type.WorldConfig;
+import me.ryanhamshire.griefprevention.event.GPChangeClaimEvent;
+import me.ryanhamshire.griefprevention.event.GPFlagClaimEvent;
+import me.ryanhamshire.griefprevention.event.GPTrustClaimEvent;
 import me.ryanhamshire.griefprevention.listener.BlockEventHandler;
 import me.ryanhamshire.griefprevention.listener.EntityEventHandler;
+import me.ryanhamshire.griefprevention.listener.FlagListenerRegistry;
 import me.ryanhamshire.griefprevention.listener.MCClansEventHandler;
 import me.ryanhamshire.griefprevention.listener.NucleusEventHandler;
 import me.ryanhamshire.griefprevention.listener.PlayerEventHandler;
@@ -135,7 +140,6 @@
 import me.ryanhamshire.griefprevention.provider.WorldEditApiProvider;
 import me.ryanhamshire.griefprevention.task.CleanupUnusedClaimsTask;
 import me.ryanhamshire.griefprevention.task.DeliverClaimBlocksTask;
-import me.ryanhamshire.griefprevention.task.IgnoreLoaderThread;
 import me.ryanhamshire.griefprevention.task.PvPImmunityValidationTask;
 import me.ryanhamshire.griefprevention.task.SendPlayerMessageTask;
 import me.ryanhamshire.griefprevention.util.BlockUtils;
@@ -172,6 +176,7 @@
 import org.spongepowered.api.event.game.state.GameAboutToStartServerEvent;
 import org.spongepowered.api.event.game.state.GamePreInitializationEvent;
 import org.spongepowered.api.event.game.state.GameStartedServerEvent;
+import org.spongepowered.api.event.game.state.GameStoppedServerEvent;
 import org.spongepowered.api.event.service.ChangeServiceProviderEvent;
 import org.spongepowered.api.item.ItemType;
 import org.spongepowered.api.item.ItemTypes;
@@ -202,7 +207,6 @@
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -267,6 +271,8 @@ public class GriefPreventionPlugin {
 
     public Optional<EconomyService> economyService;
     public Executor executor;
+    // registers flag listeners only while a rule can deny them
+    public FlagListenerRegistry flagListenerRegistry;
 
     public boolean permPluginInstalled = false;
 
@@ -381,9 +387,25 @@ public static void addLogEntry(String entry) {
     public void onChangeServiceProvider(ChangeServiceProviderEvent event) {
         if (event.getNewProvider() instanceof PermissionService && this.validateSpongeVersion()) {
             ((PermissionService) event.getNewProvider()).registerContextCalculator(new ClaimContextCalculator());
+            GPPermissionHandler.invalidateDecisionCache();
         }
     }
 
+    @Listener(order = Order.POST)
+    public void onClaimFlagChange(GPFlagClaimEvent event) {
+        GPPermissionHandler.invalidateDecisionCache();
+    }
+
+    @Listener(order = Order.POST)
+    public void onClaimTrustChange(GPTrustClaimEvent event) {
+        GPPermissionHandler.invalidateClaimDecisionCache();
+    }
+
+    @Listener(order = Order.POST)
+    public void onClaimChange(GPChangeClaimEvent event) {
+        GPPermissionHandler.invalidateClaimDecisionCache();
+    }
+
     private boolean validateSpongeVersion() {
         if (Sponge.getPlatform().getContainer(Component.IMPLEMENTATION).getName().equals("SpongeForge")) {
             if (Sponge.getPlatform().getContainer(Component.IMPLEMENTATION).getVersion().isPresent()) {
@@ -742,21 +764,33 @@ public void onServerAboutToStart(GameAboutToStartServerEvent event) {
 
         if (this.dataStore == null) {
             try {
-                this.dataStore = new FlatFileDataStore();
+                final DatabaseCategory databaseConfig = GriefPreventionPlugin.getGlobalConfig().getConfig().database;
+                if (!databaseConfig.dbURL.isEmpty()) {
+                    this.dataStore = new DatabaseDataStore(databaseConfig.dbURL, databaseConfig.dbUsername, databaseConfig.dbPassword);
+                } else if (GriefPreventionPlugin.getGlobalConfig().getConfig().storage.claimDataFormat.equalsIgnoreCase("binary")) {
+                    this.dataStore = new BinaryDataStore();
+                } else {
+                    this.dataStore = new FlatFileDataStore();
+                }
                 this.dataStore.initialize();
             } catch (Exception e) {
-                this.getLogger().info("Unable to initialize the file system data store.  Details:");
+                this.getLogger().info("Unable to initialize the data store.  Details:");
                 this.getLogger().info(e.getMessage());
                 e.printStackTrace();
                 return;
             }
         }
 
-        String dataMode = (this.dataStore instanceof FlatFileDataStore) ? "(File Mode)" : "(Database Mode)";
-        Sponge.getEventManager().registerListeners(this, new BlockEventHandler(dataStore));
-        Sponge.getEventManager().registerListeners(this, new PlayerEventHandler(dataStore, this));
-        Sponge.getEventManager().registerListeners(this, new EntityEventHandler(dataStore));
+        String dataMode = (this.dataStore instanceof DatabaseDataStore) ? "(Database Mode)" : "(File Mode)";
+        final BlockEventHandler blockEventHandler = new BlockEventHandler(dataStore);
+        final PlayerEventHandler playerEventHandler = new PlayerEventHandler(dataStore, this);
+        final EntityEventHandler entityEventHandler = new EntityEventHandler(dataStore);
+        Sponge.getEventManager().registerListeners(this, blockEventHandler);
+        Sponge.getEventManager().registerListeners(this, playerEventHandler);
+        Sponge.getEventManager().registerListeners(this, entityEventHandler);
         Sponge.getEventManager().registerListeners(this, new WorldEventHandler());
+        this.flagListenerRegistry = new FlagListenerRegistry(this, blockEventHandler, entityEventHandler, playerEventHandler);
+        this.flagListenerRegistry.start();
         if (this.nucleusApiProvider != null) {
             Sponge.getEventManager().registerListeners(this, new NucleusEventHandler());
         }
@@ -786,13 +820,6 @@ public void onServerAboutToStart(GameAboutToStartServerEvent event) {
             GriefPreventionPlugin.addLogEntry("Ready to buy/sell claim blocks!");
         }
 
-        // load ignore lists for any already-online players
-        Collection<Player> players = Sponge.getGame().getServer().getOnlinePlayers();
-        for (Player player : players) {
-            new IgnoreLoaderThread(player.getUniqueId(), this.dataStore.getOrCreatePlayerData(player.getWorld(), player.getUniqueId()).ignoredPlayers)
-                    .start();
-        }
-
         // TODO - rewrite /gp command
         //Sponge.getGame().getCommandManager().register(this, CommandGriefPrevention.getCommand().getCommandSpec(),
         //CommandGriefPrevention.getCommand().getAliases());
@@ -800,6 +827,13 @@ public void onServerAboutToStart(GameAboutToStartServerEvent event) {
         this.dataStore.loadClaimTemplates();
     }
 
+    @Listener
+    public void onServerStopped(GameStoppedServerEvent event) {
+        if (this.dataStore != null) {
+            this.dataStore.shutdownStorageWriter();
+        }
+    }
+
     @Listener
     public void onServerStarted(GameStartedServerEvent event) {
         if (!validateSpongeVersion()) {
@@ -1800,10 +1834,8 @@ public void setIgnoreStatus(World world, User ignorer, User ignoree, IgnoreMode
         }
 
         playerData.ignoreListChanged = true;
-        if (!ignorer.isOnline()) {
-            this.dataStore.asyncSaveGlobalPlayerData(ignorer.getUniqueId(), playerData);
-            this.dataStore.clearCachedPlayerData(world.getProperties(), ignorer.getUniqueId());
-        }
+        // offline data stays cached until it is saved, the player data cache evicts it afterwards
+        this.dataStore.asyncSaveGlobalPlayerData(ignorer.getUniqueId(), playerData);
     }
 
     public enum IgnoreMode {
@@ -0,0 +1,121 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention;
+
+import org.spongepowered.api.Sponge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+// Bounded cache of player data.
+// Online players are pinned. Everyone else is kept in access order and evict() drops the
+// least recently used offline entries beyond the limit. Callers must flush dirty player data
+// before evicting so nothing is lost.
+public final class PlayerDataCache {
+
+    private final Map<UUID, GPPlayerData> entries = new ConcurrentHashMap<>();
+    // guarded by itself, values are unused
+    private final LinkedHashMap<UUID, Boolean> accessOrder = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<UUID, GPPlayerData> view = Collections.unmodifiableMap(this.entries);
+
+    @Nullable
+    public GPPlayerData get(UUID playerUniqueId) {
+        final GPPlayerData playerData = this.entries.get(playerUniqueId);
+        if (playerData != null) {
+            this.touch(playerUniqueId);
+        }
+        return playerData;
+    }
+
+    // Returns the entry that was already cached, or null if the given data was added
+    @Nullable
+    public GPPlayerData putIfAbsent(UUID playerUniqueId, GPPlayerData playerData) {
+        final GPPlayerData existing = this.entries.putIfAbsent(playerUniqueId, playerData);
+        this.touch(playerUniqueId);
+        return existing;
+    }
+
+    @Nullable
+    public GPPlayerData remove(UUID playerUniqueId) {
+        synchronized (this.accessOrder) {
+            this.accessOrder.remove(playerUniqueId);
+        }
+        return this.entries.remove(playerUniqueId);
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    // Read only view of all cached entries
+    public Map<UUID, GPPlayerData> asMap() {
+        return this.view;
+    }
+
+    private void touch(UUID playerUniqueId) {
+        synchronized (this.accessOrder) {
+            this.accessOrder.put(playerUniqueId, Boolean.TRUE);
+        }
+    }
+
+    // Must be called on the main thread, the online check is used to pin players
+    public List<GPPlayerData> evict(int maxOfflineEntries) {
+        final List<GPPlayerData> evicted = new ArrayList<>();
+        synchronized (this.accessOrder) {
+            final List<UUID> offlinePlayers = new ArrayList<>();
+            for (UUID playerUniqueId : this.accessOrder.keySet()) {
+                if (!Sponge.getServer().getPlayer(playerUniqueId).isPresent()) {
+                    offlinePlayers.add(playerUniqueId);
+                }
+            }
+
+            // eldest entries come first
+            for (int i = 0; i < offlinePlayers.size() - Math.max(0, maxOfflineEntries); i++) {
+                final UUID playerUniqueId = offlinePlayers.get(i);
+                this.accessOrder.remove(playerUniqueId);
+                final GPPlayerData playerData = this.entries.remove(playerUniqueId);
+                if (playerData != null) {
+                    playerData.onEvict();
+                    evicted.add(playerData);
+                }
+            }
+        }
+        return evicted;
+    }
+
+    public void clear() {
+        synchronized (this.accessOrder) {
+            this.accessOrder.clear();
+        }
+        this.entries.clear();
+    }
+}
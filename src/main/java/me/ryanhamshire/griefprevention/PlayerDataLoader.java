@@ -0,0 +1,154 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention;
+
+import me.ryanhamshire.griefprevention.configuration.PlayerStorageData;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+// Loads player storage on a single background thread.
+// Concurrent requests for the same player file share one load, so a caller that blocks
+// on a load already started elsewhere only waits for the remaining work.
+// Player data can also be prefetched while a client is still authenticating. The prepared
+// data is held until the player logs in, or dropped if they never do.
+public final class PlayerDataLoader {
+
+    private static final long PREFETCH_EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Map<Path, PendingLoad> pendingLoads = new ConcurrentHashMap<>();
+    private final Map<UUID, Prefetch> prefetches = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "GriefPrevention Player Data Loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CompletableFuture<PlayerStorageData> load(Path path, Supplier<PlayerStorageData> storageFactory) {
+        final PendingLoad load = new PendingLoad(storageFactory);
+        final PendingLoad pending = this.register(path, load);
+        if (pending == load) {
+            this.executor.execute(load);
+        }
+        return pending.future;
+    }
+
+    // Loads on the calling thread so it never queues behind prefetch work.
+    // A queued load of the same file is taken over, one the loader thread already started is waited for.
+    public PlayerStorageData loadNow(Path path, Supplier<PlayerStorageData> storageFactory) {
+        final PendingLoad pending = this.register(path, new PendingLoad(storageFactory));
+        pending.run();
+        return pending.future.join();
+    }
+
+    private PendingLoad register(Path path, PendingLoad load) {
+        final PendingLoad pending = this.pendingLoads.putIfAbsent(path, load);
+        if (pending != null) {
+            return pending;
+        }
+        load.future.whenComplete((storage, error) -> this.pendingLoads.remove(path, load));
+        return load;
+    }
+
+    // The world is null when player data is global
+    public void prefetch(UUID playerUniqueId, @Nullable UUID worldUniqueId, CompletableFuture<PlayerStorageData> storage,
+            Function<PlayerStorageData, GPPlayerData> playerDataFactory) {
+        final long now = System.currentTimeMillis();
+        this.prefetches.values().removeIf(prefetch -> now - prefetch.createdMillis > PREFETCH_EXPIRY_MILLIS);
+        this.prefetches.put(playerUniqueId, new Prefetch(worldUniqueId, now, storage.thenApplyAsync(playerDataFactory, this.executor)));
+    }
+
+    // Returns the prefetched data for the player.
+    // Returns null if nothing usable was prefetched so the caller should load normally. Unfinished prefetches
+    // are dropped as well, waiting for one could queue the caller behind other players' prefetches.
+    @Nullable
+    public GPPlayerData takePrefetched(UUID playerUniqueId, @Nullable UUID worldUniqueId) {
+        final Prefetch prefetch = this.prefetches.remove(playerUniqueId);
+        if (prefetch == null || !Objects.equals(prefetch.worldUniqueId, worldUniqueId)
+                || System.currentTimeMillis() - prefetch.createdMillis > PREFETCH_EXPIRY_MILLIS || !prefetch.playerData.isDone()) {
+            return null;
+        }
+        // a failed prefetch falls back to a regular load, which reports the error
+        return prefetch.playerData.handle((playerData, error) -> playerData).join();
+    }
+
+    public void discardPrefetched(UUID playerUniqueId) {
+        this.prefetches.remove(playerUniqueId);
+    }
+
+    public void shutdown() {
+        this.prefetches.clear();
+        this.executor.shutdownNow();
+    }
+
+    private static final class PendingLoad implements Runnable {
+
+        private final CompletableFuture<PlayerStorageData> future = new CompletableFuture<>();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final Supplier<PlayerStorageData> storageFactory;
+
+        private PendingLoad(Supplier<PlayerStorageData> storageFactory) {
+            this.storageFactory = storageFactory;
+        }
+
+        // Runs at most once, whichever of the loader thread or a blocking caller gets here first
+        @Override
+        public void run() {
+            if (!this.started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                this.future.complete(this.storageFactory.get());
+            } catch (Throwable t) {
+                this.future.completeExceptionally(t);
+            }
+        }
+    }
+
+    private static final class Prefetch {
+
+        private final UUID worldUniqueId;
+        private final long createdMillis;
+        private final CompletableFuture<GPPlayerData> playerData;
+
+        private Prefetch(@Nullable UUID worldUniqueId, long createdMillis, CompletableFuture<GPPlayerData> playerData) {
+            this.worldUniqueId = worldUniqueId;
+            this.createdMillis = createdMillis;
+            this.playerData = playerData;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Reads and writes small line based files such as ignore lists and soft mutes on one background thread.
+// Writes to the same file are coalesced so only the latest queued content is written, and reads
+// of a file with a queued write return that content without touching the disk.
+public final class PlayerFileService {
+
+    private final Map<Path, String> pendingWrites = new ConcurrentHashMap<>();
+    private final Map<Path, CompletableFuture<List<String>>> pendingReads = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "GriefPrevention Player File I/O");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Missing files read as empty
+    public CompletableFuture<List<String>> readLines(Path path) {
+        final String pendingContent = this.pendingWrites.get(path);
+        if (pendingContent != null) {
+            return CompletableFuture.completedFuture(splitLines(pendingContent));
+        }
+        final CompletableFuture<List<String>> future =
+                this.pendingReads.computeIfAbsent(path, key -> CompletableFuture.supplyAsync(() -> this.read(key), this.executor));
+        // registered after the map call, an already completed future runs the removal immediately
+        future.whenComplete((lines, error) -> this.pendingReads.remove(path, future));
+        return future;
+    }
+
+    public void writeLines(Path path, List<String> lines) {
+        if (this.pendingWrites.put(path, String.join("\n", lines)) == null) {
+            this.executor.execute(() -> this.writePending(path));
+        }
+    }
+
+    // Waits for all queued writes, no more files can be read or written afterwards
+    public void shutdown() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                GriefPreventionPlugin.instance.getLogger().error("Timed out waiting for player files to be written.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<String> read(Path path) {
+        if (Files.notExists(path)) {
+            return Collections.emptyList();
+        }
+        try {
+            return Files.readAllLines(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            GriefPreventionPlugin.instance.getLogger().error("Failed to read " + path, e);
+            return Collections.emptyList();
+        }
+    }
+
+    private void writePending(Path path) {
+        // later writes queued in the meantime replaced the content, write only the latest
+        final String content = this.pendingWrites.remove(path);
+        if (content == null) {
+            return;
+        }
+        try {
+            StorageWriter.writeAtomic(path, content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            GriefPreventionPlugin.instance.getLogger().error("Failed to write " + path, e);
+        }
+    }
+
+    private static List<String> splitLines(String content) {
+        return content.isEmpty() ? Collections.emptyList() : new ArrayList<>(Arrays.asList(content.split("\n")));
+    }
+}
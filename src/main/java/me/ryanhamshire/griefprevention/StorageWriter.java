@@ -0,0 +1,395 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention;
+
+import me.ryanhamshire.griefprevention.configuration.ClaimDataConfig;
+import me.ryanhamshire.griefprevention.configuration.ClaimStorageData;
+import me.ryanhamshire.griefprevention.configuration.PlayerStorageData;
+import me.ryanhamshire.griefprevention.configuration.SqlClaimStorageData;
+import me.ryanhamshire.griefprevention.configuration.SqlPlayerStorageData;
+import org.spongepowered.api.Sponge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+// Write-behind persistence for claim and player data.
+// Mutations mark claim data dirty. A flush serializes the dirty entries on the calling
+// thread, so the snapshot is consistent, and writes the batch on a single writer thread.
+// Anything touching claim files directly must wait for the in-flight flush first.
+// Explicit claim saves are grouped into one commit per GROUP_COMMIT_TICKS.
+//
+// In journal mode claim snapshots are appended to a per world ClaimJournal instead of
+// rewriting claim files. The journal is compacted on the writer thread once it grows past
+// its size limit.
+//
+// Storage backed by a ClaimDatabase is collected into one batch per database and written
+// in a single transaction.
+public final class StorageWriter {
+
+    private static final long GROUP_COMMIT_TICKS = 20;
+
+    private final boolean journaling;
+    private final long maxJournalSize;
+    private final Map<Path, ClaimJournal> journals = new ConcurrentHashMap<>();
+    private final List<ClaimStorageData> pendingDeletes = new ArrayList<>();
+    private final Set<PlayerStorageData> pendingPlayers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean commitScheduled = new AtomicBoolean();
+    private final Set<ClaimDataConfig> dirtyClaims = ConcurrentHashMap.newKeySet();
+    // Player data file -> batch still writing it, lets a player load wait for its own write only
+    private final Map<Path, Future<?>> playerWrites = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "GriefPrevention Storage Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Future<?> inFlight = CompletableFuture.completedFuture(null);
+
+    public StorageWriter(boolean journaling, long maxJournalSize) {
+        this.journaling = journaling;
+        this.maxJournalSize = maxJournalSize;
+    }
+
+    public boolean isJournaling() {
+        return this.journaling;
+    }
+
+    public void markDirty(ClaimDataConfig claimData) {
+        this.dirtyClaims.add(claimData);
+    }
+
+    // Used when a claim is deleted so a pending snapshot cannot recreate its file
+    public void discard(ClaimDataConfig claimData) {
+        this.dirtyClaims.remove(claimData);
+    }
+
+    // Journal and database mode, records the claim for the next group commit instead of writing it
+    public void commitLater(ClaimDataConfig claimData) {
+        claimData.setRequiresSave(true);
+        this.scheduleCommit();
+    }
+
+    // Journal and database mode, removes the claim with the next group commit
+    public void deleteLater(ClaimStorageData claimStorage) {
+        this.discard(claimStorage.getConfig());
+        synchronized (this.pendingDeletes) {
+            this.pendingDeletes.add(claimStorage);
+        }
+        this.scheduleCommit();
+    }
+
+    // Writes the player data with the next group commit
+    public void saveLater(PlayerStorageData playerStorage) {
+        this.pendingPlayers.add(playerStorage);
+        this.scheduleCommit();
+    }
+
+    private void scheduleCommit() {
+        if (this.commitScheduled.compareAndSet(false, true)) {
+            Sponge.getScheduler().createTaskBuilder().delayTicks(GROUP_COMMIT_TICKS).execute(() -> {
+                this.commitScheduled.set(false);
+                this.flush(Collections.emptyList());
+            }).submit(GriefPreventionPlugin.instance);
+        }
+    }
+
+    public int getDirtyClaimCount() {
+        return this.dirtyClaims.size();
+    }
+
+    public Future<?> flush(Collection<GPPlayerData> playerData) {
+        final List<PendingWrite> batch = new ArrayList<>();
+        final Map<ClaimJournal, List<ClaimJournal.Record>> journalBatch = new HashMap<>();
+        final Map<ClaimDatabase, ClaimDatabase.Batch> databaseBatch = new HashMap<>();
+        synchronized (this.pendingDeletes) {
+            for (ClaimStorageData claimStorage : this.pendingDeletes) {
+                if (claimStorage instanceof SqlClaimStorageData) {
+                    final SqlClaimStorageData sqlStorage = (SqlClaimStorageData) claimStorage;
+                    databaseBatch.computeIfAbsent(sqlStorage.getDatabase(), k -> new ClaimDatabase.Batch()).deleteClaim(sqlStorage.getClaimUniqueId());
+                } else {
+                    // failed deletes go back into the queue for the next commit
+                    final Runnable onFailure = () -> {
+                        synchronized (this.pendingDeletes) {
+                            this.pendingDeletes.add(claimStorage);
+                        }
+                        this.scheduleCommit();
+                    };
+                    if (!this.journaling || !this.addJournalRecord(journalBatch, claimStorage.filePath, null, onFailure)) {
+                        batch.add(new PendingWrite(claimStorage.filePath, null, onFailure));
+                    }
+                }
+            }
+            this.pendingDeletes.clear();
+        }
+
+        final Iterator<ClaimDataConfig> iterator = this.dirtyClaims.iterator();
+        while (iterator.hasNext()) {
+            final ClaimDataConfig claimData = iterator.next();
+            iterator.remove();
+            final ClaimStorageData claimStorage = claimData.getClaimStorage();
+            if (!claimData.requiresSave() || claimStorage == null) {
+                continue;
+            }
+            try {
+                final byte[] data = claimStorage.serialize();
+                if (claimStorage instanceof SqlClaimStorageData) {
+                    final SqlClaimStorageData sqlStorage = (SqlClaimStorageData) claimStorage;
+                    databaseBatch.computeIfAbsent(sqlStorage.getDatabase(), k -> new ClaimDatabase.Batch())
+                            .writeClaim(sqlStorage.getClaimUniqueId(), claimData, data, () -> claimData.setRequiresSave(true));
+                } else if (!this.journaling || !this.addJournalRecord(journalBatch, claimStorage.filePath, data, () -> claimData.setRequiresSave(true))) {
+                    batch.add(new PendingWrite(claimStorage.filePath, data, () -> claimData.setRequiresSave(true)));
+                }
+                claimData.setRequiresSave(false);
+            } catch (IOException e) {
+                GriefPreventionPlugin.instance.getLogger().error("Failed to serialize claim data " + claimStorage.filePath, e);
+            }
+        }
+
+        final List<Path> playerPaths = new ArrayList<>();
+        final Set<PlayerStorageData> playerStorages = new LinkedHashSet<>();
+        for (GPPlayerData data : playerData) {
+            if (data.getStorageData() != null) {
+                playerStorages.add(data.getStorageData());
+            }
+        }
+        final Iterator<PlayerStorageData> pendingIterator = this.pendingPlayers.iterator();
+        while (pendingIterator.hasNext()) {
+            playerStorages.add(pendingIterator.next());
+            pendingIterator.remove();
+        }
+        for (PlayerStorageData playerStorage : playerStorages) {
+            if (playerStorage.getConfig() == null || !playerStorage.getConfig().requiresSave()) {
+                continue;
+            }
+            try {
+                final byte[] data = playerStorage.serialize();
+                final Runnable onFailure = () -> playerStorage.getConfig().setRequiresSave(true);
+                if (playerStorage instanceof SqlPlayerStorageData) {
+                    final SqlPlayerStorageData sqlStorage = (SqlPlayerStorageData) playerStorage;
+                    databaseBatch.computeIfAbsent(sqlStorage.getDatabase(), k -> new ClaimDatabase.Batch())
+                            .writePlayer(sqlStorage.getScope(), sqlStorage.getPlayerUniqueId(), data, onFailure);
+                } else {
+                    batch.add(new PendingWrite(playerStorage.filePath, data, onFailure));
+                }
+                playerPaths.add(playerStorage.filePath);
+                playerStorage.getConfig().setRequiresSave(false);
+            } catch (IOException e) {
+                GriefPreventionPlugin.instance.getLogger().error("Failed to serialize player data " + playerStorage.filePath, e);
+            }
+        }
+
+        if (batch.isEmpty() && journalBatch.isEmpty() && databaseBatch.isEmpty()) {
+            return this.inFlight;
+        }
+
+        this.inFlight = this.executor.submit(() -> {
+            for (Map.Entry<ClaimDatabase, ClaimDatabase.Batch> entry : databaseBatch.entrySet()) {
+                try {
+                    entry.getKey().write(entry.getValue());
+                } catch (SQLException e) {
+                    GriefPreventionPlugin.instance.getLogger().error("Failed to write batch to the claim database", e);
+                    // picked up again by the next flush
+                    entry.getValue().fail();
+                }
+            }
+            for (Map.Entry<ClaimJournal, List<ClaimJournal.Record>> entry : journalBatch.entrySet()) {
+                final ClaimJournal journal = entry.getKey();
+                final long journalSize;
+                try {
+                    journalSize = journal.append(entry.getValue());
+                } catch (IOException e) {
+                    GriefPreventionPlugin.instance.getLogger().error("Failed to append to claim journal in " + journal.getClaimDataFolder(), e);
+                    // picked up again by the next flush
+                    for (ClaimJournal.Record record : entry.getValue()) {
+                        record.fail();
+                    }
+                    continue;
+                }
+                if (journalSize > this.maxJournalSize) {
+                    try {
+                        journal.compact();
+                    } catch (IOException e) {
+                        // the records are safe in the journal, compaction is retried with the next append
+                        GriefPreventionPlugin.instance.getLogger().error("Failed to compact claim journal in " + journal.getClaimDataFolder(), e);
+                    }
+                }
+            }
+            for (PendingWrite write : batch) {
+                try {
+                    if (write.data == null) {
+                        Files.deleteIfExists(write.path);
+                    } else {
+                        writeAtomic(write.path, write.data);
+                    }
+                } catch (IOException e) {
+                    GriefPreventionPlugin.instance.getLogger().error("Failed to write " + write.path, e);
+                    // picked up again by the next flush
+                    if (write.onFailure != null) {
+                        write.onFailure.run();
+                    }
+                }
+            }
+        });
+        this.playerWrites.values().removeIf(Future::isDone);
+        for (Path path : playerPaths) {
+            this.playerWrites.put(path, this.inFlight);
+        }
+        return this.inFlight;
+    }
+
+    private boolean addJournalRecord(Map<ClaimJournal, List<ClaimJournal.Record>> journalBatch, Path claimFile, @Nullable byte[] data,
+            Runnable onFailure) {
+        // claim files live below <world>/ClaimData/<type>/
+        Path claimDataFolder = claimFile.getParent();
+        while (claimDataFolder != null && !claimDataFolder.endsWith("ClaimData")) {
+            claimDataFolder = claimDataFolder.getParent();
+        }
+        if (claimDataFolder == null) {
+            return false;
+        }
+
+        final ClaimJournal journal = this.journals.computeIfAbsent(claimDataFolder, ClaimJournal::new);
+        journalBatch.computeIfAbsent(journal, k -> new ArrayList<>())
+                .add(new ClaimJournal.Record(claimDataFolder.relativize(claimFile).toString(), data, onFailure));
+        return true;
+    }
+
+    // Replays and removes the journal of a ClaimData folder, used before its claims are loaded
+    public int replayJournal(Path claimDataFolder) throws IOException {
+        if (!Files.exists(claimDataFolder.resolve(ClaimJournal.FILE_NAME))) {
+            return 0;
+        }
+        this.awaitFlush();
+        return this.journals.computeIfAbsent(claimDataFolder, ClaimJournal::new).compact();
+    }
+
+    // Brings every claim file up to date, required before claim files are moved directly.
+    // Dirty claims are serialized on the calling thread, so like flush this runs on the main thread.
+    public void checkpoint() {
+        this.flush(Collections.emptyList());
+        this.awaitFlush();
+        if (!this.journaling) {
+            return;
+        }
+        this.inFlight = this.executor.submit(this::compactJournals);
+        this.awaitFlush();
+    }
+
+    private void compactJournals() {
+        for (ClaimJournal journal : this.journals.values()) {
+            try {
+                journal.compact();
+            } catch (IOException e) {
+                GriefPreventionPlugin.instance.getLogger().error("Failed to compact claim journal in " + journal.getClaimDataFolder(), e);
+            }
+        }
+    }
+
+    // Blocks until the last submitted batch has been written
+    public void awaitFlush() {
+        await(this.inFlight);
+    }
+
+    // Blocks until the batch holding the last write of the given player data file has been written
+    public void awaitPlayerWrite(Path path) {
+        final Future<?> future = this.playerWrites.get(path);
+        if (future != null) {
+            await(future);
+            this.playerWrites.remove(path, future);
+        }
+    }
+
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            GriefPreventionPlugin.instance.getLogger().error("Storage flush failed", e);
+        }
+    }
+
+    public void shutdown() {
+        if (this.journaling) {
+            // leave plain claim files behind so the data is readable without the journal
+            this.executor.submit(this::compactJournals);
+        }
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                GriefPreventionPlugin.instance.getLogger().error("Timed out waiting for claim data to be written.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Writes to a temporary sibling first so a crash never leaves a truncated file
+    public static void writeAtomic(Path path, byte[] data) throws IOException {
+        Files.createDirectories(path.getParent());
+        final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tempPath, data);
+        try {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static final class PendingWrite {
+
+        private final Path path;
+        @Nullable private final byte[] data;
+        @Nullable private final Runnable onFailure;
+
+        // A null data deletes the file
+        private PendingWrite(Path path, @Nullable byte[] data, @Nullable Runnable onFailure) {
+            this.path = path;
+            this.data = data;
+            this.onFailure = onFailure;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.claim;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import me.ryanhamshire.griefprevention.api.claim.Claim;
+import net.minecraft.util.math.ChunkPos;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
+
+import java.util.Set;
+
+// Per-world entity id -> claim region cache used by movement checks.
+// Each entry holds the claim resolved at an anchor block and the distance to the nearest
+// claim edge within the anchor's chunk. Any block within that distance on every axis
+// resolves to the same claim, so movement inside it needs no claim lookup.
+public final class ClaimBoundaryTracker {
+
+    private final GPClaimManager claimManager;
+    private final Int2ObjectOpenHashMap<ClaimRegion> regions = new Int2ObjectOpenHashMap<>();
+
+    ClaimBoundaryTracker(GPClaimManager claimManager) {
+        this.claimManager = claimManager;
+    }
+
+    // Returns the claim at location, reusing the entity's tracked region when the location lies inside it
+    public GPClaim getClaimAt(int entityId, Location<World> location) {
+        final int x = location.getBlockX();
+        final int y = location.getBlockY();
+        final int z = location.getBlockZ();
+        ClaimRegion region = this.regions.get(entityId);
+        if (region != null && region.contains(x, y, z)) {
+            return region.claim;
+        }
+
+        final GPClaim claim = (GPClaim) this.claimManager.getClaimAt(location);
+        if (region == null) {
+            region = new ClaimRegion();
+            this.regions.put(entityId, region);
+        }
+        region.update(x, y, z, claim, this.getEdgeDistance(x, y, z));
+        return claim;
+    }
+
+    public void remove(int entityId) {
+        this.regions.remove(entityId);
+    }
+
+    public void clear() {
+        this.regions.clear();
+    }
+
+    private int getEdgeDistance(int x, int y, int z) {
+        final int chunkMinX = x & ~15;
+        final int chunkMinZ = z & ~15;
+        // claims outside this chunk are unknown, so never look past its edges
+        int distance = Math.min(Math.min(x - chunkMinX, chunkMinX + 15 - x), Math.min(z - chunkMinZ, chunkMinZ + 15 - z));
+        final Set<Claim> claimsInChunk = this.claimManager.getInternalChunksToClaimsMap().get(ChunkPos.asLong(x >> 4, z >> 4));
+        if (claimsInChunk != null) {
+            for (Claim claim : claimsInChunk) {
+                distance = getEdgeDistance((GPClaim) claim, x, y, z, chunkMinX, chunkMinZ, distance);
+            }
+        }
+        return distance;
+    }
+
+    private static int getEdgeDistance(GPClaim claim, int x, int y, int z, int chunkMinX, int chunkMinZ, int distance) {
+        final int minX = claim.lesserBoundaryCorner.getBlockX();
+        final int minY = claim.lesserBoundaryCorner.getBlockY();
+        final int minZ = claim.lesserBoundaryCorner.getBlockZ();
+        final int maxX = claim.greaterBoundaryCorner.getBlockX();
+        final int maxY = claim.greaterBoundaryCorner.getBlockY();
+        final int maxZ = claim.greaterBoundaryCorner.getBlockZ();
+        if (maxX < chunkMinX || minX > chunkMinX + 15 || maxZ < chunkMinZ || minZ > chunkMinZ + 15) {
+            return distance;
+        }
+
+        if (claim.containsPosition(x, y, z)) {
+            distance = Math.min(distance, Math.min(Math.min(x - minX, maxX - x), Math.min(Math.min(y - minY, maxY - y), Math.min(z - minZ, maxZ - z))));
+        } else {
+            final int gapX = Math.max(minX - x, x - maxX);
+            final int gapY = Math.max(minY - y, y - maxY);
+            final int gapZ = Math.max(minZ - z, z - maxZ);
+            distance = Math.min(distance, Math.max(gapX, Math.max(gapY, gapZ)) - 1);
+        }
+
+        for (Claim child : claim.children) {
+            if (distance <= 0) {
+                break;
+            }
+            distance = getEdgeDistance((GPClaim) child, x, y, z, chunkMinX, chunkMinZ, distance);
+        }
+        return distance;
+    }
+
+    private static final class ClaimRegion {
+
+        private int anchorX;
+        private int anchorY;
+        private int anchorZ;
+        private int distance;
+        private int version;
+        private GPClaim claim;
+
+        private boolean contains(int x, int y, int z) {
+            return this.version == GPClaimManager.getClaimLayoutVersion()
+                    && Math.abs(x - this.anchorX) <= this.distance
+                    && Math.abs(y - this.anchorY) <= this.distance
+                    && Math.abs(z - this.anchorZ) <= this.distance;
+        }
+
+        private void update(int x, int y, int z, GPClaim claim, int distance) {
+            this.anchorX = x;
+            this.anchorY = y;
+            this.anchorZ = z;
+            this.claim = claim;
+            this.distance = distance;
+            this.version = GPClaimManager.getClaimLayoutVersion();
+        }
+    }
+}
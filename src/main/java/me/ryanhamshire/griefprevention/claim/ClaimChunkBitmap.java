@@ -0,0 +1,73 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.claim;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
+
+// One bit per chunk that holds at least one top level claim.
+// Chunks are grouped into 64x64 regions so each region is a single long per chunk row,
+// regions without any claimed chunk are not stored at all.
+final class ClaimChunkBitmap {
+
+    private static final int REGION_SHIFT = 6;
+    private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+
+    private final Long2ObjectOpenHashMap<long[]> regions = new Long2ObjectOpenHashMap<>();
+
+    boolean isClaimed(int chunkX, int chunkZ) {
+        final long[] region = this.regions.get(ChunkPos.asLong(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT));
+        return region != null && (region[chunkX & REGION_MASK] & 1L << (chunkZ & REGION_MASK)) != 0;
+    }
+
+    void set(int chunkX, int chunkZ) {
+        final long regionKey = ChunkPos.asLong(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+        long[] region = this.regions.get(regionKey);
+        if (region == null) {
+            region = new long[1 << REGION_SHIFT];
+            this.regions.put(regionKey, region);
+        }
+        region[chunkX & REGION_MASK] |= 1L << (chunkZ & REGION_MASK);
+    }
+
+    void clear(int chunkX, int chunkZ) {
+        final long regionKey = ChunkPos.asLong(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+        final long[] region = this.regions.get(regionKey);
+        if (region == null) {
+            return;
+        }
+        region[chunkX & REGION_MASK] &= ~(1L << (chunkZ & REGION_MASK));
+        for (long row : region) {
+            if (row != 0) {
+                return;
+            }
+        }
+        this.regions.remove(regionKey);
+    }
+
+    void clear() {
+        this.regions.clear();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.claim;
+
+import me.ryanhamshire.griefprevention.api.claim.Claim;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+// 16x16 column raster of a single chunk.
+// Each column maps to a handle into a small claim palette. A column only gets a claim
+// handle when every claim covering it spans the full build height, so the answer
+// can never change with y. Everything else is marked for the regular tree lookup.
+final class ClaimChunkRaster {
+
+    static final int MIN_BUILD_HEIGHT = 0;
+    static final int MAX_BUILD_HEIGHT = 255;
+
+    private static final short HANDLE_FALLBACK = 0;
+    private static final short HANDLE_WILDERNESS = 1;
+    private static final int HANDLE_OFFSET = 2;
+
+    private final short[] columns = new short[256];
+    private final GPClaim[] palette;
+
+    ClaimChunkRaster(int chunkX, int chunkZ, Collection<Claim> claimsInChunk) {
+        final int minX = chunkX << 4;
+        final int minZ = chunkZ << 4;
+        final Map<GPClaim, List<GPClaim>> childrenInChunk = new IdentityHashMap<>();
+        final List<GPClaim> topLevelClaims = new ArrayList<>(claimsInChunk.size());
+        for (Claim claim : claimsInChunk) {
+            topLevelClaims.add((GPClaim) claim);
+        }
+
+        final List<GPClaim> palette = new ArrayList<>();
+        for (int localX = 0; localX < 16; localX++) {
+            for (int localZ = 0; localZ < 16; localZ++) {
+                this.columns[localX << 4 | localZ] = resolveColumn(topLevelClaims, childrenInChunk, palette, minX, minZ, minX + localX, minZ + localZ);
+            }
+        }
+
+        this.palette = palette.toArray(new GPClaim[0]);
+    }
+
+    // Returns true if the column could be resolved from the raster alone
+    boolean isResolved(int localX, int localZ) {
+        return this.columns[localX << 4 | localZ] != HANDLE_FALLBACK;
+    }
+
+    // Returns the claim for a resolved column or null if the column is wilderness
+    @Nullable
+    GPClaim getClaim(int localX, int localZ) {
+        final short handle = this.columns[localX << 4 | localZ];
+        if (handle < HANDLE_OFFSET) {
+            return null;
+        }
+        return this.palette[handle - HANDLE_OFFSET];
+    }
+
+    private static short resolveColumn(List<GPClaim> topLevelClaims, Map<GPClaim, List<GPClaim>> childrenInChunk, List<GPClaim> palette,
+            int minX, int minZ, int x, int z) {
+        List<GPClaim> candidates = topLevelClaims;
+        GPClaim deepestClaim = null;
+        while (true) {
+            GPClaim coveringClaim = null;
+            for (GPClaim claim : candidates) {
+                if (!coversColumn(claim, x, z)) {
+                    continue;
+                }
+                // stacked or height limited claims depend on y
+                if (coveringClaim != null || !isFullHeight(claim)) {
+                    return HANDLE_FALLBACK;
+                }
+                coveringClaim = claim;
+            }
+
+            if (coveringClaim == null) {
+                break;
+            }
+            deepestClaim = coveringClaim;
+            candidates = getChildrenInChunk(childrenInChunk, deepestClaim, minX, minZ);
+        }
+
+        if (deepestClaim == null) {
+            return HANDLE_WILDERNESS;
+        }
+
+        int index = palette.indexOf(deepestClaim);
+        if (index == -1) {
+            index = palette.size();
+            palette.add(deepestClaim);
+        }
+        return (short) (index + HANDLE_OFFSET);
+    }
+
+    private static List<GPClaim> getChildrenInChunk(Map<GPClaim, List<GPClaim>> cache, GPClaim claim, int minX, int minZ) {
+        List<GPClaim> children = cache.get(claim);
+        if (children == null) {
+            children = new ArrayList<>();
+            for (Claim child : claim.children) {
+                final GPClaim childClaim = (GPClaim) child;
+                if (childClaim.greaterBoundaryCorner.getBlockX() >= minX && childClaim.lesserBoundaryCorner.getBlockX() <= minX + 15
+                        && childClaim.greaterBoundaryCorner.getBlockZ() >= minZ && childClaim.lesserBoundaryCorner.getBlockZ() <= minZ + 15) {
+                    children.add(childClaim);
+                }
+            }
+            cache.put(claim, children);
+        }
+        return children;
+    }
+
+    private static boolean coversColumn(GPClaim claim, int x, int z) {
+        return x >= claim.lesserBoundaryCorner.getBlockX() && x <= claim.greaterBoundaryCorner.getBlockX()
+                && z >= claim.lesserBoundaryCorner.getBlockZ() && z <= claim.greaterBoundaryCorner.getBlockZ();
+    }
+
+    private static boolean isFullHeight(GPClaim claim) {
+        return !claim.isCuboid() && claim.lesserBoundaryCorner.getBlockY() <= MIN_BUILD_HEIGHT
+                && claim.greaterBoundaryCorner.getBlockY() >= MAX_BUILD_HEIGHT;
+    }
+}
@@ -26,6 +26,7 @@
 
 import me.ryanhamshire.griefprevention.GPPlayerData;
 import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
+import me.ryanhamshire.griefprevention.permission.GPPermissionHandler;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.service.context.Context;
 import org.spongepowered.api.service.context.ContextCalculator;
@@ -44,7 +45,7 @@ public void accumulateContexts(Subject calculable, Set<Context> accumulator) {
             if (playerData == null) {
                 return;
             }
-            if (playerData.ignoreActiveContexts) {
+            if (GPPermissionHandler.isIgnoringActiveContexts()) {
                 return;
             }
 
@@ -0,0 +1,147 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.claim;
+
+import me.ryanhamshire.griefprevention.api.claim.Claim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+// Static R-tree over the x/z bounds of a claim's direct children.
+// The tree is bulk loaded using sort-tile-recursive packing and is never
+// mutated; owners simply drop it and build a new one when children change.
+final class ClaimTree {
+
+    private static final int NODE_CAPACITY = 8;
+
+    private final Node root;
+    private final int size;
+
+    ClaimTree(List<Claim> claims) {
+        List<Node> nodes = new ArrayList<>(claims.size());
+        for (Claim claim : claims) {
+            nodes.add(new Node((GPClaim) claim));
+        }
+
+        this.size = nodes.size();
+        while (nodes.size() > 1) {
+            nodes = pack(nodes);
+        }
+        this.root = nodes.isEmpty() ? null : nodes.get(0);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    // Returns the first claim whose own bounds contain the position, ignoring its children
+    @Nullable
+    GPClaim getClaimAt(int x, int y, int z) {
+        if (this.root == null) {
+            return null;
+        }
+        return getClaimAt(this.root, x, y, z);
+    }
+
+    @Nullable
+    private static GPClaim getClaimAt(Node node, int x, int y, int z) {
+        if (x < node.minX || x > node.maxX || z < node.minZ || z > node.maxZ) {
+            return null;
+        }
+
+        if (node.claim != null) {
+            // x/z already matched, claims may still be stacked vertically
+            return node.claim.containsPosition(x, y, z) ? node.claim : null;
+        }
+
+        for (Node child : node.children) {
+            final GPClaim claim = getClaimAt(child, x, y, z);
+            if (claim != null) {
+                return claim;
+            }
+        }
+
+        return null;
+    }
+
+    private static List<Node> pack(List<Node> nodes) {
+        final int nodeCount = (nodes.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        final int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+        final int sliceSize = sliceCount * NODE_CAPACITY;
+
+        nodes.sort(Comparator.comparingLong(node -> (long) node.minX + node.maxX));
+        List<Node> parents = new ArrayList<>(nodeCount);
+        for (int sliceStart = 0; sliceStart < nodes.size(); sliceStart += sliceSize) {
+            List<Node> slice = new ArrayList<>(nodes.subList(sliceStart, Math.min(sliceStart + sliceSize, nodes.size())));
+            slice.sort(Comparator.comparingLong(node -> (long) node.minZ + node.maxZ));
+            for (int i = 0; i < slice.size(); i += NODE_CAPACITY) {
+                parents.add(new Node(slice.subList(i, Math.min(i + NODE_CAPACITY, slice.size()))));
+            }
+        }
+
+        return parents;
+    }
+
+    private static final class Node {
+
+        private final int minX;
+        private final int minZ;
+        private final int maxX;
+        private final int maxZ;
+        private final GPClaim claim;
+        private final Node[] children;
+
+        private Node(GPClaim claim) {
+            this.minX = claim.lesserBoundaryCorner.getBlockX();
+            this.minZ = claim.lesserBoundaryCorner.getBlockZ();
+            this.maxX = claim.greaterBoundaryCorner.getBlockX();
+            this.maxZ = claim.greaterBoundaryCorner.getBlockZ();
+            this.claim = claim;
+            this.children = null;
+        }
+
+        private Node(List<Node> children) {
+            int minX = Integer.MAX_VALUE;
+            int minZ = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE;
+            int maxZ = Integer.MIN_VALUE;
+            for (Node child : children) {
+                minX = Math.min(minX, child.minX);
+                minZ = Math.min(minZ, child.minZ);
+                maxX = Math.max(maxX, child.maxX);
+                maxZ = Math.max(maxZ, child.maxZ);
+            }
+            this.minX = minX;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxZ = maxZ;
+            this.claim = null;
+            this.children = children.toArray(new Node[0]);
+        }
+    }
+}
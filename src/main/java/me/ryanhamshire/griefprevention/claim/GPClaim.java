@@ -29,6 +29,8 @@
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import me.ryanhamshire.griefprevention.DataStore;
 import me.ryanhamshire.griefprevention.GPPlayerData;
 import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
@@ -76,6 +78,8 @@
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -106,8 +110,15 @@ public class GPClaim implements Claim {
 
     public boolean cuboid = false;
 
-    private ClaimStorageData claimStorage;
-    private IClaimData claimData;
+    // cleared by releaseClaimStorage from any thread, read each into a local before use
+    private volatile ClaimStorageData claimStorage;
+    private volatile IClaimData claimData;
+    // reads the claim data back from its file, set when the data may be dropped while unused
+    private Function<Path, ClaimStorageData> claimStorageLoader;
+    private Path claimStoragePath;
+    private volatile boolean claimStorageLoaded = true;
+    // loaded chunks this top level claim overlaps, kept by GPClaimManager on the main thread
+    private int loadedChunkCount;
 
     public GPClaim parent = null;
     public ArrayList<Claim> children = new ArrayList<>();
@@ -117,6 +128,13 @@ public class GPClaim implements Claim {
     private GPPlayerData ownerPlayerData;
     private Account economyAccount;
     private static final int MAX_AREA = GriefPreventionPlugin.CLAIM_BLOCK_SYSTEM == ClaimBlockSystem.VOLUME ? 2560000 : 10000;
+    // Children count at which lookups switch from a linear scan to the child tree
+    private static final int CHILD_TREE_THRESHOLD = 8;
+    private ClaimTree childTree;
+    // UUID -> trust levels of this claim merged with every parent it inherits from
+    private Object2IntOpenHashMap<UUID> effectiveTrust;
+    private GPClaim[] effectiveTrustChain;
+    private int[] effectiveTrustVersions;
 
     public GPClaim(World world, Vector3i point1, Vector3i point2, ClaimType type, UUID ownerUniqueId, boolean cuboid) {
         this(world, point1, point2, type, ownerUniqueId, cuboid, null);
@@ -165,7 +183,6 @@ public GPClaim(World world, Vector3i point1, Vector3i point2, ClaimType type, UU
         this.greaterBoundaryCorner = new Location<World>(world, bigx, bigy, bigz);
         if (ownerUniqueId != null) {
             this.ownerUniqueId = ownerUniqueId;
-            this.ownerPlayerData = GriefPreventionPlugin.instance.dataStore.getOrCreatePlayerData(this.world, this.ownerUniqueId);
         }
         this.type = type;
         this.id = UUID.randomUUID();
@@ -197,7 +214,6 @@ public GPClaim(Location<World> lesserBoundaryCorner, Location<World> greaterBoun
         this.world = lesserBoundaryCorner.getExtent();
         if (ownerUniqueId != null) {
             this.ownerUniqueId = ownerUniqueId;
-            this.ownerPlayerData = GriefPreventionPlugin.instance.dataStore.getOrCreatePlayerData(this.world, this.ownerUniqueId);
         }
         this.type = type;
         this.cuboid = cuboid;
@@ -225,11 +241,7 @@ public void initializeClaimData(GPClaim parent) {
             e.printStackTrace();
         }
         File claimFile = new File(claimDataFolderPath + File.separator + this.id);
-        if (this.isTown()) {
-            this.claimStorage = new TownStorageData(claimFile.toPath(), this.world.getUniqueId(), this.ownerUniqueId, this.cuboid);
-        } else {
-            this.claimStorage = new ClaimStorageData(claimFile.toPath(), this.world.getUniqueId(), this.ownerUniqueId, this.type, this.cuboid);
-        }
+        this.claimStorage = DATASTORE.createClaimStorage(claimFile.toPath(), this.world.getUniqueId(), this.ownerUniqueId, this.type, this.cuboid);
         this.claimData = this.claimStorage.getConfig();
         this.parent = parent;
 
@@ -242,7 +254,7 @@ public ClaimType getType() {
 
     public void setType(ClaimType type) {
         this.type = type;
-        this.claimData.setType(type);
+        this.getInternalClaimData().setType(type);
     }
 
     public Visualization getVisualizer() {
@@ -253,7 +265,8 @@ public Visualization getVisualizer() {
     }
 
     public GPPlayerData getOwnerPlayerData() {
-        if (this.ownerPlayerData == null && this.ownerUniqueId != null) {
+        // owner data is loaded lazily and may be dropped from the player data cache
+        if ((this.ownerPlayerData == null || this.ownerPlayerData.isEvicted()) && this.ownerUniqueId != null) {
             this.ownerPlayerData = GriefPreventionPlugin.instance.dataStore.getOrCreatePlayerData(this.world, this.ownerUniqueId);
         }
 
@@ -275,6 +288,12 @@ public UUID getOwnerUniqueId() {
         return this.ownerUniqueId;
     }
 
+    // The owner as set on this claim, null when it is inherited from the parent
+    @Nullable
+    public UUID getStoredOwnerUniqueId() {
+        return this.ownerUniqueId;
+    }
+
     public void setOwnerUniqueId(UUID uniqueId) {
         this.ownerUniqueId = uniqueId;
     }
@@ -285,8 +304,9 @@ public boolean isAdminClaim() {
 
     @Override
     public boolean isCuboid() {
-        if (this.claimData != null) {
-            return this.claimData.isCuboid();
+        final IClaimData claimData = this.claimData;
+        if (claimData != null) {
+            return claimData.isCuboid();
         }
 
         return this.cuboid;
@@ -341,10 +361,10 @@ public UUID getUniqueId() {
     }
 
     public Optional<Text> getName() {
-        if (this.claimData == null) {
+        if (this.getInternalClaimData() == null) {
             return Optional.empty();
         }
-        return this.claimData.getName();
+        return this.getInternalClaimData().getName();
     }
 
     public Text getFriendlyNameType() {
@@ -532,8 +552,8 @@ public Text allowGrantPermission(Player player) {
             return null;
         }
 
-        for(int i = 0; i < this.claimData.getManagers().size(); i++) {
-            UUID managerID = this.claimData.getManagers().get(i);
+        for(int i = 0; i < this.getInternalClaimData().getManagers().size(); i++) {
+            UUID managerID = this.getInternalClaimData().getManagers().get(i);
             if(player.getUniqueId().equals(managerID)) {
                 return null;
             }
@@ -578,20 +598,8 @@ public Text getOwnerName() {
 
     @Override
     public boolean contains(Location<World> location, boolean excludeChildren) {
-        int x = location.getBlockX();
-        int y = location.getBlockY();
-        int z = location.getBlockZ();
-
         // main check
-        boolean inClaim = (
-                y >= this.lesserBoundaryCorner.getBlockY()) &&
-                y < this.greaterBoundaryCorner.getBlockY() + 1 &&
-                x >= this.lesserBoundaryCorner.getBlockX() &&
-                x < this.greaterBoundaryCorner.getBlockX() + 1 &&
-                z >= this.lesserBoundaryCorner.getBlockZ() &&
-                z < this.greaterBoundaryCorner.getBlockZ() + 1;
-
-        if (!inClaim) {
+        if (!this.containsPosition(location.getBlockX(), location.getBlockY(), location.getBlockZ())) {
             return false;
         }
 
@@ -605,6 +613,60 @@ public boolean contains(Location<World> location, boolean excludeChildren) {
         return true;
     }
 
+    // Checks only this claim's own bounds without walking up to parents
+    public boolean containsPosition(int x, int y, int z) {
+        return y >= this.lesserBoundaryCorner.getBlockY() &&
+                y < this.greaterBoundaryCorner.getBlockY() + 1 &&
+                x >= this.lesserBoundaryCorner.getBlockX() &&
+                x < this.greaterBoundaryCorner.getBlockX() + 1 &&
+                z >= this.lesserBoundaryCorner.getBlockZ() &&
+                z < this.greaterBoundaryCorner.getBlockZ() + 1;
+    }
+
+    // Returns the deepest claim at position starting from this claim, which is assumed to contain it
+    public GPClaim getDeepestClaimAt(int x, int y, int z) {
+        GPClaim claim = this;
+        GPClaim child = claim.getChildAt(x, y, z);
+        while (child != null) {
+            claim = child;
+            child = claim.getChildAt(x, y, z);
+        }
+
+        return claim;
+    }
+
+    @Nullable
+    public GPClaim getChildAt(int x, int y, int z) {
+        final int childCount = this.children.size();
+        if (childCount == 0) {
+            return null;
+        }
+
+        if (childCount < CHILD_TREE_THRESHOLD) {
+            for (int i = 0; i < childCount; i++) {
+                final GPClaim child = (GPClaim) this.children.get(i);
+                if (child.containsPosition(x, y, z)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        ClaimTree tree = this.childTree;
+        // size check guards against direct list modifications that skipped invalidation
+        if (tree == null || tree.size() != childCount) {
+            tree = new ClaimTree(this.children);
+            this.childTree = tree;
+        }
+        return tree.getClaimAt(x, y, z);
+    }
+
+    // Must be called whenever children are added, removed or resized
+    public void invalidateChildTree() {
+        this.childTree = null;
+        GPClaimManager.invalidateClaimLayout();
+    }
+
     public boolean isClaimOnBorder(GPClaim claim) {
         if (claim.cuboid) {
             return false;
@@ -756,7 +818,8 @@ public boolean canIgnoreHeight() {
         if (this.isCuboid()) {
             return false;
         }
-        if (this.ownerPlayerData != null && (this.ownerPlayerData.getMinClaimLevel() > 0 || this.ownerPlayerData.getMaxClaimLevel() < 255)) {
+        final GPPlayerData ownerData = this.getOwnerPlayerData();
+        if (ownerData != null && (ownerData.getMinClaimLevel() > 0 || ownerData.getMaxClaimLevel() < 255)) {
             return false;
         }
 
@@ -788,24 +851,40 @@ public Set<Long> getChunkHashes(boolean refresh) {
 
     @Override
     public ClaimData getData() {
-        return (ClaimData) this.claimData;
+        return (ClaimData) this.getInternalClaimData();
     }
 
+    // The returned data is dropped from the claim once it is saved and no chunk of the claim is loaded.
+    // Callers should not hold on to it across ticks, later changes to a dropped instance are not seen by the claim.
     public IClaimData getInternalClaimData() {
-        return this.claimData;
+        final IClaimData claimData = this.claimData;
+        if (claimData != null) {
+            return claimData;
+        }
+        synchronized (this) {
+            this.loadClaimStorage();
+            return this.claimData;
+        }
     }
 
     @Nullable
     public TownDataConfig getTownData() {
-        if (!(this.claimData instanceof TownDataConfig)) {
+        if (!(this.getInternalClaimData() instanceof TownDataConfig)) {
             return null;
         }
 
-        return (TownDataConfig) this.claimData;
+        return (TownDataConfig) this.getInternalClaimData();
     }
 
     public ClaimStorageData getClaimStorage() {
-        return this.claimStorage;
+        final ClaimStorageData claimStorage = this.claimStorage;
+        if (claimStorage != null) {
+            return claimStorage;
+        }
+        synchronized (this) {
+            this.loadClaimStorage();
+            return this.claimStorage;
+        }
     }
 
     public void setClaimData(IClaimData data) {
@@ -816,17 +895,101 @@ public void setClaimStorage(ClaimStorageData storage) {
         this.claimStorage = storage;
     }
 
+    // Claims with a loader may drop their data while unused, it is read from the claim file again on next access
+    public void setClaimStorageLoader(Function<Path, ClaimStorageData> loader) {
+        this.claimStorageLoader = loader;
+    }
+
+    // Claims placed from the claim index start out without their data
+    public void deferClaimStorage(Path path) {
+        checkNotNull(this.claimStorageLoader, "loader");
+        this.claimStoragePath = path;
+        this.claimStorageLoaded = false;
+    }
+
+    int getLoadedChunkCount() {
+        return this.loadedChunkCount;
+    }
+
+    void setLoadedChunkCount(int count) {
+        this.loadedChunkCount = count;
+    }
+
+    public boolean isClaimStorageLoaded() {
+        return this.claimStorageLoaded;
+    }
+
+    // The claim file path, available without loading the claim data
+    @Nullable
+    public Path getClaimStoragePath() {
+        final ClaimStorageData claimStorage = this.claimStorage;
+        if (claimStorage != null) {
+            return claimStorage.filePath;
+        }
+        synchronized (this) {
+            if (!this.claimStorageLoaded) {
+                return this.claimStoragePath;
+            }
+            return this.claimStorage == null ? null : this.claimStorage.filePath;
+        }
+    }
+
+    // Reads the claim data in the background so the first access does not wait for the file
+    public void preloadClaimStorage(Executor executor) {
+        if (this.claimStorageLoaded) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                this.loadClaimStorage();
+            } catch (RuntimeException e) {
+                GriefPreventionPlugin.instance.getLogger().error("Failed to load claim data " + this.claimStoragePath, e);
+            }
+        });
+    }
+
+    // Drops the claim data and everything derived from it, returns false if the data has unsaved changes
+    public synchronized boolean releaseClaimStorage() {
+        if (!this.claimStorageLoaded || this.claimStorageLoader == null || this.claimStorage == null || this.claimData.requiresSave()) {
+            return false;
+        }
+        this.cuboid = this.claimData.isCuboid();
+        this.claimStoragePath = this.claimStorage.filePath;
+        this.claimStorage = null;
+        this.claimData = null;
+        this.claimStorageLoaded = false;
+        this.economyAccount = null;
+        this.effectiveTrust = null;
+        this.effectiveTrustChain = null;
+        this.effectiveTrustVersions = null;
+        return true;
+    }
+
+    private void loadClaimStorage() {
+        if (this.claimStorageLoaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!this.claimStorageLoaded) {
+                final ClaimStorageData storage = this.claimStorageLoader.apply(this.claimStoragePath);
+                this.claimStorage = storage;
+                this.claimData = storage.getConfig();
+                this.claimStorageLoaded = true;
+            }
+        }
+    }
+
     public void updateClaimStorageData() {
         if (!this.isAdminClaim()) {
-            this.claimStorage.getConfig().setOwnerUniqueId(this.getOwnerUniqueId());
+            this.getClaimStorage().getConfig().setOwnerUniqueId(this.getOwnerUniqueId());
         }
-        this.claimStorage.getConfig().setWorldUniqueId(this.world.getUniqueId());
-        this.claimData.setCuboid(this.cuboid);
-        this.claimData.setType(this.type);
-        this.claimData.setLesserBoundaryCorner(BlockUtils.positionToString(this.lesserBoundaryCorner));
-        this.claimData.setGreaterBoundaryCorner(BlockUtils.positionToString(this.greaterBoundaryCorner));
+        this.getClaimStorage().getConfig().setWorldUniqueId(this.world.getUniqueId());
+        this.getInternalClaimData().setCuboid(this.cuboid);
+        this.getInternalClaimData().setType(this.type);
+        this.getInternalClaimData().setLesserBoundaryCorner(BlockUtils.positionToString(this.lesserBoundaryCorner));
+        this.getInternalClaimData().setGreaterBoundaryCorner(BlockUtils.positionToString(this.greaterBoundaryCorner));
         // Will save next world save
-        this.claimData.setRequiresSave(true);
+        this.getInternalClaimData().setRequiresSave(true);
     }
 
     public void save() {
@@ -838,8 +1001,8 @@ public void save() {
         }
         if (this.getInternalClaimData().requiresSave()) {
             this.updateClaimStorageData();
+            // the storage writer clears the flag once the claim is written
             this.getClaimStorage().save();
-            this.getInternalClaimData().setRequiresSave(false);
         }
     }
 
@@ -873,7 +1036,7 @@ public boolean protectPlayersInClaim() {
     }
 
     public boolean isPvpEnabled() {
-        Tristate value = this.claimData.getPvpOverride();
+        Tristate value = this.getInternalClaimData().getPvpOverride();
         if (value != Tristate.UNDEFINED) {
             return value.asBoolean();
         }
@@ -882,7 +1045,7 @@ public boolean isPvpEnabled() {
     }
 
     public void setPvpOverride(Tristate value) {
-        this.claimData.setPvpOverride(value);
+        this.getInternalClaimData().setPvpOverride(value);
         this.getClaimStorage().save();
     }
 
@@ -913,7 +1076,7 @@ public ClaimResult transferOwner(UUID newOwnerID) {
         // determine new owner
         GPPlayerData newOwnerData = DATASTORE.getOrCreatePlayerData(this.world, newOwnerID);
 
-        if (this.isBasicClaim() && this.claimData.requiresClaimBlocks()) {
+        if (this.isBasicClaim() && this.getInternalClaimData().requiresClaimBlocks()) {
             int remainingClaimBlocks = newOwnerData.getRemainingClaimBlocks();
             if (remainingClaimBlocks < 0 || (this.getClaimBlocks() > remainingClaimBlocks)) {
                 return new GPClaimResult(ClaimResultType.INSUFFICIENT_CLAIM_BLOCKS);
@@ -931,7 +1094,7 @@ public ClaimResult transferOwner(UUID newOwnerID) {
             // convert to basic
             this.type = ClaimType.BASIC;
             this.getVisualizer().setType(VisualizationType.CLAIM);
-            this.claimData.setType(ClaimType.BASIC);
+            this.getInternalClaimData().setType(ClaimType.BASIC);
         }
 
         this.ownerUniqueId = event.getNewOwner();
@@ -939,13 +1102,14 @@ public ClaimResult transferOwner(UUID newOwnerID) {
             newOwnerData = GriefPreventionPlugin.instance.dataStore.getOrCreatePlayerData(this.world, this.getOwnerUniqueId());
         }
 
-        this.claimData.setOwnerUniqueId(newOwnerID);
+        this.getInternalClaimData().setOwnerUniqueId(newOwnerID);
         if (this.isBasicClaim()) {
             ownerData.getInternalClaims().remove(this);
             newOwnerData.getInternalClaims().add(this);
         }
 
         this.ownerPlayerData = newOwnerData;
+        DATASTORE.getClaimWorldManager(this.world.getProperties()).updateOwnerIndex(this);
         this.getClaimStorage().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
@@ -1038,6 +1202,7 @@ public ClaimResult checkArea(boolean resize) {
                         } else {
                             childClaim.parent = null;
                             this.children.remove(childClaim);
+                            this.invalidateChildTree();
                             final GPClaimManager claimWorldManager = GriefPreventionPlugin.instance.dataStore.getClaimWorldManager(this.world.getProperties());
                             claimWorldManager.addClaim(childClaim, true);
                         }
@@ -1231,11 +1396,11 @@ public ClaimResult resizeInternal(int smallX, int smallY, int smallZ, int bigX,
         Location<World> newGreaterCorner = new Location<World>(this.world, bigX, bigY, bigZ);
 
         // check player has enough claim blocks
-        if ((this.isBasicClaim() || this.isTown()) && this.claimData.requiresClaimBlocks()) {
+        if ((this.isBasicClaim() || this.isTown()) && this.getInternalClaimData().requiresClaimBlocks()) {
             final int newCost = BlockUtils.getClaimBlockCost(this.world, newLesserCorner.getBlockPosition(), newGreaterCorner.getBlockPosition(), this.cuboid);
             final int currentCost = BlockUtils.getClaimBlockCost(this.world, currentLesserCorner.getBlockPosition(), currentGreaterCorner.getBlockPosition(), this.cuboid);
             if (newCost > currentCost) {
-                final int remainingClaimBlocks = this.ownerPlayerData.getRemainingClaimBlocks() - (newCost - currentCost);
+                final int remainingClaimBlocks = this.getOwnerPlayerData().getRemainingClaimBlocks() - (newCost - currentCost);
                 if (remainingClaimBlocks < 0) {
                     if (player != null) {
                         if (GriefPreventionPlugin.CLAIM_BLOCK_SYSTEM == ClaimBlockSystem.VOLUME) {
@@ -1296,29 +1461,25 @@ public ClaimResult resizeInternal(int smallX, int smallY, int smallZ, int bigX,
         // resize validated, remove invalid chunkHashes
         if (this.parent == null) {
             for (Long chunkHash : currentChunkHashes) {
-                Set<Claim> claimsInChunk = claimWorldManager.getInternalChunksToClaimsMap().get(chunkHash);
-                if (claimsInChunk != null && claimsInChunk.size() > 0) {
-                    claimsInChunk.remove(this);
-                }
+                claimWorldManager.removeChunkClaim(chunkHash, this);
             }
 
             final Set<Long> newChunkHashes = this.getChunkHashes(true);
             // add new chunk hashes
             for (Long chunkHash : newChunkHashes) {
-                Set<Claim> claimsInChunk = claimWorldManager.getInternalChunksToClaimsMap().get(chunkHash);
-                if (claimsInChunk == null) {
-                    claimsInChunk = new HashSet<>();
-                    claimWorldManager.getInternalChunksToClaimsMap().put(chunkHash, claimsInChunk);
-                }
-
-                claimsInChunk.add(this);
+                claimWorldManager.addChunkClaim(chunkHash, this);
             }
         }
 
-        this.claimData.setLesserBoundaryCorner(BlockUtils.positionToString(this.lesserBoundaryCorner));
-        this.claimData.setGreaterBoundaryCorner(BlockUtils.positionToString(this.greaterBoundaryCorner));
-        this.claimData.setRequiresSave(true);
+        this.getInternalClaimData().setLesserBoundaryCorner(BlockUtils.positionToString(this.lesserBoundaryCorner));
+        this.getInternalClaimData().setGreaterBoundaryCorner(BlockUtils.positionToString(this.greaterBoundaryCorner));
+        this.getInternalClaimData().setRequiresSave(true);
         this.getClaimStorage().save();
+        if (this.parent != null) {
+            this.parent.invalidateChildTree();
+        }
+        claimWorldManager.invalidateChunkRasters(currentChunkHashes);
+        claimWorldManager.invalidateChunkRasters(this.getChunkHashes(true));
 
         if (result.getClaims().size() > 1) {
             this.migrateClaims(new ArrayList<>(result.getClaims()));
@@ -1418,29 +1579,25 @@ public ClaimResult resizeCuboid(int smallX, int smallY, int smallZ, int bigX, in
         final GPClaimManager claimWorldManager = GriefPreventionPlugin.instance.dataStore.getClaimWorldManager(this.world.getProperties());
         if (this.parent == null) {
             for (Long chunkHash : currentChunkHashes) {
-                Set<Claim> claimsInChunk = claimWorldManager.getInternalChunksToClaimsMap().get(chunkHash);
-                if (claimsInChunk != null && claimsInChunk.size() > 0) {
-                    claimsInChunk.remove(this);
-                }
+                claimWorldManager.removeChunkClaim(chunkHash, this);
             }
 
             final Set<Long> newChunkHashes = this.getChunkHashes(true);
             // add new chunk hashes
             for (Long chunkHash : newChunkHashes) {
-                Set<Claim> claimsInChunk = claimWorldManager.getInternalChunksToClaimsMap().get(chunkHash);
-                if (claimsInChunk == null) {
-                    claimsInChunk = new HashSet<>();
-                    claimWorldManager.getInternalChunksToClaimsMap().put(chunkHash, claimsInChunk);
-                }
-
-                claimsInChunk.add(this);
+                claimWorldManager.addChunkClaim(chunkHash, this);
             }
         }
 
-        this.claimData.setLesserBoundaryCorner(BlockUtils.positionToString(this.lesserBoundaryCorner));
-        this.claimData.setGreaterBoundaryCorner(BlockUtils.positionToString(this.greaterBoundaryCorner));
-        this.claimData.setRequiresSave(true);
+        this.getInternalClaimData().setLesserBoundaryCorner(BlockUtils.positionToString(this.lesserBoundaryCorner));
+        this.getInternalClaimData().setGreaterBoundaryCorner(BlockUtils.positionToString(this.greaterBoundaryCorner));
+        this.getInternalClaimData().setRequiresSave(true);
         this.getClaimStorage().save();
+        if (this.parent != null) {
+            this.parent.invalidateChildTree();
+        }
+        claimWorldManager.invalidateChunkRasters(currentChunkHashes);
+        claimWorldManager.invalidateChunkRasters(this.getChunkHashes(true));
         if (result.getClaims().size() > 1) {
             this.migrateClaims(new ArrayList<>(result.getClaims()));
         }
@@ -1833,9 +1990,7 @@ public ClaimResult changeType(ClaimType type, Optional<UUID> ownerUniqueId) {
         final String fileName = this.getClaimStorage().filePath.getFileName().toString();
         final Path newPath = this.getClaimStorage().folderPath.getParent().resolve(type.name().toLowerCase()).resolve(fileName);
         try {
-            Files.createDirectories(newPath.getParent());
-            Files.move(this.getClaimStorage().filePath, newPath);
-            this.setClaimStorage(new ClaimStorageData(newPath, this.getWorldUniqueId(), (ClaimDataConfig) this.getInternalClaimData()));
+            DATASTORE.moveClaimStorage(this, newPath);
             this.getClaimStorage().save();
         } catch (IOException e) {
             e.printStackTrace();
@@ -1878,6 +2033,7 @@ public ClaimResult changeType(ClaimType type, Optional<UUID> ownerUniqueId) {
             this.setOwnerUniqueId(newOwnerUUID);
         }
         this.setType(type);
+        claimWorldManager.updateOwnerIndex(this);
         this.visualization = null;
         this.getInternalClaimData().setRequiresSave(true);
         this.getClaimStorage().save();
@@ -1905,10 +2061,10 @@ public int hashCode() {
     @Override
     public List<UUID> getUserTrusts() {
         List<UUID> trustList = new ArrayList<>();
-        trustList.addAll(this.claimData.getAccessors());
-        trustList.addAll(this.claimData.getContainers());
-        trustList.addAll(this.claimData.getBuilders());
-        trustList.addAll(this.claimData.getManagers());
+        trustList.addAll(this.getInternalClaimData().getAccessors());
+        trustList.addAll(this.getInternalClaimData().getContainers());
+        trustList.addAll(this.getInternalClaimData().getBuilders());
+        trustList.addAll(this.getInternalClaimData().getManagers());
         return ImmutableList.copyOf(trustList);
     }
 
@@ -1933,125 +2089,87 @@ public boolean isUserTrusted(User user, TrustType type, Set<Context> contexts) {
             return false;
         }
 
-        if (user.getUniqueId().equals(this.getOwnerUniqueId())) {
-            return true;
-        }
-
         final GPPlayerData playerData = GriefPreventionPlugin.instance.dataStore.getOrCreatePlayerData(world, user.getUniqueId());
-        if (this.isAdminClaim() && playerData.canManageAdminClaims) {
-            if (playerData.debugClaimPermissions) {
-                return false;
-            }
-
-            return true;
-        }
-        if (this.isWilderness() && playerData.canManageWilderness) {
-            if (playerData.debugClaimPermissions) {
-                return false;
-            }
-
-            return true;
-        }
-
-        if (playerData.canIgnoreClaim(this)) {
-            return true;
-        }
-
-        if (this.isPublicTrusted(type)) {
-            return true;
-        }
-
-        if (type == TrustType.ACCESSOR) {
-            if (this.claimData.getAccessors().contains(user.getUniqueId())) {
-                return true;
-            }
-            if (this.claimData.getBuilders().contains(user.getUniqueId())) {
-                return true;
-            }
-            if (this.claimData.getContainers().contains(user.getUniqueId())) {
-                return true;
-            }
-            if (this.claimData.getManagers().contains(user.getUniqueId())) {
-                return true;
-            }
-        } else if (type == TrustType.BUILDER) {
-            if (this.claimData.getBuilders().contains(user.getUniqueId())) {
+        // Owner, admin and ignore checks apply to every inherited parent, only list membership is precomputed
+        GPClaim claim = this;
+        while (claim != null) {
+            if (user.getUniqueId().equals(claim.getOwnerUniqueId())) {
                 return true;
             }
-            if (this.claimData.getManagers().contains(user.getUniqueId())) {
-                return true;
-            }
-        } else if (type == TrustType.CONTAINER) {
-            if (this.claimData.getContainers().contains(user.getUniqueId())) {
-                return true;
+            if (claim.isAdminClaim() && playerData.canManageAdminClaims) {
+                return !playerData.debugClaimPermissions;
             }
-            if (this.claimData.getBuilders().contains(user.getUniqueId())) {
-                return true;
-            }
-            if (this.claimData.getManagers().contains(user.getUniqueId())) {
-                return true;
+            if (claim.isWilderness() && playerData.canManageWilderness) {
+                return !playerData.debugClaimPermissions;
             }
-        } else if (type == TrustType.MANAGER) {
-            if (this.claimData.getManagers().contains(user.getUniqueId())) {
+            if (playerData.canIgnoreClaim(claim)) {
                 return true;
             }
+            claim = claim.getInheritedParent();
         }
 
-        if (contexts == null) {
-            contexts = new HashSet<>();
-            contexts.add(this.getContext());
+        if (this.isPublicTrusted(type)) {
+            return true;
         }
 
-        if (user.hasPermission(contexts, GPPermissions.getTrustPermission(type))) {
+        if ((this.getEffectiveTrustLevels(user.getUniqueId()) & ClaimDataConfig.getRequiredTrustLevels(type)) != 0) {
             return true;
         }
 
-        // Only check parent if this claim inherits
-        if (this.parent != null && this.getData().doesInheritParent()) {
-            return this.parent.isUserTrusted(user, type, contexts);
+        if (contexts == null) {
+            contexts = new HashSet<>();
+            contexts.add(this.getContext());
         }
 
-        return false;
+        // Parent checks would use the same contexts, so one permission lookup covers the chain
+        return user.hasPermission(contexts, GPPermissions.getTrustPermission(type));
     }
 
     private boolean isPublicTrusted(TrustType type) {
-        if (type == TrustType.ACCESSOR) {
-            if (this.claimData.getAccessors().contains(GriefPreventionPlugin.PUBLIC_UUID)) {
-                return true;
-            }
-            if (this.claimData.getBuilders().contains(GriefPreventionPlugin.PUBLIC_UUID)) {
-                return true;
-            }
-            if (this.claimData.getContainers().contains(GriefPreventionPlugin.PUBLIC_UUID)) {
-                return true;
-            }
-            if (this.claimData.getManagers().contains(GriefPreventionPlugin.PUBLIC_UUID)) {
-                return true;
-            }
-        } else if (type == TrustType.BUILDER) {
-            if (this.claimData.getBuilders().contains(GriefPreventionPlugin.PUBLIC_UUID)) {
-                return true;
-            }
-            if (this.claimData.getManagers().contains(GriefPreventionPlugin.PUBLIC_UUID)) {
-                return true;
-            }
-        } else if (type == TrustType.CONTAINER) {
-            if (this.claimData.getContainers().contains(GriefPreventionPlugin.PUBLIC_UUID)) {
-                return true;
-            }
-            if (this.claimData.getBuilders().contains(GriefPreventionPlugin.PUBLIC_UUID)) {
-                return true;
-            }
-            if (this.claimData.getManagers().contains(GriefPreventionPlugin.PUBLIC_UUID)) {
-                return true;
-            }
-        } else if (type == TrustType.MANAGER) {
-            if (this.claimData.getManagers().contains(GriefPreventionPlugin.PUBLIC_UUID)) {
-                return true;
+        return (this.getEffectiveTrustLevels(GriefPreventionPlugin.PUBLIC_UUID) & ClaimDataConfig.getRequiredTrustLevels(type)) != 0;
+    }
+
+    private int getEffectiveTrustLevels(UUID uuid) {
+        if (this.effectiveTrust == null || !this.isEffectiveTrustChainValid()) {
+            final List<GPClaim> chain = new ArrayList<>(3);
+            final IntArrayList versions = new IntArrayList(3);
+            final Object2IntOpenHashMap<UUID> effectiveTrust = new Object2IntOpenHashMap<>();
+            GPClaim claim = this;
+            while (claim != null) {
+                final IClaimData claimData = claim.getInternalClaimData();
+                chain.add(claim);
+                versions.add(claimData.getTrustVersion());
+                claimData.mergeUserTrustLevels(effectiveTrust);
+                claim = claim.getInheritedParent();
+            }
+            this.effectiveTrust = effectiveTrust;
+            this.effectiveTrustChain = chain.toArray(new GPClaim[0]);
+            this.effectiveTrustVersions = versions.toIntArray();
+        }
+
+        return this.effectiveTrust.getInt(uuid);
+    }
+
+    // Parents are reassigned directly in several places, so re-walk the chain on every lookup
+    // and compare each claim's trust version against the one merged into the cache
+    private boolean isEffectiveTrustChainValid() {
+        final GPClaim[] chain = this.effectiveTrustChain;
+        final int[] versions = this.effectiveTrustVersions;
+        for (int i = 0; i < chain.length; i++) {
+            final GPClaim expectedParent = i + 1 < chain.length ? chain[i + 1] : null;
+            if (chain[i].getInternalClaimData().getTrustVersion() != versions[i] || chain[i].getInheritedParent() != expectedParent) {
+                return false;
             }
         }
+        return true;
+    }
 
-        return false;
+    @Nullable
+    private GPClaim getInheritedParent() {
+        if (this.parent != null && this.getData().doesInheritParent()) {
+            return this.parent;
+        }
+        return null;
     }
 
     @Override
@@ -2084,8 +2202,8 @@ public ClaimResult addUserTrust(UUID uuid, TrustType type) {
             userList.add(uuid);
         }
 
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2104,8 +2222,8 @@ public ClaimResult addUserTrusts(List<UUID> uuids, TrustType type) {
             }
         }
 
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2119,14 +2237,14 @@ public ClaimResult removeUserTrust(UUID uuid, TrustType type) {
 
         if (type == TrustType.NONE) {
             final ClaimResult result = this.removeAllTrustsFromUser(uuid);
-            this.claimData.setRequiresSave(true);
-            this.claimData.save();
+            this.getInternalClaimData().setRequiresSave(true);
+            this.getInternalClaimData().save();
             return result;
         }
 
         this.getUserTrustList(type).remove(uuid);
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2143,8 +2261,8 @@ public ClaimResult removeUserTrusts(List<UUID> uuids, TrustType type) {
                 this.removeAllTrustsFromUser(uuid);
             }
 
-            this.claimData.setRequiresSave(true);
-            this.claimData.save();
+            this.getInternalClaimData().setRequiresSave(true);
+            this.getInternalClaimData().save();
             return new GPClaimResult(this, ClaimResultType.SUCCESS);
         }
 
@@ -2155,8 +2273,8 @@ public ClaimResult removeUserTrusts(List<UUID> uuids, TrustType type) {
             }
         }
 
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2173,8 +2291,8 @@ public ClaimResult addGroupTrust(String group, TrustType type) {
             groupList.add(group);
         }
 
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2193,8 +2311,8 @@ public ClaimResult addGroupTrusts(List<String> groups, TrustType type) {
             }
         }
 
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2208,14 +2326,14 @@ public ClaimResult removeGroupTrust(String group, TrustType type) {
 
         if (type == TrustType.NONE) {
             final ClaimResult result = this.removeAllTrustsFromGroup(group);
-            this.claimData.setRequiresSave(true);
-            this.claimData.save();
+            this.getInternalClaimData().setRequiresSave(true);
+            this.getInternalClaimData().save();
             return result;
         }
 
         this.getGroupTrustList(type).remove(group);
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2232,8 +2350,8 @@ public ClaimResult removeGroupTrusts(List<String> groups, TrustType type) {
                 this.removeAllTrustsFromGroup(group);
             }
 
-            this.claimData.setRequiresSave(true);
-            this.claimData.save();
+            this.getInternalClaimData().setRequiresSave(true);
+            this.getInternalClaimData().save();
             return new GPClaimResult(this, ClaimResultType.SUCCESS);
         }
 
@@ -2244,8 +2362,8 @@ public ClaimResult removeGroupTrusts(List<String> groups, TrustType type) {
             }
         }
 
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2273,8 +2391,8 @@ public ClaimResult removeAllTrusts() {
             this.getGroupTrustList(type).clear();
         }
 
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2291,8 +2409,8 @@ public ClaimResult removeAllUserTrusts() {
             this.getUserTrustList(type).clear();
         }
 
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2309,8 +2427,8 @@ public ClaimResult removeAllGroupTrusts() {
             this.getGroupTrustList(type).clear();
         }
 
-        this.claimData.setRequiresSave(true);
-        this.claimData.save();
+        this.getInternalClaimData().setRequiresSave(true);
+        this.getInternalClaimData().save();
         return new GPClaimResult(this, ClaimResultType.SUCCESS);
     }
 
@@ -2335,15 +2453,15 @@ public List<UUID> getUserTrustList(TrustType type) {
             return new ArrayList<>();
         }
         if (type == TrustType.ACCESSOR) {
-            return this.claimData.getAccessors();
+            return this.getInternalClaimData().getAccessors();
         }
         if (type == TrustType.CONTAINER) {
-            return this.claimData.getContainers();
+            return this.getInternalClaimData().getContainers();
         }
         if (type == TrustType.BUILDER) {
-            return this.claimData.getBuilders();
+            return this.getInternalClaimData().getBuilders();
         }
-        return this.claimData.getManagers();
+        return this.getInternalClaimData().getManagers();
     }
 
     public List<UUID> getParentUserTrustList(TrustType type) {
@@ -2367,15 +2485,15 @@ public List<String> getParentGroupTrustList(TrustType type) {
     public List<UUID> getUserTrustList(TrustType type, boolean includeParents) {
         List<UUID> trustList = new ArrayList<>();
         if (type == TrustType.ACCESSOR) {
-            trustList.addAll(this.claimData.getAccessors());
+            trustList.addAll(this.getInternalClaimData().getAccessors());
         }
         if (type == TrustType.CONTAINER) {
-            trustList.addAll(this.claimData.getContainers());
+            trustList.addAll(this.getInternalClaimData().getContainers());
         }
         if (type == TrustType.BUILDER) {
-            trustList.addAll(this.claimData.getBuilders());
+            trustList.addAll(this.getInternalClaimData().getBuilders());
         } else {
-            trustList.addAll(this.claimData.getManagers());
+            trustList.addAll(this.getInternalClaimData().getManagers());
         }
 
         if (includeParents) {
@@ -2397,15 +2515,15 @@ public List<String> getGroupTrustList(TrustType type) {
     public List<String> getGroupTrustList(TrustType type, boolean includeParents) {
         List<String> trustList = new ArrayList<>();
         if (type == TrustType.ACCESSOR) {
-            trustList.addAll(this.claimData.getAccessorGroups());
+            trustList.addAll(this.getInternalClaimData().getAccessorGroups());
         }
         if (type == TrustType.CONTAINER) {
-            trustList.addAll(this.claimData.getContainerGroups());
+            trustList.addAll(this.getInternalClaimData().getContainerGroups());
         }
         if (type == TrustType.BUILDER) {
-            trustList.addAll(this.claimData.getBuilderGroups());
+            trustList.addAll(this.getInternalClaimData().getBuilderGroups());
         } else {
-            trustList.addAll(this.claimData.getManagerGroups());
+            trustList.addAll(this.getInternalClaimData().getManagerGroups());
         }
 
         if (includeParents) {
@@ -2446,7 +2564,7 @@ public Optional<Account> getEconomyAccount() {
         }
         EconomyService economyService = GriefPreventionPlugin.instance.economyService.orElse(null);
         if (economyService != null) {
-            this.economyAccount = economyService.getOrCreateAccount(this.claimStorage.filePath.getFileName().toString()).orElse(null);
+            this.economyAccount = economyService.getOrCreateAccount(this.getClaimStorage().filePath.getFileName().toString()).orElse(null);
             return Optional.ofNullable(this.economyAccount);
         }
         return Optional.empty();
@@ -2752,6 +2870,7 @@ public boolean migrateClaims(List<Claim> claims) {
             final String fileName = childClaim.getClaimStorage().filePath.getFileName().toString();
             if (childClaim.parent != null) {
                 childClaim.parent.children.remove(child);
+                childClaim.parent.invalidateChildTree();
             }
             Path newPath = null;
             if (this.isWilderness()) {
@@ -2762,13 +2881,12 @@ public boolean migrateClaims(List<Claim> claims) {
                 childClaim.parent = this;
                 childClaim.getClaimStorage().getConfig().setParent(this.getUniqueId());
                 this.children.add(child);
+                this.invalidateChildTree();
                 newPath = this.getClaimStorage().filePath.getParent().resolve(child.getType().name().toLowerCase()).resolve(fileName);
             }
 
             try {
-                Files.createDirectories(newPath.getParent());
-                Files.move(childClaim.getClaimStorage().filePath, newPath);
-                childClaim.setClaimStorage(new ClaimStorageData(newPath, this.getWorldUniqueId(), (ClaimDataConfig) childClaim.getInternalClaimData()));
+                DATASTORE.moveClaimStorage(childClaim, newPath);
                 childClaim.getClaimStorage().save();
             } catch (IOException e) {
                 e.printStackTrace();
@@ -33,18 +33,22 @@
 import me.ryanhamshire.griefprevention.GPPlayerData;
 import me.ryanhamshire.griefprevention.GPTimings;
 import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
+import me.ryanhamshire.griefprevention.PlayerDataCache;
 import me.ryanhamshire.griefprevention.api.claim.Claim;
 import me.ryanhamshire.griefprevention.api.claim.ClaimBlockSystem;
+import me.ryanhamshire.griefprevention.api.claim.ClaimFlag;
 import me.ryanhamshire.griefprevention.api.claim.ClaimManager;
 import me.ryanhamshire.griefprevention.api.claim.ClaimResult;
 import me.ryanhamshire.griefprevention.api.claim.ClaimResultType;
 import me.ryanhamshire.griefprevention.api.claim.ClaimType;
-import me.ryanhamshire.griefprevention.configuration.ClaimDataConfig;
-import me.ryanhamshire.griefprevention.configuration.ClaimStorageData;
 import me.ryanhamshire.griefprevention.configuration.GriefPreventionConfig;
 import me.ryanhamshire.griefprevention.configuration.PlayerStorageData;
 import me.ryanhamshire.griefprevention.event.GPDeleteClaimEvent;
+import me.ryanhamshire.griefprevention.permission.GPPermissionHandler;
+import me.ryanhamshire.griefprevention.util.EntityBlockCache;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.gen.ChunkProviderServer;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.event.CauseStackManager;
@@ -55,34 +59,49 @@
 import org.spongepowered.api.world.Location;
 import org.spongepowered.api.world.World;
 import org.spongepowered.api.world.storage.WorldProperties;
+import org.spongepowered.common.SpongeImpl;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
 import javax.annotation.Nullable;
 
 public class GPClaimManager implements ClaimManager {
 
     private static final DataStore DATASTORE = GriefPreventionPlugin.instance.dataStore;
+    // bumped whenever claim bounds or children change in any world
+    private static int claimLayoutVersion;
     private WorldProperties worldProperties;
     private GriefPreventionConfig<?> activeConfig;
 
     // Player UUID -> player data
-    private Map<UUID, GPPlayerData> playerDataList = Maps.newHashMap();
+    private final PlayerDataCache playerDataCache = new PlayerDataCache();
     // World claim list
     private List<Claim> worldClaims = new ArrayList<>();
     // Claim UUID -> Claim
     private Map<UUID, Claim> claimUniqueIdMap = Maps.newHashMap();
+    // Owner UUID -> top level claims and town claims owned by someone other than the town owner
+    private Map<UUID, List<Claim>> ownerClaimIndex = Maps.newHashMap();
+    // Claim UUID -> owner UUID the claim is filed under in ownerClaimIndex
+    private Map<UUID, UUID> indexedClaimOwners = Maps.newHashMap();
     // String -> Claim
     private Map<Long, Set<Claim>> chunksToClaimsMap = new Long2ObjectOpenHashMap<>(4096);
+    // Chunks holding at least one entry in chunksToClaimsMap
+    private final ClaimChunkBitmap claimedChunks = new ClaimChunkBitmap();
+    // Chunk hash -> lazily built column raster, only read and written on the main thread
+    private Long2ObjectOpenHashMap<ClaimChunkRaster> chunkRasters = new Long2ObjectOpenHashMap<>(4096);
+    // Entity id -> last collided block
+    private final EntityBlockCache entityBlockCache = new EntityBlockCache();
+    private final ClaimBoundaryTracker boundaryTracker = new ClaimBoundaryTracker(this);
     private GPClaim theWildernessClaim;
 
     public GPClaimManager() {
@@ -96,7 +115,7 @@ public GPClaimManager(WorldProperties worldProperties) {
     }
 
     public GPPlayerData getOrCreatePlayerData(UUID playerUniqueId) {
-        GPPlayerData playerData = this.getPlayerDataMap().get(playerUniqueId);
+        GPPlayerData playerData = this.getPlayerDataCache().get(playerUniqueId);
         if (playerData == null) {
             return createPlayerData(playerUniqueId);
         } else {
@@ -105,18 +124,18 @@ public GPPlayerData getOrCreatePlayerData(UUID playerUniqueId) {
     }
 
     private GPPlayerData createPlayerData(UUID playerUniqueId) {
-        Path playerFilePath = null;
-        if (DataStore.USE_GLOBAL_PLAYER_STORAGE) {
-            playerFilePath = DataStore.globalPlayerDataPath.resolve(playerUniqueId.toString());
+        final UUID storageWorldUniqueId = DataStore.USE_GLOBAL_PLAYER_STORAGE ? null : this.worldProperties.getUniqueId();
+        List<Claim> claimList = this.createPlayerClaimList(playerUniqueId);
+        GPPlayerData playerData = DATASTORE.getPlayerDataLoader().takePrefetched(playerUniqueId, storageWorldUniqueId);
+        if (playerData != null) {
+            playerData.install(this.worldProperties, claimList);
         } else {
-            playerFilePath = DataStore.worldConfigMap.get(this.worldProperties.getUniqueId()).getPath().getParent().resolve("PlayerData").resolve(playerUniqueId.toString());
+            PlayerStorageData playerStorage = DATASTORE.loadPlayerStorageNow(storageWorldUniqueId, playerUniqueId);
+            playerData = new GPPlayerData(this.worldProperties, playerUniqueId, playerStorage, this.activeConfig, claimList);
+            DATASTORE.loadIgnoreList(playerData);
         }
-
-        PlayerStorageData playerStorage = new PlayerStorageData(playerFilePath);
-        List<Claim> claimList = this.createPlayerClaimList(playerUniqueId);
-        GPPlayerData playerData = new GPPlayerData(this.worldProperties, playerUniqueId, playerStorage, this.activeConfig, claimList);
-        this.getPlayerDataMap().put(playerUniqueId, playerData);
-        return playerData;
+        final GPPlayerData existing = this.getPlayerDataCache().putIfAbsent(playerUniqueId, playerData);
+        return existing != null ? existing : playerData;
     }
 
     private List<Claim> createPlayerClaimList(UUID playerUniqueId) {
@@ -124,45 +143,85 @@ private List<Claim> createPlayerClaimList(UUID playerUniqueId) {
         if (DataStore.USE_GLOBAL_PLAYER_STORAGE) {
             for (World world : Sponge.getServer().getWorlds()) {
                 GPClaimManager claimmanager = DATASTORE.getClaimWorldManager(world.getProperties());
-                for (Claim claim : claimmanager.worldClaims) {
-                    GPClaim gpClaim = (GPClaim) claim;
-                    if (gpClaim.isAdminClaim()) {
-                        continue;
-                    }
-                    if (gpClaim.parent != null) {
-                       if (gpClaim.parent.getOwnerUniqueId().equals(playerUniqueId)) {
-                           claimList.add(claim);
-                       }
-                    } else {
-                        if (gpClaim.getOwnerUniqueId().equals(playerUniqueId)) {
-                            claimList.add(claim);
-                        }
-                    }
-                }
+                claimmanager.addOwnedClaims(playerUniqueId, claimList);
             }
         } else {
-            for (Claim claim : this.worldClaims) {
-                GPClaim gpClaim = (GPClaim) claim;
-                if (gpClaim.isAdminClaim()) {
-                    continue;
-                }
-                if (gpClaim.parent != null) {
-                   if (gpClaim.parent.getOwnerUniqueId().equals(playerUniqueId)) {
-                       claimList.add(claim);
-                   }
-                } else {
-                    if (gpClaim.getOwnerUniqueId().equals(playerUniqueId)) {
-                        claimList.add(claim);
-                    }
-                }
-            }
+            this.addOwnedClaims(playerUniqueId, claimList);
         }
 
         return claimList;
     }
 
+    private void addOwnedClaims(UUID playerUniqueId, List<Claim> claimList) {
+        final List<Claim> ownedClaims = this.ownerClaimIndex.get(playerUniqueId);
+        if (ownedClaims == null) {
+            return;
+        }
+
+        for (Claim claim : ownedClaims) {
+            if (!claim.isAdminClaim()) {
+                claimList.add(claim);
+            }
+        }
+    }
+
+    // Re-files a claim after its owner, type or parent changed
+    public void updateOwnerIndex(GPClaim claim) {
+        if (!this.claimUniqueIdMap.containsKey(claim.id) || claim.isWilderness()) {
+            return;
+        }
+        if (isOwnerIndexed(claim)) {
+            this.indexClaimOwner(claim);
+        } else {
+            this.unindexClaimOwner(claim);
+        }
+        // a new town owner changes which of the town's claims are filed under their own owner
+        for (Claim child : claim.children) {
+            this.updateOwnerIndex((GPClaim) child);
+        }
+    }
+
+    // Child claims only show up in their owner's claim list when they are part of someone else's town
+    private static boolean isOwnerIndexed(GPClaim claim) {
+        if (claim.parent == null) {
+            return true;
+        }
+        return !claim.isAdminClaim() && claim.isInTown() && !claim.getTownClaim().getOwnerUniqueId().equals(claim.getOwnerUniqueId());
+    }
+
+    private void indexClaimOwner(GPClaim claim) {
+        this.unindexClaimOwner(claim);
+        final UUID ownerUniqueId = claim.getOwnerUniqueId();
+        if (ownerUniqueId == null) {
+            return;
+        }
+
+        List<Claim> ownedClaims = this.ownerClaimIndex.get(ownerUniqueId);
+        if (ownedClaims == null) {
+            ownedClaims = new ArrayList<>();
+            this.ownerClaimIndex.put(ownerUniqueId, ownedClaims);
+        }
+        ownedClaims.add(claim);
+        this.indexedClaimOwners.put(claim.id, ownerUniqueId);
+    }
+
+    private void unindexClaimOwner(GPClaim claim) {
+        final UUID ownerUniqueId = this.indexedClaimOwners.remove(claim.id);
+        if (ownerUniqueId == null) {
+            return;
+        }
+
+        final List<Claim> ownedClaims = this.ownerClaimIndex.get(ownerUniqueId);
+        if (ownedClaims != null) {
+            ownedClaims.remove(claim);
+            if (ownedClaims.isEmpty()) {
+                this.ownerClaimIndex.remove(ownerUniqueId);
+            }
+        }
+    }
+
     public void removePlayer(UUID playerUniqueId) {
-        this.getPlayerDataMap().remove(playerUniqueId);
+        this.getPlayerDataCache().remove(playerUniqueId);
     }
 
     public ClaimResult addClaim(Claim claim) {
@@ -211,14 +270,14 @@ public void addClaim(Claim claimToAdd, boolean writeToStorage) {
 
         if (claim.parent != null) {
             claim.parent.children.add(claim);
+            claim.parent.invalidateChildTree();
             this.worldClaims.remove(claim);
             this.deleteChunkHashes((GPClaim) claim);
-            if (!claim.isAdminClaim() && claim.isInTown() && !claim.getTownClaim().getOwnerUniqueId().equals(claim.getOwnerUniqueId())) {
-                final GPPlayerData playerData = this.getPlayerDataMap().get(claim.getOwnerUniqueId());
-                List<Claim> playerClaims = playerData.getInternalClaims();
-                if (!playerClaims.contains(claim)) {
-                    playerClaims.add(claim);
-                }
+            if (isOwnerIndexed(claim)) {
+                this.indexClaimOwner(claim);
+                this.addToCachedOwnerClaims(claim);
+            } else {
+                this.unindexClaimOwner(claim);
             }
             return;
         }
@@ -226,38 +285,100 @@ public void addClaim(Claim claimToAdd, boolean writeToStorage) {
         if (!this.worldClaims.contains(claim)) {
             this.worldClaims.add(claim);
         }
+        this.indexClaimOwner(claim);
+        this.addToCachedOwnerClaims(claim);
+        this.updateChunkHashes(claim);
+        return;
+    }
+
+    // Owners that are not cached pick the claim up from the owner index when loaded
+    private void addToCachedOwnerClaims(GPClaim claim) {
         final UUID ownerId = claim.getOwnerUniqueId();
-        final GPPlayerData playerData = this.getPlayerDataMap().get(ownerId);
+        final GPPlayerData playerData = ownerId == null ? null : this.getPlayerDataMap().get(ownerId);
         if (playerData != null) {
             List<Claim> playerClaims = playerData.getInternalClaims();
             if (!playerClaims.contains(claim)) {
                 playerClaims.add(claim);
             }
-        } else if (!claim.isAdminClaim()) {
-            this.createPlayerData(ownerId);
         }
-
-        this.updateChunkHashes(claim);
-        return;
     }
 
     public void updateChunkHashes(GPClaim claim) {
         this.deleteChunkHashes(claim);
         Set<Long> chunkHashes = claim.getChunkHashes(true);
+        this.invalidateChunkRasters(chunkHashes);
+        // later chunk loads and unloads adjust the count, see onChunkLoad and onChunkUnload
+        final ChunkProviderServer chunkProvider = ((WorldServer) claim.getWorld()).getChunkProvider();
+        int loadedChunkCount = 0;
         for (Long chunkHash : chunkHashes) {
-            Set<Claim> claimsInChunk = this.getInternalChunksToClaimsMap().get(chunkHash);
-            if (claimsInChunk == null) {
-                claimsInChunk = new HashSet<Claim>();
-                this.getInternalChunksToClaimsMap().put(chunkHash, claimsInChunk);
+            this.addChunkClaim(chunkHash, claim);
+            if (chunkProvider.getLoadedChunk((int) chunkHash.longValue(), (int) (chunkHash >>> 32)) != null) {
+                loadedChunkCount++;
             }
+        }
+        claim.setLoadedChunkCount(loadedChunkCount);
+    }
+
+    // All changes to chunksToClaimsMap go through here to keep the claimed chunk bitmap in sync
+    void addChunkClaim(long chunkHash, Claim claim) {
+        Set<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkHash);
+        if (claimsInChunk == null) {
+            claimsInChunk = new HashSet<>();
+            this.chunksToClaimsMap.put(chunkHash, claimsInChunk);
+            this.claimedChunks.set((int) chunkHash, (int) (chunkHash >>> 32));
+        }
 
-            claimsInChunk.add(claim);
+        claimsInChunk.add(claim);
+    }
+
+    void removeChunkClaim(long chunkHash, Claim claim) {
+        final Set<Claim> claimsInChunk = this.chunksToClaimsMap.get(chunkHash);
+        if (claimsInChunk == null || !claimsInChunk.remove(claim) || !claimsInChunk.isEmpty()) {
+            return;
+        }
+
+        this.chunksToClaimsMap.remove(chunkHash);
+        this.claimedChunks.clear((int) chunkHash, (int) (chunkHash >>> 32));
+    }
+
+    public boolean isChunkClaimed(int chunkX, int chunkZ) {
+        return this.claimedChunks.isClaimed(chunkX, chunkZ);
+    }
+
+    // Returns true if no claimed chunk lies within radius blocks of the position
+    public boolean isClaimFree(int x, int z, int radius) {
+        for (int chunkX = (x - radius) >> 4; chunkX <= (x + radius) >> 4; chunkX++) {
+            for (int chunkZ = (z - radius) >> 4; chunkZ <= (z + radius) >> 4; chunkZ++) {
+                if (this.claimedChunks.isClaimed(chunkX, chunkZ)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Returns true if the flag is allowed at the location without looking up claims or permissions
+    public boolean isUnrestrictedWilderness(Location<World> location, ClaimFlag flag) {
+        return !this.claimedChunks.isClaimed(location.getBlockX() >> 4, location.getBlockZ() >> 4)
+                && GPPermissionHandler.isWildernessUnrestricted(this.getWildernessClaim(), flag);
+    }
+
+    public boolean isUnrestrictedWilderness(Iterable<Location<World>> locations, ClaimFlag flag) {
+        if (!GPPermissionHandler.isWildernessUnrestricted(this.getWildernessClaim(), flag)) {
+            return false;
+        }
+        for (Location<World> location : locations) {
+            if (this.claimedChunks.isClaimed(location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+                return false;
+            }
         }
+        return true;
     }
 
     // Used when parent claims becomes children
     public void removeClaimData(Claim claim) {
         this.worldClaims.remove(claim);
+        this.unindexClaimOwner((GPClaim) claim);
         this.deleteChunkHashes((GPClaim) claim);
     }
 
@@ -283,16 +404,17 @@ public void deleteClaimInternal(Claim claim, boolean deleteChildren) {
             }
 
             GPClaim childClaim = (GPClaim) child;
-            ((GPClaim) claim).children.remove(childClaim);
+            gpClaim.children.remove(childClaim);
+            gpClaim.invalidateChildTree();
             childClaim.parent = gpClaim.parent;
             String fileName = childClaim.getClaimStorage().filePath.getFileName().toString();
             final Path newPath = gpClaim.getClaimStorage().filePath.getParent().getParent().resolve(childClaim.getType().name().toLowerCase()).resolve(fileName);
             try {
-                Files.createDirectories(newPath.getParent());
-                Files.move(childClaim.getClaimStorage().filePath, newPath);
-                childClaim.setClaimStorage(new ClaimStorageData(newPath, this.getWorldProperties().getUniqueId(), (ClaimDataConfig) childClaim.getInternalClaimData()));
+                DATASTORE.moveClaimStorage(childClaim, newPath);
                 if (childClaim.parent == null) {
                     this.addClaim(childClaim, false);
+                } else {
+                    this.updateOwnerIndex(childClaim);
                 }
             } catch (IOException e) {
                 e.printStackTrace();
@@ -300,7 +422,7 @@ public void deleteClaimInternal(Claim claim, boolean deleteChildren) {
         }
 
         // player may be offline so check is needed
-        GPPlayerData playerData = this.getPlayerDataMap().get(claim.getOwnerUniqueId());
+        GPPlayerData playerData = claim.getOwnerUniqueId() == null ? null : this.getPlayerDataMap().get(claim.getOwnerUniqueId());
         if (playerData != null) {
             playerData.getInternalClaims().remove(claim);
             if (playerData.lastClaim != null) {
@@ -322,10 +444,12 @@ public void deleteClaimInternal(Claim claim, boolean deleteChildren) {
             }
         }
         this.worldClaims.remove(claim);
+        this.unindexClaimOwner(gpClaim);
         this.claimUniqueIdMap.remove(claim.getUniqueId());
         this.deleteChunkHashes((GPClaim) claim);
         if (gpClaim.parent != null) {
             gpClaim.parent.children.remove(claim);
+            gpClaim.parent.invalidateChildTree();
         }
 
         // revert visuals for all players watching this claim
@@ -353,11 +477,26 @@ private void deleteChunkHashes(GPClaim claim) {
             return;
         }
 
+        this.invalidateChunkRasters(chunkHashes);
         for (Long chunkHash : chunkHashes) {
-            Set<Claim> claimsInChunk = this.getInternalChunksToClaimsMap().get(chunkHash);
-            if (claimsInChunk != null) {
-                claimsInChunk.remove(claim);
-            }
+            this.removeChunkClaim(chunkHash, claim);
+        }
+    }
+
+    // Lookup caches outside of the claim tree compare against this to drop stale results
+    public static int getClaimLayoutVersion() {
+        return claimLayoutVersion;
+    }
+
+    static void invalidateClaimLayout() {
+        claimLayoutVersion++;
+    }
+
+    // Rasters are rebuilt on next lookup so only the affected chunks are dropped
+    public void invalidateChunkRasters(Set<Long> chunkHashes) {
+        invalidateClaimLayout();
+        for (Long chunkHash : chunkHashes) {
+            this.chunkRasters.remove(chunkHash.longValue());
         }
     }
 
@@ -409,10 +548,14 @@ public List<Claim> getWorldClaims() {
     }
 
     public Map<UUID, GPPlayerData> getPlayerDataMap() {
+        return this.getPlayerDataCache().asMap();
+    }
+
+    public PlayerDataCache getPlayerDataCache() {
         if (DataStore.USE_GLOBAL_PLAYER_STORAGE) {
             return DataStore.GLOBAL_PLAYER_DATA;
         }
-        return this.playerDataList;
+        return this.playerDataCache;
     }
 
     @Override
@@ -424,23 +567,32 @@ public Map<Long, Set<Claim>> getInternalChunksToClaimsMap() {
         return this.chunksToClaimsMap;
     }
 
+    // Queues dirty claims and player data for the storage writer, files are written off the main thread
     public void save() {
-        for (Claim claim : this.worldClaims) {
-            GPClaim gpClaim = (GPClaim) claim;
-            gpClaim.save();
-        }
-        this.theWildernessClaim.save();
+        DATASTORE.getStorageWriter().flush(this.getPlayerDataMap().values());
+        // the flush above took a snapshot of any dirty player data, so evicting loses nothing
+        this.getPlayerDataCache().evict(GriefPreventionPlugin.getGlobalConfig().getConfig().playerdata.offlineCacheSize);
+    }
 
-        for (GPPlayerData playerData : this.getPlayerDataMap().values()) {
-            playerData.getStorageData().save();
-        }
+    public EntityBlockCache getEntityBlockCache() {
+        return this.entityBlockCache;
+    }
+
+    public ClaimBoundaryTracker getBoundaryTracker() {
+        return this.boundaryTracker;
     }
 
     public void unload() {
-        this.playerDataList.clear();
+        this.playerDataCache.clear();
         this.worldClaims.clear();
+        this.ownerClaimIndex.clear();
+        this.indexedClaimOwners.clear();
         this.claimUniqueIdMap.clear();
         this.chunksToClaimsMap.clear();
+        this.claimedChunks.clear();
+        this.chunkRasters.clear();
+        this.entityBlockCache.clear();
+        this.boundaryTracker.clear();
         if (this.theWildernessClaim != null) {
             this.theWildernessClaim.unload();
             this.theWildernessClaim = null;
@@ -448,6 +600,53 @@ public void unload() {
         this.worldProperties = null;
     }
 
+    // Starts reading the data of the claims in a chunk that is coming into use
+    public void onChunkLoad(int chunkX, int chunkZ) {
+        final Set<Claim> claimsInChunk = this.chunksToClaimsMap.get(ChunkPos.asLong(chunkX, chunkZ));
+        if (claimsInChunk == null) {
+            return;
+        }
+
+        for (Claim claim : claimsInChunk) {
+            final GPClaim gpClaim = (GPClaim) claim;
+            gpClaim.setLoadedChunkCount(gpClaim.getLoadedChunkCount() + 1);
+            preloadClaimStorage(gpClaim);
+        }
+    }
+
+    // Drops the data of claims in the chunk once no chunk they overlap is loaded anymore
+    public void onChunkUnload(int chunkX, int chunkZ) {
+        final Set<Claim> claimsInChunk = this.chunksToClaimsMap.get(ChunkPos.asLong(chunkX, chunkZ));
+        if (claimsInChunk == null) {
+            return;
+        }
+
+        // journaled claims are only readable from their files after compaction
+        final boolean releaseStorage = !DATASTORE.getStorageWriter().isJournaling();
+        for (Claim claim : claimsInChunk) {
+            final GPClaim gpClaim = (GPClaim) claim;
+            final int loadedChunkCount = Math.max(0, gpClaim.getLoadedChunkCount() - 1);
+            gpClaim.setLoadedChunkCount(loadedChunkCount);
+            if (releaseStorage && loadedChunkCount == 0 && gpClaim.isClaimStorageLoaded()) {
+                releaseClaimStorage(gpClaim);
+            }
+        }
+    }
+
+    private static void preloadClaimStorage(GPClaim claim) {
+        claim.preloadClaimStorage(GriefPreventionPlugin.instance.executor);
+        for (Claim child : claim.children) {
+            preloadClaimStorage((GPClaim) child);
+        }
+    }
+
+    private static void releaseClaimStorage(GPClaim claim) {
+        for (Claim child : claim.children) {
+            releaseClaimStorage((GPClaim) child);
+        }
+        claim.releaseClaimStorage();
+    }
+
     public Claim getClaimAtPlayer(GPPlayerData playerData, Location<World> location) {
         return this.getClaimAt(location, (GPClaim) playerData.lastClaim.get());
     }
@@ -467,52 +666,91 @@ public Claim getClaimAt(Location<World> location, GPClaim cachedClaim) {
             return cachedClaim;
         }
 
-        Set<Claim> claimsInChunk = this.getInternalChunksToClaimsMap().get(ChunkPos.asLong(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+        final GPClaim claim = this.getClaimAt(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        GPTimings.CLAIM_GETCLAIM.stopTimingIfSync();
+        return claim;
+    }
+
+    private GPClaim getClaimAt(int x, int y, int z) {
+        final long chunkHash = ChunkPos.asLong(x >> 4, z >> 4);
+        Set<Claim> claimsInChunk = this.getInternalChunksToClaimsMap().get(chunkHash);
         if (claimsInChunk == null) {
-            GPTimings.CLAIM_GETCLAIM.stopTimingIfSync();
             return this.getWildernessClaim();
         }
 
-        // TODO change to check deepest level and work its way up to root
+        // full height 2D claims resolve with a single raster read, the raster map is only touched on the main thread
+        if (y >= ClaimChunkRaster.MIN_BUILD_HEIGHT && y <= ClaimChunkRaster.MAX_BUILD_HEIGHT
+                && SpongeImpl.getServer().isCallingFromMinecraftThread()) {
+            ClaimChunkRaster raster = this.chunkRasters.get(chunkHash);
+            if (raster == null) {
+                raster = new ClaimChunkRaster(x >> 4, z >> 4, claimsInChunk);
+                this.chunkRasters.put(chunkHash, raster);
+            }
+            if (raster.isResolved(x & 15, z & 15)) {
+                final GPClaim claim = raster.getClaim(x & 15, z & 15);
+                return claim != null ? claim : this.getWildernessClaim();
+            }
+        }
+
         for (Claim claim : claimsInChunk) {
             final GPClaim gpClaim = (GPClaim) claim;
-            if (gpClaim.contains(location)) {
+            if (gpClaim.containsPosition(x, y, z)) {
                 // when we find a top level claim, if the location is in one of its children,
-                // return the child claim, not the top level claim
-                for (int i = 0; i < gpClaim.children.size(); i++) {
-                    GPClaim child = (GPClaim) gpClaim.children.get(i);
-                    // check if child has children (Town -> Basic -> Subdivision)
-                    for (int j = 0; j < child.children.size(); j++) {
-                        GPClaim innerChild = (GPClaim) child.children.get(j);
-                        for (int k = 0; k < innerChild.children.size(); k++) {
-                            Claim subChild = innerChild.children.get(k);
-                            if (subChild.contains(location)) {
-                                GPTimings.CLAIM_GETCLAIM.stopTimingIfSync();
-                                return subChild;
-                            }
-                        }
-
-                        if (innerChild.contains(location)) {
-                            GPTimings.CLAIM_GETCLAIM.stopTimingIfSync();
-                            return innerChild;
-                        }
-                    }
-                    if (child.contains(location)) {
-                        GPTimings.CLAIM_GETCLAIM.stopTimingIfSync();
-                        return child;
-                    }
-                }
-
-                GPTimings.CLAIM_GETCLAIM.stopTimingIfSync();
-                return gpClaim;
+                // return the deepest child claim, not the top level claim
+                return gpClaim.getDeepestClaimAt(x, y, z);
             }
         }
 
-        GPTimings.CLAIM_GETCLAIM.stopTimingIfSync();
         // if no claim found, return the world claim
         return this.getWildernessClaim();
     }
 
+    public Map<GPClaim, List<Location<World>>> getClaimsAt(Iterable<Location<World>> locations) {
+        return this.getClaimsAt(locations, location -> location);
+    }
+
+    // Resolves many elements at once and groups them by claim, keeping encounter order.
+    // Elements in a chunk without claims are all mapped to the wilderness with a single map lookup.
+    public <T> Map<GPClaim, List<T>> getClaimsAt(Iterable<T> elements, Function<T, Location<World>> locationMapper) {
+        GPTimings.CLAIM_GETCLAIM.startTimingIfSync();
+        final Map<GPClaim, List<T>> claimMap = new LinkedHashMap<>();
+        long lastChunkHash = 0;
+        boolean lastChunkClaimed = true;
+        GPClaim lastClaim = null;
+        List<T> lastElements = null;
+        for (T element : elements) {
+            final Location<World> location = locationMapper.apply(element);
+            if (location == null) {
+                continue;
+            }
+
+            final int x = location.getBlockX();
+            final int z = location.getBlockZ();
+            final long chunkHash = ChunkPos.asLong(x >> 4, z >> 4);
+            final GPClaim claim;
+            if (lastClaim != null && !lastChunkClaimed && chunkHash == lastChunkHash) {
+                claim = lastClaim;
+            } else {
+                lastChunkHash = chunkHash;
+                lastChunkClaimed = this.chunksToClaimsMap.get(chunkHash) != null;
+                claim = lastChunkClaimed ? this.getClaimAt(x, location.getBlockY(), z) : this.getWildernessClaim();
+            }
+
+            if (claim != lastClaim) {
+                lastClaim = claim;
+                lastElements = claimMap.get(claim);
+                if (lastElements == null) {
+                    lastElements = new ArrayList<>();
+                    claimMap.put(claim, lastElements);
+                }
+            }
+            lastElements.add(element);
+        }
+
+        GPTimings.CLAIM_GETCLAIM.stopTimingIfSync();
+        return claimMap;
+    }
+
     @Override
     public List<Claim> getClaimsByName(String name) {
         List<Claim> claimList = new ArrayList<>();
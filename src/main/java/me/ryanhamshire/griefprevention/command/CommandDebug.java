@@ -25,6 +25,7 @@
 package me.ryanhamshire.griefprevention.command;
 
 import me.ryanhamshire.griefprevention.GPDebugData;
+import me.ryanhamshire.griefprevention.GPFlags;
 import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
 import org.spongepowered.api.command.CommandResult;
 import org.spongepowered.api.command.CommandSource;
@@ -79,6 +80,8 @@ public CommandResult execute(CommandSource src, CommandContext ctx) {
             GriefPreventionPlugin.instance.getDebugUserMap().put(src.getIdentifier(), debugData);
         }
 
+        // debug output needs every flag listener registered
+        GPFlags.requestListenerUpdate();
         return CommandResult.success();
     }
 
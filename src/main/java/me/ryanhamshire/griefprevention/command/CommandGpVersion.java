@@ -54,7 +54,17 @@ public CommandResult execute(CommandSource src, CommandContext ctx) {
         String permissionPlugin = Sponge.getServiceManager().getRegistration(PermissionService.class).get().getPlugin().getId();
         String permissionVersion = Sponge.getServiceManager().getRegistration(PermissionService.class).get().getPlugin().getVersion().orElse("unknown");
         Text permVersion = Text.of(GriefPreventionPlugin.GP_TEXT, "Running ", TextColors.GREEN, permissionPlugin, " ", permissionVersion);
-        src.sendMessage(Text.of(gpVersion, "\n", spongeVersion, "\n", permVersion));
+        final long memoHits = GriefPreventionPlugin.instance.dataStore.getClaimLookupMemoHits();
+        final long memoLookups = memoHits + GriefPreventionPlugin.instance.dataStore.getClaimLookupMemoMisses();
+        final String memoHitRate = memoLookups == 0 ? "0.0" : String.format("%.1f", memoHits * 100.0 / memoLookups);
+        Text memoStats = Text.of(GriefPreventionPlugin.GP_TEXT, "Claim lookup memo ", TextColors.AQUA, memoHitRate, "%", TextColors.RESET,
+                " hit rate over ", memoLookups, " lookups");
+        final long entityCacheHits = GriefPreventionPlugin.instance.dataStore.getEntityBlockCacheHits();
+        final long entityCacheLookups = entityCacheHits + GriefPreventionPlugin.instance.dataStore.getEntityBlockCacheMisses();
+        final String entityCacheHitRate = entityCacheLookups == 0 ? "0.0" : String.format("%.1f", entityCacheHits * 100.0 / entityCacheLookups);
+        Text entityCacheStats = Text.of(GriefPreventionPlugin.GP_TEXT, "Entity block cache ", TextColors.AQUA, entityCacheHitRate, "%", TextColors.RESET,
+                " hit rate over ", entityCacheLookups, " lookups");
+        src.sendMessage(Text.of(gpVersion, "\n", spongeVersion, "\n", permVersion, "\n", memoStats, "\n", entityCacheStats));
         return CommandResult.success();
     }
 }
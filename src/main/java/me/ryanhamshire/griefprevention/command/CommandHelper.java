@@ -52,6 +52,7 @@
 import me.ryanhamshire.griefprevention.event.GPUserTrustClaimEvent;
 import me.ryanhamshire.griefprevention.permission.GPOptionHandler;
 import me.ryanhamshire.griefprevention.permission.GPOptions;
+import me.ryanhamshire.griefprevention.permission.GPPermissionHandler;
 import me.ryanhamshire.griefprevention.permission.GPPermissions;
 import me.ryanhamshire.griefprevention.util.PermissionUtils;
 import me.ryanhamshire.griefprevention.util.TaskUtils;
@@ -552,6 +553,7 @@ public static Consumer<CommandSource> createFlagConsumer(CommandSource src, Subj
             String target = flagPermission.replace(GPPermissions.FLAG_BASE + ".",  "");
             Set<Context> newContexts = new HashSet<>(contexts);
             subject.getSubjectData().setPermission(newContexts, flagPermission, newValue);
+            GPPermissionHandler.invalidateDecisionCache();
             src.sendMessage(Text.of(
                     TextColors.GREEN, "Set ", flagTypeText, " permission ", 
                     TextColors.AQUA, target, 
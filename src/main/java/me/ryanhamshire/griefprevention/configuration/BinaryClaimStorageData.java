@@ -0,0 +1,66 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.configuration;
+
+import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
+import me.ryanhamshire.griefprevention.claim.GPClaim;
+import org.spongepowered.common.SpongeImpl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+
+// Claim storage backed by a ClaimBinaryFormat file instead of HOCON
+public class BinaryClaimStorageData extends ClaimStorageData {
+
+    public BinaryClaimStorageData(Path path, UUID worldUniqueId, ClaimDataConfig claimData) {
+        super(path, claimData);
+        ((EconomyDataConfig) claimData.getEconomyData()).activeConfig = GriefPreventionPlugin.getActiveConfig(worldUniqueId);
+    }
+
+    // Used during server load
+    public static BinaryClaimStorageData load(Path path, UUID worldUniqueId) throws IOException {
+        return new BinaryClaimStorageData(path, worldUniqueId, ClaimBinaryFormat.read(path));
+    }
+
+    @Override
+    public byte[] serialize() throws IOException {
+        return ClaimBinaryFormat.encode(this.configBase);
+    }
+
+    @Override
+    public void reload() {
+        try {
+            ClaimBinaryFormat.readInto(this.filePath, this.configBase);
+        } catch (IOException e) {
+            SpongeImpl.getLogger().error("Failed to load claim data " + this.filePath, e);
+        }
+    }
+
+    @Override
+    public void migrateSubdivision(GPClaim parent) {
+        // binary claim files never contain legacy subdivisions
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.configuration;
+
+import com.flowpowered.math.vector.Vector3i;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import me.ryanhamshire.griefprevention.StorageWriter;
+import me.ryanhamshire.griefprevention.util.BlockUtils;
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.text.serializer.TextSerializers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+// Compact binary claim file layout
+//
+// int magic, byte version, byte kind
+// varint uuid count, 16 bytes per uuid
+// varint string count, varint length prefixed utf-8 per string
+// claim body
+//
+// UUIDs and strings are interned into the per file tables above and referenced
+// by index from the body. Bounds and dates are stored fixed width whenever their
+// text form can be rebuilt exactly, otherwise the original text is kept.
+public final class ClaimBinaryFormat {
+
+    public static final int MAGIC = 0x47504344;
+    public static final int VERSION = 1;
+
+    static final int KIND_CLAIM = 0;
+    static final int KIND_TOWN = 1;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FIXED = 1;
+    private static final int TAG_TEXT = 2;
+
+    private ClaimBinaryFormat() {
+    }
+
+    public static boolean isBinary(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            final byte[] header = new byte[4];
+            if (in.read(header) != 4) {
+                return false;
+            }
+            return ((header[0] & 0xFF) << 24 | (header[1] & 0xFF) << 16 | (header[2] & 0xFF) << 8 | header[3] & 0xFF) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static byte[] encode(ClaimDataConfig claimData) throws IOException {
+        final Output body = new Output();
+        claimData.writeBinary(body);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.buffer.size() + body.uniqueIds.size() * 16 + 64);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(claimData instanceof TownDataConfig ? KIND_TOWN : KIND_CLAIM);
+        writeVarInt(out, body.uniqueIds.size());
+        for (UUID uuid : body.uniqueIds) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+        writeVarInt(out, body.strings.size());
+        for (String string : body.strings) {
+            final byte[] utf = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, utf.length);
+            out.write(utf);
+        }
+        body.buffer.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static ClaimDataConfig decode(byte[] data) throws IOException {
+        return decode(data, null);
+    }
+
+    // Decodes into the given instance when present, the file kind must match its type
+    private static ClaimDataConfig decode(byte[] data, @Nullable ClaimDataConfig target) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a binary claim file");
+        }
+        final int version = in.readUnsignedByte();
+        if (version > VERSION) {
+            throw new IOException("Unsupported binary claim file version " + version);
+        }
+        final int kind = in.readUnsignedByte();
+
+        final UUID[] uniqueIds = new UUID[readVarInt(in)];
+        for (int i = 0; i < uniqueIds.length; i++) {
+            uniqueIds[i] = new UUID(in.readLong(), in.readLong());
+        }
+        final String[] strings = new String[readVarInt(in)];
+        for (int i = 0; i < strings.length; i++) {
+            final byte[] utf = new byte[readVarInt(in)];
+            in.readFully(utf);
+            strings[i] = new String(utf, StandardCharsets.UTF_8);
+        }
+
+        ClaimDataConfig claimData = target;
+        if (claimData == null) {
+            claimData = kind == KIND_TOWN ? new TownDataConfig() : new ClaimDataConfig();
+        } else if ((kind == KIND_TOWN) != (claimData instanceof TownDataConfig)) {
+            throw new IOException("Binary claim file kind " + kind + " does not match " + claimData.getClass().getSimpleName());
+        }
+        claimData.readBinary(new Input(in, uniqueIds, strings));
+        return claimData;
+    }
+
+    public static ClaimDataConfig read(Path path) throws IOException {
+        return decode(Files.readAllBytes(path), null);
+    }
+
+    public static void readInto(Path path, ClaimDataConfig claimData) throws IOException {
+        decode(Files.readAllBytes(path), claimData);
+    }
+
+    public static void write(Path path, ClaimDataConfig claimData) throws IOException {
+        StorageWriter.writeAtomic(path, encode(claimData));
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static final class Output {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        private final DataOutputStream out = new DataOutputStream(this.buffer);
+        private final Object2IntOpenHashMap<UUID> uniqueIdIndex = new Object2IntOpenHashMap<>();
+        private final List<UUID> uniqueIds = new ArrayList<>();
+        private final Object2IntOpenHashMap<String> stringIndex = new Object2IntOpenHashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        private Output() {
+            this.uniqueIdIndex.defaultReturnValue(-1);
+            this.stringIndex.defaultReturnValue(-1);
+        }
+
+        void writeBoolean(boolean value) throws IOException {
+            this.out.writeBoolean(value);
+        }
+
+        void writeByte(int value) throws IOException {
+            this.out.writeByte(value);
+        }
+
+        void writeDouble(double value) throws IOException {
+            this.out.writeDouble(value);
+        }
+
+        void writeVarInt(int value) throws IOException {
+            ClaimBinaryFormat.writeVarInt(this.out, value);
+        }
+
+        void writeUniqueId(@Nullable UUID uuid) throws IOException {
+            this.writeVarInt(uuid == null ? 0 : this.internUniqueId(uuid) + 1);
+        }
+
+        void writeString(@Nullable String string) throws IOException {
+            if (string == null) {
+                this.writeVarInt(0);
+                return;
+            }
+            int index = this.stringIndex.getInt(string);
+            if (index == -1) {
+                index = this.strings.size();
+                this.strings.add(string);
+                this.stringIndex.put(string, index);
+            }
+            this.writeVarInt(index + 1);
+        }
+
+        void writeText(@Nullable Text text) throws IOException {
+            this.writeString(text == null ? null : TextSerializers.JSON.serialize(text));
+        }
+
+        void writePosition(@Nullable String position) throws IOException {
+            if (position == null) {
+                this.out.writeByte(TAG_NULL);
+                return;
+            }
+            try {
+                final Vector3i pos = BlockUtils.positionFromString(position);
+                if (BlockUtils.positionToString(pos).equals(position)) {
+                    this.out.writeByte(TAG_FIXED);
+                    this.out.writeInt(pos.getX());
+                    this.out.writeInt(pos.getY());
+                    this.out.writeInt(pos.getZ());
+                    return;
+                }
+            } catch (Exception e) {
+                // fall through and keep the original text
+            }
+            this.out.writeByte(TAG_TEXT);
+            this.writeString(position);
+        }
+
+        void writeInstant(@Nullable String date) throws IOException {
+            if (date == null) {
+                this.out.writeByte(TAG_NULL);
+                return;
+            }
+            try {
+                final Instant instant = Instant.parse(date);
+                if (instant.toString().equals(date)) {
+                    this.out.writeByte(TAG_FIXED);
+                    this.out.writeLong(instant.getEpochSecond());
+                    this.out.writeInt(instant.getNano());
+                    return;
+                }
+            } catch (DateTimeParseException e) {
+                // fall through and keep the original text
+            }
+            this.out.writeByte(TAG_TEXT);
+            this.writeString(date);
+        }
+
+        // Members are interned in list order, so indexes are written as deltas to the previous entry
+        void writeUniqueIdList(List<UUID> uuids) throws IOException {
+            this.writeVarInt(uuids.size());
+            int previous = -1;
+            for (UUID uuid : uuids) {
+                final int index = this.internUniqueId(uuid);
+                final int delta = index - previous;
+                this.writeVarInt((delta << 1) ^ (delta >> 31));
+                previous = index;
+            }
+        }
+
+        void writeStringList(List<String> strings) throws IOException {
+            this.writeVarInt(strings.size());
+            for (String string : strings) {
+                this.writeString(string);
+            }
+        }
+
+        private int internUniqueId(UUID uuid) {
+            int index = this.uniqueIdIndex.getInt(uuid);
+            if (index == -1) {
+                index = this.uniqueIds.size();
+                this.uniqueIds.add(uuid);
+                this.uniqueIdIndex.put(uuid, index);
+            }
+            return index;
+        }
+    }
+
+    static final class Input {
+
+        private final DataInputStream in;
+        private final UUID[] uniqueIds;
+        private final String[] strings;
+
+        private Input(DataInputStream in, UUID[] uniqueIds, String[] strings) {
+            this.in = in;
+            this.uniqueIds = uniqueIds;
+            this.strings = strings;
+        }
+
+        boolean readBoolean() throws IOException {
+            return this.in.readBoolean();
+        }
+
+        int readByte() throws IOException {
+            return this.in.readUnsignedByte();
+        }
+
+        double readDouble() throws IOException {
+            return this.in.readDouble();
+        }
+
+        int readVarInt() throws IOException {
+            return ClaimBinaryFormat.readVarInt(this.in);
+        }
+
+        @Nullable
+        UUID readUniqueId() throws IOException {
+            final int index = this.readVarInt();
+            return index == 0 ? null : this.getUniqueId(index - 1);
+        }
+
+        @Nullable
+        String readString() throws IOException {
+            final int index = this.readVarInt();
+            if (index == 0) {
+                return null;
+            }
+            if (index > this.strings.length) {
+                throw new IOException("String index " + index + " out of range");
+            }
+            return this.strings[index - 1];
+        }
+
+        @Nullable
+        Text readText() throws IOException {
+            final String json = this.readString();
+            return json == null ? null : TextSerializers.JSON.deserialize(json);
+        }
+
+        @Nullable
+        String readPosition() throws IOException {
+            final int tag = this.in.readUnsignedByte();
+            if (tag == TAG_FIXED) {
+                return BlockUtils.positionToString(this.in.readInt(), this.in.readInt(), this.in.readInt());
+            }
+            return tag == TAG_TEXT ? this.readString() : null;
+        }
+
+        @Nullable
+        String readInstant() throws IOException {
+            final int tag = this.in.readUnsignedByte();
+            if (tag == TAG_FIXED) {
+                return Instant.ofEpochSecond(this.in.readLong(), this.in.readInt()).toString();
+            }
+            return tag == TAG_TEXT ? this.readString() : null;
+        }
+
+        List<UUID> readUniqueIdList() throws IOException {
+            final int size = this.readVarInt();
+            final List<UUID> uuids = new ArrayList<>(size);
+            int previous = -1;
+            for (int i = 0; i < size; i++) {
+                final int zigzag = this.readVarInt();
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                uuids.add(this.getUniqueId(previous));
+            }
+            return uuids;
+        }
+
+        List<String> readStringList() throws IOException {
+            final int size = this.readVarInt();
+            final List<String> strings = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                strings.add(this.readString());
+            }
+            return strings;
+        }
+
+        private UUID getUniqueId(int index) throws IOException {
+            if (index < 0 || index >= this.uniqueIds.length) {
+                throw new IOException("UUID index " + index + " out of range");
+            }
+            return this.uniqueIds[index];
+        }
+    }
+}
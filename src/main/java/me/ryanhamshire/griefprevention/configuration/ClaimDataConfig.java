@@ -26,7 +26,12 @@
 
 import com.flowpowered.math.vector.Vector3i;
 import com.google.common.collect.Maps;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import me.ryanhamshire.griefprevention.DataStore;
+import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
 import me.ryanhamshire.griefprevention.api.claim.ClaimType;
+import me.ryanhamshire.griefprevention.api.claim.TrustType;
 import me.ryanhamshire.griefprevention.api.data.EconomyData;
 import me.ryanhamshire.griefprevention.claim.GPClaim;
 import me.ryanhamshire.griefprevention.configuration.category.ConfigCategory;
@@ -36,6 +41,7 @@
 import org.spongepowered.api.text.Text;
 import org.spongepowered.api.util.Tristate;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -44,14 +50,28 @@
 import java.util.Optional;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 @ConfigSerializable
 public class ClaimDataConfig extends ConfigCategory implements IClaimData {
 
+    public static final int TRUST_ACCESSOR = 1;
+    public static final int TRUST_CONTAINER = 2;
+    public static final int TRUST_BUILDER = 4;
+    public static final int TRUST_MANAGER = 8;
+
     private boolean requiresSave = false;
     private Vector3i lesserPos;
     private Vector3i greaterPos;
     private Vector3i spawnPos;
     private ClaimStorageData claimStorage;
+    private TrustListView accessorsView;
+    private TrustListView buildersView;
+    private TrustListView containersView;
+    private TrustListView managersView;
+    // UUID -> TRUST_* bits, rebuilt lazily after trust changes
+    private Object2IntOpenHashMap<UUID> trustIndex;
+    private int trustVersion;
 
     @Setting
     private UUID parent;
@@ -274,7 +294,7 @@ public Optional<Vector3i> getSpawnPos() {
         if (this.spawnPos == null && this.claimSpawn != null) {
             try {
                 this.spawnPos = BlockUtils.positionFromString(this.claimSpawn);
-                this.requiresSave = true;
+                this.markDirty();
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -310,19 +330,104 @@ public Vector3i getGreaterBoundaryCornerPos() {
     }
 
     public List<UUID> getAccessors() {
-        return this.accessors;
+        if (this.accessorsView == null || this.accessorsView.delegate != this.accessors) {
+            this.accessorsView = new TrustListView(this.accessors, this::onTrustListChanged);
+            this.onTrustChanged();
+        }
+        return this.accessorsView;
     }
 
     public List<UUID> getBuilders() {
-        return this.builders;
+        if (this.buildersView == null || this.buildersView.delegate != this.builders) {
+            this.buildersView = new TrustListView(this.builders, this::onTrustListChanged);
+            this.onTrustChanged();
+        }
+        return this.buildersView;
     }
 
     public List<UUID> getContainers() {
-        return this.containers;
+        if (this.containersView == null || this.containersView.delegate != this.containers) {
+            this.containersView = new TrustListView(this.containers, this::onTrustListChanged);
+            this.onTrustChanged();
+        }
+        return this.containersView;
     }
 
     public List<UUID> getManagers() {
-        return this.managers;
+        if (this.managersView == null || this.managersView.delegate != this.managers) {
+            this.managersView = new TrustListView(this.managers, this::onTrustListChanged);
+            this.onTrustChanged();
+        }
+        return this.managersView;
+    }
+
+    // Returns the TRUST_* bits of every user trust list containing the uuid
+    public int getUserTrustLevels(UUID uuid) {
+        return this.getTrustIndex().getInt(uuid);
+    }
+
+    // Adds the TRUST_* bits of this claim's user trust lists to the given index
+    @Override
+    public void mergeUserTrustLevels(Object2IntOpenHashMap<UUID> index) {
+        for (Object2IntMap.Entry<UUID> entry : this.getTrustIndex().object2IntEntrySet()) {
+            index.put(entry.getKey(), index.getInt(entry.getKey()) | entry.getIntValue());
+        }
+    }
+
+    private Object2IntOpenHashMap<UUID> getTrustIndex() {
+        // refresh views first, config reloads replace the backing lists
+        final List<UUID> accessors = this.getAccessors();
+        final List<UUID> builders = this.getBuilders();
+        final List<UUID> containers = this.getContainers();
+        final List<UUID> managers = this.getManagers();
+        Object2IntOpenHashMap<UUID> index = this.trustIndex;
+        if (index == null) {
+            index = new Object2IntOpenHashMap<>(accessors.size() + builders.size() + containers.size() + managers.size());
+            addTrustLevel(index, accessors, TRUST_ACCESSOR);
+            addTrustLevel(index, builders, TRUST_BUILDER);
+            addTrustLevel(index, containers, TRUST_CONTAINER);
+            addTrustLevel(index, managers, TRUST_MANAGER);
+            this.trustIndex = index;
+        }
+        return index;
+    }
+
+    private static void addTrustLevel(Object2IntOpenHashMap<UUID> index, List<UUID> uuids, int level) {
+        for (UUID uuid : uuids) {
+            index.put(uuid, index.getInt(uuid) | level);
+        }
+    }
+
+    private void onTrustListChanged() {
+        this.onTrustChanged();
+        this.markDirty();
+    }
+
+    private void onTrustChanged() {
+        this.trustIndex = null;
+        this.trustVersion++;
+    }
+
+    // Incremented whenever this claim's user trust lists change, used to expire derived trust data
+    @Override
+    public int getTrustVersion() {
+        return this.trustVersion;
+    }
+
+    // Returns the TRUST_* bits that grant the given trust type
+    public static int getRequiredTrustLevels(TrustType type) {
+        switch (type) {
+            case ACCESSOR:
+                return TRUST_ACCESSOR | TRUST_CONTAINER | TRUST_BUILDER | TRUST_MANAGER;
+            case CONTAINER:
+                return TRUST_CONTAINER | TRUST_BUILDER | TRUST_MANAGER;
+            case BUILDER:
+                return TRUST_BUILDER | TRUST_MANAGER;
+            case MANAGER:
+                return TRUST_MANAGER;
+            default:
+                return 0;
+        }
     }
 
     public List<String> getAccessorGroups() {
@@ -343,13 +448,13 @@ public List<String> getManagerGroups() {
 
     @Override
     public void setDenyMessages(boolean flag) {
-        this.requiresSave = true;
+        this.markDirty();
         this.allowDenyMessages = flag;
     }
 
     @Override
     public void setExpiration(boolean flag) {
-        this.requiresSave = true;
+        this.markDirty();
         this.allowClaimExpiration = flag;
     }
 
@@ -365,81 +470,81 @@ public void setCuboid(boolean cuboid) {
 
     @Override
     public void setPvpOverride(Tristate pvp) {
-        this.requiresSave = true;
+        this.markDirty();
         this.pvpOverride = pvp;
     }
 
     @Override
     public void setResizable(boolean resizable) {
-        this.requiresSave = true;
+        this.markDirty();
         this.isResizable = resizable;
     }
 
     @Override
     public void setType(ClaimType type) {
-        this.requiresSave = true;
+        this.markDirty();
         this.claimType = type;
     }
 
     @Override
     public void setDateLastActive(Instant date) {
-        this.requiresSave = true;
+        this.markDirty();
         this.dateLastActive = date.toString();
     }
 
     @Override
     public void setName(Text name) {
-        this.requiresSave = true;
+        this.markDirty();
         this.claimName = name;
     }
 
     @Override
     public void setGreeting(Text message) {
-        this.requiresSave = true;
+        this.markDirty();
         this.claimGreetingMessage = message;
     }
 
     @Override
     public void setFarewell(Text message) {
-        this.requiresSave = true;
+        this.markDirty();
         this.claimFarewellMessage = message;
     }
 
     @Override
     public void setLesserBoundaryCorner(String location) {
-        this.requiresSave = true;
+        this.markDirty();
         this.lesserBoundaryCornerPos = location;
         this.lesserPos = null;
     }
 
     @Override
     public void setGreaterBoundaryCorner(String location) {
-        this.requiresSave = true;
+        this.markDirty();
         this.greaterBoundaryCornerPos = location;
         this.greaterPos = null;
     }
 
     @Override
     public void setAccessors(List<UUID> accessors) {
-        this.requiresSave = true;
+        this.markDirty();
         this.accessors = accessors;
     }
 
     @Override
     public void setBuilders(List<UUID> builders) {
-        this.requiresSave = true;
+        this.markDirty();
         this.builders = builders;
     }
 
     @Override
     public void setContainers(List<UUID> containers) {
-        this.requiresSave = true;
+        this.markDirty();
         this.containers = containers;
     }
 
     @Override
     public void setManagers(List<UUID> coowners) {
-        this.requiresSave = true;
+        this.markDirty();
         this.managers = coowners;
     }
 
@@ -453,7 +558,20 @@ public boolean requiresSave() {
 
     @Override
     public void setRequiresSave(boolean flag) {
-        this.requiresSave = flag;
+        if (flag) {
+            this.markDirty();
+        } else {
+            this.requiresSave = false;
+        }
+    }
+
+    // Flags the claim for the next write-behind flush
+    private void markDirty() {
+        this.requiresSave = true;
+        final DataStore dataStore = GriefPreventionPlugin.instance.dataStore;
+        if (dataStore != null) {
+            dataStore.getStorageWriter().markDirty(this);
+        }
     }
 
     @Override
@@ -472,22 +590,27 @@ public boolean doesInheritParent() {
 
     @Override
     public void setInheritParent(boolean flag) {
-        this.requiresSave = true;
+        this.markDirty();
         this.inheritParent = flag;
     }
 
     @Override
     public void setOwnerUniqueId(UUID newClaimOwner) {
-        this.requiresSave = true;
+        this.markDirty();
         this.ownerUniqueId = newClaimOwner;
     }
 
     @Override
     public void setWorldUniqueId(UUID uuid) {
-        this.requiresSave = true;
+        this.markDirty();
         this.worldUniqueId = uuid;
     }
 
+    @Nullable
+    public ClaimStorageData getClaimStorage() {
+        return this.claimStorage;
+    }
+
     public void setClaimStorageData(ClaimStorageData claimStorage) {
         this.claimStorage = claimStorage;
     }
@@ -503,7 +626,7 @@ public void setSpawnPos(Vector3i spawnPos) {
             return;
         }
 
-        this.requiresSave = true;
+        this.markDirty();
         this.spawnPos = spawnPos;
         this.claimSpawn = BlockUtils.positionToString(spawnPos);
     }
@@ -515,13 +638,13 @@ public boolean requiresClaimBlocks() {
 
     @Override
     public void setRequiresClaimBlocks(boolean requiresClaimBlocks) {
-        this.requiresSave = true;
+        this.markDirty();
         this.requiresClaimBlocks = requiresClaimBlocks;
     }
 
     @Override
     public void setParent(UUID uuid) {
-        this.requiresSave = true;
+        this.markDirty();
         this.parent = uuid;
     }
 
@@ -542,4 +665,81 @@ public void setExpired(boolean expire) {
     public EconomyData getEconomyData() {
         return this.economyData;
     }
+
+    void writeBinary(ClaimBinaryFormat.Output out) throws IOException {
+        int flags = 0;
+        flags |= this.inheritParent ? 1 : 0;
+        flags |= this.isCuboid ? 1 << 1 : 0;
+        flags |= this.isResizable ? 1 << 2 : 0;
+        flags |= this.isExpired ? 1 << 3 : 0;
+        flags |= this.sizeRestrictions ? 1 << 4 : 0;
+        flags |= this.allowDenyMessages ? 1 << 5 : 0;
+        flags |= this.allowClaimExpiration ? 1 << 6 : 0;
+        flags |= this.allowFlagOverrides ? 1 << 7 : 0;
+        flags |= this.requiresClaimBlocks ? 1 << 8 : 0;
+        out.writeVarInt(flags);
+        out.writeUniqueId(this.parent);
+        out.writeUniqueId(this.worldUniqueId);
+        out.writeUniqueId(this.ownerUniqueId);
+        out.writeString(this.claimType == null ? null : this.claimType.name());
+        out.writeByte(this.pvpOverride == null ? 0 : this.pvpOverride.ordinal() + 1);
+        out.writeInstant(this.dateCreated);
+        out.writeInstant(this.dateLastActive);
+        out.writeText(this.claimName);
+        out.writeText(this.claimGreetingMessage);
+        out.writeText(this.claimFarewellMessage);
+        out.writePosition(this.claimSpawn);
+        out.writePosition(this.lesserBoundaryCornerPos);
+        out.writePosition(this.greaterBoundaryCornerPos);
+        out.writeUniqueIdList(this.accessors);
+        out.writeUniqueIdList(this.builders);
+        out.writeUniqueIdList(this.containers);
+        out.writeUniqueIdList(this.managers);
+        out.writeStringList(this.accessorGroups);
+        out.writeStringList(this.builderGroups);
+        out.writeStringList(this.containerGroups);
+        out.writeStringList(this.managerGroups);
+        this.economyData.writeBinary(out);
+    }
+
+    void readBinary(ClaimBinaryFormat.Input in) throws IOException {
+        final int flags = in.readVarInt();
+        this.inheritParent = (flags & 1) != 0;
+        this.isCuboid = (flags & 1 << 1) != 0;
+        this.isResizable = (flags & 1 << 2) != 0;
+        this.isExpired = (flags & 1 << 3) != 0;
+        this.sizeRestrictions = (flags & 1 << 4) != 0;
+        this.allowDenyMessages = (flags & 1 << 5) != 0;
+        this.allowClaimExpiration = (flags & 1 << 6) != 0;
+        this.allowFlagOverrides = (flags & 1 << 7) != 0;
+        this.requiresClaimBlocks = (flags & 1 << 8) != 0;
+        this.parent = in.readUniqueId();
+        this.worldUniqueId = in.readUniqueId();
+        this.ownerUniqueId = in.readUniqueId();
+        final String type = in.readString();
+        this.claimType = type == null ? null : ClaimType.valueOf(type);
+        final int pvp = in.readByte();
+        this.pvpOverride = pvp == 0 ? null : Tristate.values()[pvp - 1];
+        this.dateCreated = in.readInstant();
+        this.dateLastActive = in.readInstant();
+        this.claimName = in.readText();
+        this.claimGreetingMessage = in.readText();
+        this.claimFarewellMessage = in.readText();
+        this.claimSpawn = in.readPosition();
+        this.lesserBoundaryCornerPos = in.readPosition();
+        this.greaterBoundaryCornerPos = in.readPosition();
+        this.accessors = in.readUniqueIdList();
+        this.builders = in.readUniqueIdList();
+        this.containers = in.readUniqueIdList();
+        this.managers = in.readUniqueIdList();
+        this.accessorGroups = in.readStringList();
+        this.builderGroups = in.readStringList();
+        this.containerGroups = in.readStringList();
+        this.managerGroups = in.readStringList();
+        this.economyData.readBinary(in);
+        this.lesserPos = null;
+        this.greaterPos = null;
+        this.spawnPos = null;
+        this.onTrustChanged();
+    }
 }
\ No newline at end of file
@@ -25,7 +25,10 @@
 package me.ryanhamshire.griefprevention.configuration;
 
 import com.flowpowered.math.vector.Vector3i;
+import me.ryanhamshire.griefprevention.DataStore;
+import me.ryanhamshire.griefprevention.GPTimings;
 import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
+import me.ryanhamshire.griefprevention.StorageWriter;
 import me.ryanhamshire.griefprevention.api.claim.ClaimType;
 import me.ryanhamshire.griefprevention.claim.GPClaim;
 import me.ryanhamshire.griefprevention.claim.GPClaimManager;
@@ -41,8 +44,11 @@
 import org.spongepowered.api.world.World;
 import org.spongepowered.common.SpongeImpl;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
@@ -138,7 +144,8 @@ public ClaimStorageData(Path path, UUID worldUniqueId, ClaimDataConfig claimData
             }
 
             this.loader = HoconConfigurationLoader.builder().setPath(path).build();
-            this.configMapper = (ObjectMapper.BoundInstance) ObjectMapper.forClass(ClaimDataConfig.class).bind(claimData);
+            // keep town data when a town is moved or converted
+            this.configMapper = (ObjectMapper.BoundInstance) ObjectMapper.forClass((Class) claimData.getClass()).bind(claimData);
             this.configMapper.getInstance().setClaimStorageData(this);
             reload();
             ((EconomyDataConfig) this.configMapper.getInstance().getEconomyData()).activeConfig = GriefPreventionPlugin.getActiveConfig(worldUniqueId);
@@ -172,20 +179,48 @@ public ClaimStorageData(Path path, UUID worldUniqueId) {
         }
     }
 
+    // Used by storage formats that do not go through Configurate
+    protected ClaimStorageData(Path path, ClaimDataConfig claimData) {
+        this.filePath = path;
+        this.folderPath = path.getParent();
+        this.configBase = claimData;
+        this.configBase.setClaimStorageData(this);
+    }
+
     public ClaimDataConfig getConfig() {
         return this.configBase;
     }
 
+    // Marks the claim dirty for the next group commit, only writes directly while no data store is set up
     public void save() {
+        final DataStore dataStore = GriefPreventionPlugin.instance.dataStore;
+        if (dataStore != null) {
+            dataStore.getStorageWriter().commitLater(this.configBase);
+            return;
+        }
+        GPTimings.CLAIM_SAVE.startTimingIfSync();
+        try {
+            StorageWriter.writeAtomic(this.filePath, this.serialize());
+            this.configBase.setRequiresSave(false);
+        } catch (IOException e) {
+            SpongeImpl.getLogger().error("Failed to save configuration", e);
+        } finally {
+            GPTimings.CLAIM_SAVE.stopTimingIfSync();
+        }
+    }
+
+    // Serializes the claim on the calling thread, the result can be written from any thread
+    public byte[] serialize() throws IOException {
         try {
             // subdivisions are stored in their own claim files
             this.root.getNode(GriefPreventionPlugin.MOD_ID).removeChild("subdivisions");
             this.configMapper.serialize(this.root.getNode(GriefPreventionPlugin.MOD_ID));
-            this.loader.save(this.root);
-            this.configBase.setRequiresSave(false);
-        } catch (IOException | ObjectMappingException e) {
-            SpongeImpl.getLogger().error("Failed to save configuration", e);
+        } catch (ObjectMappingException e) {
+            throw new IOException(e);
         }
+        final StringWriter writer = new StringWriter();
+        HoconConfigurationLoader.builder().setSink(() -> new BufferedWriter(writer)).build().save(this.root);
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
     }
 
     public void reload() {
@@ -31,6 +31,7 @@
 import ninja.leaping.configurate.objectmapping.Setting;
 import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
@@ -117,4 +118,20 @@ public void addBankTransaction(BankTransaction transaction) {
     public void clearBankTransactionLog() {
         this.bankTransactionLog.clear();
     }
+
+    void writeBinary(ClaimBinaryFormat.Output out) throws IOException {
+        out.writeBoolean(this.forSale);
+        out.writeDouble(this.salePrice);
+        out.writeDouble(this.taxBalance);
+        out.writeInstant(this.taxPastDueDate);
+        out.writeStringList(this.bankTransactionLog);
+    }
+
+    void readBinary(ClaimBinaryFormat.Input in) throws IOException {
+        this.forSale = in.readBoolean();
+        this.salePrice = in.readDouble();
+        this.taxBalance = in.readDouble();
+        this.taxPastDueDate = in.readInstant();
+        this.bankTransactionLog = in.readStringList();
+    }
 }
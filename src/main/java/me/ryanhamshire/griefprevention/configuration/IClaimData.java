@@ -24,6 +24,7 @@
  */
 package me.ryanhamshire.griefprevention.configuration;
 
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import me.ryanhamshire.griefprevention.api.claim.ClaimType;
 import me.ryanhamshire.griefprevention.api.data.ClaimData;
 
@@ -78,4 +79,8 @@ public interface IClaimData extends ClaimData {
     void setExpired(boolean expire);
 
     Map<UUID, ClaimDataConfig> getSubdivisions();
+
+    void mergeUserTrustLevels(Object2IntOpenHashMap<UUID> index);
+
+    int getTrustVersion();
 }
\ No newline at end of file
@@ -28,6 +28,9 @@
 import ninja.leaping.configurate.objectmapping.Setting;
 import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @ConfigSerializable
 public class PlayerDataConfig extends ConfigCategory {
 
@@ -40,6 +43,10 @@ public class PlayerDataConfig extends ConfigCategory {
     private int bonusClaimBlocks = 0;
     @Setting(value = "migrated-blocks")
     private boolean migrated = false;
+    @Setting(value = "ignored-players", comment = "Players ignored in chat, admin enforced ignores begin with an asterisk. Only used when ignore lists are stored in player data.")
+    private List<String> ignoredPlayers = new ArrayList<>();
+    @Setting(value = "migrated-ignore-list")
+    private boolean migratedIgnoreList = false;
 
     public int getAccruedClaimBlocks() {
         return this.accruedClaimBlocks;
@@ -59,6 +66,15 @@ public void setBonusClaimBlocks(int blocks) {
         this.bonusClaimBlocks = blocks;
     }
 
+    public List<String> getIgnoredPlayers() {
+        return this.ignoredPlayers;
+    }
+
+    public void setIgnoredPlayers(List<String> ignoredPlayers) {
+        this.requiresSave = true;
+        this.ignoredPlayers = ignoredPlayers;
+    }
+
     public boolean requiresSave() {
         return this.requiresSave;
     }
@@ -67,6 +83,16 @@ public void setRequiresSave(boolean flag) {
         this.requiresSave = flag;
     }
 
+    // Set once the old .ignore file was read into this record, the file is ignored from then on
+    public boolean hasMigratedIgnoreList() {
+        return this.migratedIgnoreList;
+    }
+
+    public void setMigratedIgnoreList(boolean flag) {
+        this.requiresSave = true;
+        this.migratedIgnoreList = flag;
+    }
+
     // Remove after 4.0
     public boolean hasMigratedBlocks() {
         return this.migrated;
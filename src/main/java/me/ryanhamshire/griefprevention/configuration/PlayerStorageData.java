@@ -24,7 +24,9 @@
  */
 package me.ryanhamshire.griefprevention.configuration;
 
+import me.ryanhamshire.griefprevention.DataStore;
 import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
+import me.ryanhamshire.griefprevention.StorageWriter;
 import ninja.leaping.configurate.ConfigurationOptions;
 import ninja.leaping.configurate.commented.CommentedConfigurationNode;
 import ninja.leaping.configurate.commented.SimpleCommentedConfigurationNode;
@@ -33,7 +35,10 @@
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
 import org.spongepowered.common.SpongeImpl;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
@@ -44,10 +49,11 @@ public class PlayerStorageData {
             .setHeader(GriefPreventionPlugin.CONFIG_HEADER));
     private ObjectMapper<PlayerDataConfig>.BoundInstance configMapper;
     private PlayerDataConfig configBase;
+    public Path filePath;
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     public PlayerStorageData(Path path) {
-
+        this.filePath = path;
         try {
             Files.createDirectories(path.getParent());
             if (Files.notExists(path)) {
@@ -64,6 +70,20 @@ public PlayerStorageData(Path path) {
         }
     }
 
+    // Used by storage that does not read from a player file
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected PlayerStorageData(Path path, HoconConfigurationLoader loader) {
+        this.filePath = path;
+        try {
+            this.loader = loader;
+            this.configMapper = (ObjectMapper.BoundInstance) ObjectMapper.forClass(PlayerDataConfig.class).bindToNew();
+
+            reload();
+        } catch (Exception e) {
+            SpongeImpl.getLogger().error("Failed to initialize configuration", e);
+        }
+    }
+
     public PlayerDataConfig getConfig() {
         return this.configBase;
     }
@@ -72,16 +92,32 @@ public void save() {
         try {
             if (this.configBase != null) {
                 if (this.configBase.requiresSave()) {
-                    this.configMapper.serialize(this.root.getNode(GriefPreventionPlugin.MOD_ID));
-                    this.loader.save(this.root);
+                    final DataStore dataStore = GriefPreventionPlugin.instance.dataStore;
+                    if (dataStore != null) {
+                        // an older snapshot still being written must not overwrite this one
+                        dataStore.getStorageWriter().awaitPlayerWrite(this.filePath);
+                    }
+                    StorageWriter.writeAtomic(this.filePath, this.serialize());
                     this.configBase.setRequiresSave(false);
                 }
             }
-        } catch (IOException | ObjectMappingException e) {
+        } catch (IOException e) {
             SpongeImpl.getLogger().error("Failed to save configuration", e);
         }
     }
 
+    // Serializes the player data on the calling thread, the result can be written from any thread
+    public byte[] serialize() throws IOException {
+        try {
+            this.configMapper.serialize(this.root.getNode(GriefPreventionPlugin.MOD_ID));
+        } catch (ObjectMappingException e) {
+            throw new IOException(e);
+        }
+        final StringWriter writer = new StringWriter();
+        HoconConfigurationLoader.builder().setSink(() -> new BufferedWriter(writer)).build().save(this.root);
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
     public void reload() {
         try {
             this.root = this.loader.load(ConfigurationOptions.defaults()
@@ -0,0 +1,74 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.configuration;
+
+import me.ryanhamshire.griefprevention.ClaimDatabase;
+import me.ryanhamshire.griefprevention.DataStore;
+import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
+import ninja.leaping.configurate.hocon.HoconConfigurationLoader;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+// Player storage backed by a row in the claim database holding the HOCON player file text
+public class SqlPlayerStorageData extends PlayerStorageData {
+
+    private final ClaimDatabase database;
+    private final String scope;
+    private final UUID playerUniqueId;
+
+    public SqlPlayerStorageData(ClaimDatabase database, Path path, @Nullable UUID worldUniqueId, UUID playerUniqueId) {
+        super(path, HoconConfigurationLoader.builder()
+                .setSource(() -> new BufferedReader(new StringReader(database.loadPlayer(ClaimDatabase.getPlayerScope(worldUniqueId), playerUniqueId))))
+                .build());
+        this.database = database;
+        this.scope = ClaimDatabase.getPlayerScope(worldUniqueId);
+        this.playerUniqueId = playerUniqueId;
+    }
+
+    public ClaimDatabase getDatabase() {
+        return this.database;
+    }
+
+    public String getScope() {
+        return this.scope;
+    }
+
+    public UUID getPlayerUniqueId() {
+        return this.playerUniqueId;
+    }
+
+    @Override
+    public void save() {
+        final DataStore dataStore = GriefPreventionPlugin.instance.dataStore;
+        if (dataStore != null && this.getConfig() != null && this.getConfig().requiresSave()) {
+            dataStore.getStorageWriter().saveLater(this);
+        }
+    }
+}
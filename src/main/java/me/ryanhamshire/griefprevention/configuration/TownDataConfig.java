@@ -29,6 +29,7 @@
 import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
 import org.spongepowered.api.text.Text;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -58,4 +59,34 @@ public Map<UUID, String> getResidentPastDueTaxTimestamps() {
     public Map<UUID, Double> getResidentTaxBalances() {
         return this.residentTaxBalances;
     }
+
+    @Override
+    void writeBinary(ClaimBinaryFormat.Output out) throws IOException {
+        super.writeBinary(out);
+        out.writeText(this.townTag);
+        out.writeVarInt(this.residentPastDueTaxTimestamps.size());
+        for (Map.Entry<UUID, String> entry : this.residentPastDueTaxTimestamps.entrySet()) {
+            out.writeUniqueId(entry.getKey());
+            out.writeInstant(entry.getValue());
+        }
+        out.writeVarInt(this.residentTaxBalances.size());
+        for (Map.Entry<UUID, Double> entry : this.residentTaxBalances.entrySet()) {
+            out.writeUniqueId(entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+    }
+
+    @Override
+    void readBinary(ClaimBinaryFormat.Input in) throws IOException {
+        super.readBinary(in);
+        this.townTag = in.readText();
+        this.residentPastDueTaxTimestamps = Maps.newHashMap();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            this.residentPastDueTaxTimestamps.put(in.readUniqueId(), in.readInstant());
+        }
+        this.residentTaxBalances = Maps.newHashMap();
+        for (int i = in.readVarInt(); i > 0; i--) {
+            this.residentTaxBalances.put(in.readUniqueId(), in.readDouble());
+        }
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.configuration;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.UUID;
+
+// Mutable view over a persisted trust list.
+// Every structural change goes through set/add/remove so the owning config can
+// drop its trust index, including removals made through iterators.
+final class TrustListView extends AbstractList<UUID> implements RandomAccess {
+
+    final List<UUID> delegate;
+    private final Runnable onChange;
+
+    TrustListView(List<UUID> delegate, Runnable onChange) {
+        this.delegate = delegate;
+        this.onChange = onChange;
+    }
+
+    @Override
+    public UUID get(int index) {
+        return this.delegate.get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.delegate.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return this.delegate.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return this.delegate.indexOf(o);
+    }
+
+    @Override
+    public UUID set(int index, UUID element) {
+        final UUID previous = this.delegate.set(index, element);
+        this.onChange.run();
+        return previous;
+    }
+
+    @Override
+    public void add(int index, UUID element) {
+        this.delegate.add(index, element);
+        this.modCount++;
+        this.onChange.run();
+    }
+
+    @Override
+    public UUID remove(int index) {
+        final UUID removed = this.delegate.remove(index);
+        this.modCount++;
+        this.onChange.run();
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        this.delegate.clear();
+        this.modCount++;
+        this.onChange.run();
+    }
+}
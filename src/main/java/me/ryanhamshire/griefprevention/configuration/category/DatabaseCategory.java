@@ -30,10 +30,11 @@
 @ConfigSerializable
 public class DatabaseCategory extends ConfigCategory {
 
-    @Setting(value = "password", comment = "password")
+    @Setting(value = "password", comment = "The database password, if not part of the url.")
     public String dbPassword = "";
-    @Setting(value = "username", comment = "username")
+    @Setting(value = "username", comment = "The database username, if not part of the url.")
     public String dbUsername = "";
-    @Setting(value = "url", comment = "url")
+    @Setting(value = "url", comment = "The JDBC url of the database, leave empty to store data in files."
+            + "\nExample: 'jdbc:mysql://localhost/griefprevention' or 'jdbc:h2:./config/griefprevention/griefprevention'")
     public String dbURL = "";
 }
\ No newline at end of file
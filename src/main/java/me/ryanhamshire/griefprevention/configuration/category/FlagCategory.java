@@ -52,6 +52,12 @@ public class FlagCategory extends ConfigCategory {
             + "Note: All flags in this list will be used to determine which user permission to check such as 'griefprevention.user.flag.block-break'.")
     private List<String> userClaimFlags = new ArrayList<>();
 
+    @Setting(value = "wilderness-fast-path", comment = "Skip claim lookups and permission checks for events in chunks without claims when the wilderness\n"
+            + "defaults allow the flag and no wilderness override or flag denies it.\n"
+            + "Note: Denials on groups and users are detected once the permission plugin has loaded them. Disable this if wilderness\n"
+            + "flags are denied for offline players or groups that are loaded on demand.")
+    private boolean wildernessFastPath = true;
+
     public FlagCategory() {
         defaultAdminFlags.put(ClaimFlag.BLOCK_BREAK.toString(), false);
         defaultAdminFlags.put(ClaimFlag.BLOCK_PLACE.toString(), false);
@@ -227,4 +233,8 @@ public Map<String, Boolean> getWildernessDefaults() {
     public List<String> getUserClaimFlags() {
         return this.userClaimFlags;
     }
+
+    public boolean isWildernessFastPathEnabled() {
+        return this.wildernessFastPath;
+    }
 }
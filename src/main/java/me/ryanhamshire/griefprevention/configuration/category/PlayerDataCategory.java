@@ -33,6 +33,9 @@ public class PlayerDataCategory extends ConfigCategory {
 
     @Setting(value = "use-global-storage", comment = "Whether player data should be stored globally. False will store all data per world.")
     public boolean useGlobalPlayerDataStorage = true;
+    @Setting(value = "offline-cache-size", comment = "The number of offline players whose data is kept in memory. (Default: 500)"
+            + "\nLeast recently used entries beyond this are dropped after the data is saved and loaded again when needed.")
+    public int offlineCacheSize = 500;
     @Setting(value = "claim-block-system", comment = "Determines which claim block system to use for claims. (Default: AREA)\nIf set to VOLUME, claim blocks will use the chunk count system to balance 3d claiming."
             + "\nIf set to AREA, the standard 2d block count system will be used.")
     public ClaimBlockSystem claimBlockSystem = ClaimBlockSystem.AREA;
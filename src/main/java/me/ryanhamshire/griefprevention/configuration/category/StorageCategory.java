@@ -0,0 +1,48 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.configuration.category;
+
+import ninja.leaping.configurate.objectmapping.Setting;
+import ninja.leaping.configurate.objectmapping.serialize.ConfigSerializable;
+
+@ConfigSerializable
+public class StorageCategory extends ConfigCategory {
+
+    @Setting(value = "claim-data-format", comment = "The file format used to store claim data. Accepted values are 'hocon' and 'binary'. (Default: hocon)"
+            + "\nExisting claim files are converted to the selected format when their world loads."
+            + "\nNote: It is recommended to backup claim data before switching formats.")
+    public String claimDataFormat = "hocon";
+    @Setting(value = "claim-journal", comment = "If enabled, claim changes are appended to a per world journal instead of rewriting claim files. (Default: false)"
+            + "\nThe journal is compacted into the claim files when it grows too large, on shutdown and when the world loads.")
+    public boolean claimJournal = false;
+    @Setting(value = "journal-max-size", comment = "The size in KB a claim journal may reach before it is compacted. (Default: 4096)")
+    public int journalMaxSize = 4096;
+    @Setting(value = "claim-index", comment = "If enabled, a snapshot of each world's claim bounds and hierarchy is saved on shutdown. (Default: true)"
+            + "\nClaims whose files are unchanged are placed from the snapshot at startup and their files are read on first use.")
+    public boolean claimIndex = true;
+    @Setting(value = "ignore-lists-in-player-data", comment = "If enabled, chat ignore lists are stored in the player data instead of separate .ignore files. (Default: false)"
+            + "\nOnly applies when global player data is used. Existing .ignore files are read once and moved into the player data.")
+    public boolean ignoreListsInPlayerData = false;
+}
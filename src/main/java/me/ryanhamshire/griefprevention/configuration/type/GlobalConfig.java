@@ -25,12 +25,14 @@
 package me.ryanhamshire.griefprevention.configuration.type;
 
 import me.ryanhamshire.griefprevention.configuration.category.BanCategory;
+import me.ryanhamshire.griefprevention.configuration.category.DatabaseCategory;
 import me.ryanhamshire.griefprevention.configuration.category.LoggingCategory;
 import me.ryanhamshire.griefprevention.configuration.category.MessageCategory;
 import me.ryanhamshire.griefprevention.configuration.category.MigratorCategory;
 import me.ryanhamshire.griefprevention.configuration.category.ModuleCategory;
 import me.ryanhamshire.griefprevention.configuration.category.PlayerDataCategory;
 import me.ryanhamshire.griefprevention.configuration.category.SpamCategory;
+import me.ryanhamshire.griefprevention.configuration.category.StorageCategory;
 import me.ryanhamshire.griefprevention.configuration.category.ThreadCategory;
 import ninja.leaping.configurate.objectmapping.Setting;
 
@@ -38,8 +40,9 @@ public class GlobalConfig extends ConfigBase {
 
     @Setting
     public BanCategory bans = new BanCategory();
-    //@Setting
-    //public DatabaseCategory database = new DatabaseCategory();
+    @Setting(comment = "Stores claims and player data in a SQL database instead of files when a url is set."
+            + "\nExisting claim files of a world are imported into the database when the world loads.")
+    public DatabaseCategory database = new DatabaseCategory();
     @Setting
     public LoggingCategory logging = new LoggingCategory();
     @Setting
@@ -55,5 +58,7 @@ public class GlobalConfig extends ConfigBase {
     @Setting(value = "modules")
     public ModuleCategory modules = new ModuleCategory();
     @Setting
+    public StorageCategory storage = new StorageCategory();
+    @Setting
     public ThreadCategory thread = new ThreadCategory();
 }
@@ -33,16 +33,18 @@
 import me.ryanhamshire.griefprevention.GPTimings;
 import me.ryanhamshire.griefprevention.GriefPrevention;
 import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
+import me.ryanhamshire.griefprevention.api.claim.ClaimFlag;
 import me.ryanhamshire.griefprevention.api.claim.ClaimResult;
 import me.ryanhamshire.griefprevention.api.claim.ClaimType;
 import me.ryanhamshire.griefprevention.api.claim.TrustType;
 import me.ryanhamshire.griefprevention.claim.GPClaim;
+import me.ryanhamshire.griefprevention.claim.GPClaimManager;
 import me.ryanhamshire.griefprevention.configuration.GriefPreventionConfig;
 import me.ryanhamshire.griefprevention.permission.GPPermissionHandler;
 import me.ryanhamshire.griefprevention.permission.GPPermissions;
-import me.ryanhamshire.griefprevention.util.BlockPosCache;
 import me.ryanhamshire.griefprevention.util.BlockUtils;
 import me.ryanhamshire.griefprevention.util.CauseContextHelper;
+import me.ryanhamshire.griefprevention.util.EntityBlockCache;
 import me.ryanhamshire.griefprevention.visual.Visualization;
 import me.ryanhamshire.griefprevention.visual.VisualizationType;
 import net.minecraft.block.BlockBasePressurePlate;
@@ -53,6 +55,7 @@
 import net.minecraft.util.math.BlockPos;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.block.BlockSnapshot;
+import org.spongepowered.api.block.BlockState;
 import org.spongepowered.api.block.BlockType;
 import org.spongepowered.api.block.BlockTypes;
 import org.spongepowered.api.block.tileentity.TileEntity;
@@ -71,7 +74,6 @@
 import org.spongepowered.api.event.cause.Cause;
 import org.spongepowered.api.event.cause.EventContext;
 import org.spongepowered.api.event.cause.EventContextKeys;
-import org.spongepowered.api.event.filter.cause.Root;
 import org.spongepowered.api.event.world.ExplosionEvent;
 import org.spongepowered.api.service.user.UserStorageService;
 import org.spongepowered.api.text.Text;
@@ -86,13 +88,20 @@
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 //event handlers related to blocks
 public class BlockEventHandler {
 
+    // Break and place events with at least this many transactions resolve claims chunk by chunk
+    // and check each distinct claim and block state once
+    private static final int BULK_TRANSACTION_THRESHOLD = 64;
+
     // convenience reference to singleton datastore
     private final DataStore dataStore;
     private final UserStorageService userStorageService;
@@ -133,8 +142,6 @@ public void onBlockPre(ChangeBlockEvent.Pre event) {
                 return;
             }
     
-            GPClaim sourceClaim = this.dataStore.getClaimAt(sourceLocation);
-            GPClaim targetClaim = null;
             List<Location<World>> sourceLocations = event.getLocations();
             if (pistonExtend) {
                 // check next block in extend direction
@@ -144,81 +151,124 @@ public void onBlockPre(ChangeBlockEvent.Pre event) {
                 final Location<World> dirLoc = location.getBlockRelative(direction);
                 sourceLocations.add(dirLoc);
             }
-            for (Location<World> location : sourceLocations) {
-                targetClaim = this.dataStore.getClaimAt(location, targetClaim);
+            final boolean fireSpread = GPFlags.FIRE_SPREAD && context.containsKey(EventContextKeys.FIRE_SPREAD);
+            if (this.isUnrestrictedWilderness(sourceLocation.getExtent(), sourceLocations, fireSpread)) {
+                GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
+                return;
+            }
 
+            GPClaim sourceClaim = this.dataStore.getClaimAt(sourceLocation);
+            for (Map.Entry<GPClaim, List<Location<World>>> mapEntry : this.dataStore.getClaimsAt(sourceLocation.getExtent(), sourceLocations).entrySet()) {
+                final GPClaim targetClaim = mapEntry.getKey();
                 if (user != null && targetClaim.isUserTrusted(user, TrustType.BUILDER)) {
-                    GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
                     continue;
                 }
                 if (sourceClaim.getOwnerUniqueId().equals(targetClaim.getOwnerUniqueId()) && user == null) {
-                    GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
                     continue;
                 }
                 if (user != null && pistonExtend) {
                     if (targetClaim.isUserTrusted(user, TrustType.ACCESSOR)) {
-                        GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
                         continue;
                     }
                 }
-                if (GPFlags.FIRE_SPREAD && context.containsKey(EventContextKeys.FIRE_SPREAD)) {
-                    if (GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.FIRE_SPREAD, rootCause, location.getBlock(), user, true) == Tristate.FALSE) {
+
+                // locations in the same claim only differ by block state
+                final Map<BlockState, Tristate> fireSpreadResults = new HashMap<>();
+                final Map<BlockState, Tristate> blockBreakResults = new HashMap<>();
+                for (Location<World> location : mapEntry.getValue()) {
+                    final BlockState blockState = location.getBlock();
+                    if (GPFlags.FIRE_SPREAD && context.containsKey(EventContextKeys.FIRE_SPREAD)) {
+                        Tristate result = fireSpreadResults.get(blockState);
+                        if (result == null) {
+                            result = GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.FIRE_SPREAD, rootCause, blockState, user, true);
+                            fireSpreadResults.put(blockState, result);
+                        }
+                        if (result == Tristate.FALSE) {
+                            event.setCancelled(true);
+                            continue;
+                        }
+                    }
+
+                    Tristate result = blockBreakResults.get(blockState);
+                    if (result == null) {
+                        result = GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.BLOCK_BREAK, rootCause, blockState, user);
+                        blockBreakResults.put(blockState, result);
+                    }
+                    if (result == Tristate.FALSE) {
+                        // PRE events can be spammy so we need to avoid sending player messages here.
                         event.setCancelled(true);
-                        GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
                         continue;
                     }
                 }
-
-                if (GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.BLOCK_BREAK, rootCause, location.getBlock(), user) == Tristate.FALSE) {
-                    // PRE events can be spammy so we need to avoid sending player messages here.
-                    event.setCancelled(true);
-                    GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
-                    continue;
-                }
             }
         } else if (user != null) {
-            GPPlayerData playerData = GriefPreventionPlugin.instance.dataStore.getPlayerData(event.getLocations().get(0).getExtent(), user.getUniqueId());
-            GPClaim targetClaim = null;
-            for (Location<World> location : event.getLocations()) {
-                targetClaim = this.dataStore.getClaimAt(location, targetClaim);
+            final World world = event.getLocations().get(0).getExtent();
+            if (this.isUnrestrictedWilderness(world, event.getLocations(), context.containsKey(EventContextKeys.FIRE_SPREAD))) {
+                GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
+                return;
+            }
 
+            GPPlayerData playerData = GriefPreventionPlugin.instance.dataStore.getPlayerData(world, user.getUniqueId());
+            for (Map.Entry<GPClaim, List<Location<World>>> mapEntry : this.dataStore.getClaimsAt(world, event.getLocations()).entrySet()) {
+                final GPClaim targetClaim = mapEntry.getKey();
                 if (targetClaim.isUserTrusted(user, TrustType.BUILDER)) {
-                    GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
                     continue;
                 }
                 if (playerData != null && playerData.checkLastInteraction(targetClaim, user)) {
-                    GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
                     continue;
                 }
 
-                if (context.containsKey(EventContextKeys.FIRE_SPREAD)) {
-                    if (GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.FIRE_SPREAD, rootCause, location.getBlock(), user, true) == Tristate.FALSE) {
-                        event.setCancelled(true);
-                        GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
-                        continue;
+                // locations in the same claim only differ by block state
+                final Map<BlockState, Tristate> fireSpreadResults = new HashMap<>();
+                final Map<BlockState, Tristate> blockBreakResults = new HashMap<>();
+                for (Location<World> location : mapEntry.getValue()) {
+                    final BlockState blockState = location.getBlock();
+                    if (context.containsKey(EventContextKeys.FIRE_SPREAD)) {
+                        Tristate result = fireSpreadResults.get(blockState);
+                        if (result == null) {
+                            result = GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.FIRE_SPREAD, rootCause, blockState, user, true);
+                            fireSpreadResults.put(blockState, result);
+                        }
+                        if (result == Tristate.FALSE) {
+                            event.setCancelled(true);
+                            continue;
+                        }
                     }
-                }
 
-                boolean userAllowed = false;
-                boolean canBreak = GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.BLOCK_BREAK, rootCause, location.getBlock(), user) == Tristate.TRUE;
-                if (hasFakePlayer) {
-                    if (!canBreak) {
-                        userAllowed = false;
+                    Tristate result = blockBreakResults.get(blockState);
+                    if (result == null) {
+                        result = GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.BLOCK_BREAK, rootCause, blockState, user);
+                        blockBreakResults.put(blockState, result);
+                    }
+                    boolean userAllowed = false;
+                    boolean canBreak = result == Tristate.TRUE;
+                    if (hasFakePlayer) {
+                        if (!canBreak) {
+                            userAllowed = false;
+                        }
+                    } else if (canBreak) {
+                        userAllowed = true;
                     }
-                } else if (canBreak) {
-                    userAllowed = true;
-                }
 
-                if (!userAllowed) {
-                    event.setCancelled(true);
-                    GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
-                    continue;
+                    if (!userAllowed) {
+                        event.setCancelled(true);
+                        continue;
+                    }
                 }
             }
         }
         GPTimings.BLOCK_PRE_EVENT.stopTimingIfSync();
     }
 
+    // Block changes in claim free chunks need no checks if the wilderness allows them by default
+    private boolean isUnrestrictedWilderness(World world, List<Location<World>> locations, boolean fireSpread) {
+        final GPClaimManager claimManager = this.dataStore.getClaimWorldManager(world.getProperties());
+        if (fireSpread && !claimManager.isUnrestrictedWilderness(locations, ClaimFlag.FIRE_SPREAD)) {
+            return false;
+        }
+        return claimManager.isUnrestrictedWilderness(locations, ClaimFlag.BLOCK_BREAK);
+    }
+
     // Handle fluids flowing into claims
     @Listener(order = Order.FIRST, beforeModifications = true)
     public void onBlockNotify(NotifyNeighborBlockEvent event) {
@@ -232,8 +282,9 @@ public void onBlockNotify(NotifyNeighborBlockEvent event) {
         Location<World> sourceLocation = locatableBlock != null ? locatableBlock.getLocation() : tileEntity != null ? tileEntity.getLocation() : null;
         GPClaim sourceClaim = null;
         GPPlayerData playerData = null;
+        Player player = null;
         if (sourceLocation == null) {
-            Player player = event.getCause().first(Player.class).orElse(null);
+            player = event.getCause().first(Player.class).orElse(null);
             if (player == null) {
                 GPTimings.BLOCK_NOTIFY_EVENT.stopTimingIfSync();
                 return;
@@ -241,10 +292,8 @@ public void onBlockNotify(NotifyNeighborBlockEvent event) {
 
             sourceLocation = player.getLocation();
             playerData = GriefPreventionPlugin.instance.dataStore.getOrCreatePlayerData(player.getWorld(), player.getUniqueId());
-            sourceClaim = this.dataStore.getClaimAtPlayer(playerData, player.getLocation());
         } else {
             playerData = GriefPreventionPlugin.instance.dataStore.getOrCreatePlayerData(sourceLocation.getExtent(), user.getUniqueId());
-            sourceClaim = this.dataStore.getClaimAt(sourceLocation, playerData.lastClaim.get());
         }
 
         if (!GriefPreventionPlugin.instance.claimsEnabledForWorld(sourceLocation.getExtent().getProperties())) {
@@ -252,6 +301,20 @@ public void onBlockNotify(NotifyNeighborBlockEvent event) {
             return;
         }
 
+        // neighbours can only reach into the chunks next to the source
+        final GPClaimManager claimManager = this.dataStore.getClaimWorldManager(sourceLocation.getExtent().getProperties());
+        if (claimManager.isClaimFree(sourceLocation.getBlockX(), sourceLocation.getBlockZ(), 1)) {
+            playerData.setLastInteractData(claimManager.getWildernessClaim());
+            GPTimings.BLOCK_NOTIFY_EVENT.stopTimingIfSync();
+            return;
+        }
+
+        if (player != null) {
+            sourceClaim = this.dataStore.getClaimAtPlayer(playerData, player.getLocation());
+        } else {
+            sourceClaim = this.dataStore.getClaimAt(sourceLocation, playerData.lastClaim.get());
+        }
+
         Iterator<Direction> iterator = event.getNeighbors().keySet().iterator();
         GPClaim targetClaim = null;
         while (iterator.hasNext()) {
@@ -306,8 +369,7 @@ public void onBlockNotify(NotifyNeighborBlockEvent event) {
         GPTimings.BLOCK_NOTIFY_EVENT.stopTimingIfSync();
     }
 
-    @Listener(order = Order.FIRST, beforeModifications = true)
-    public void onBlockCollide(CollideBlockEvent event, @Root Entity source) {
+    public void onBlockCollide(CollideBlockEvent event, Entity source) {
         final User user = CauseContextHelper.getEventUser(event);
         if (user == null) {
             return;
@@ -333,26 +395,33 @@ public void onBlockCollide(CollideBlockEvent event, @Root Entity source) {
         BlockPos collidePos = ((IMixinLocation)(Object) event.getTargetLocation()).getBlockPos();
         short shortPos = BlockUtils.blockPosToShort(collidePos);
         int entityId = ((net.minecraft.entity.Entity) source).getEntityId();
-        BlockPosCache entityBlockCache = BlockUtils.ENTITY_BLOCK_CACHE.get(entityId);
-        if (entityBlockCache == null) {
-            entityBlockCache = new BlockPosCache(shortPos);
-            BlockUtils.ENTITY_BLOCK_CACHE.put(entityId, entityBlockCache);
-        } else {
-            Tristate result = entityBlockCache.getCacheResult(shortPos);
-            if (result != Tristate.UNDEFINED) {
-                if (result == Tristate.FALSE) {
-                    event.setCancelled(true);
-                }
-
-                GPTimings.BLOCK_COLLIDE_EVENT.stopTimingIfSync();
-                return;
+        final EntityBlockCache entityBlockCache = this.dataStore.getClaimWorldManager(event.getTargetLocation().getExtent().getProperties()).getEntityBlockCache();
+        final Tristate cacheResult = entityBlockCache.getCacheResult(entityId, shortPos);
+        if (cacheResult != Tristate.UNDEFINED) {
+            if (cacheResult == Tristate.FALSE) {
+                event.setCancelled(true);
             }
+
+            GPTimings.BLOCK_COLLIDE_EVENT.stopTimingIfSync();
+            return;
         }
 
         GPPlayerData playerData = null;
         GPClaim targetClaim = null;
         if (user instanceof Player) {
             playerData = GriefPreventionPlugin.instance.dataStore.getOrCreatePlayerData(event.getTargetLocation().getExtent(), user.getUniqueId());
+        }
+        final GPClaimManager claimManager = this.dataStore.getClaimWorldManager(event.getTargetLocation().getExtent().getProperties());
+        if (claimManager.isUnrestrictedWilderness(event.getTargetLocation(), ClaimFlag.ENTITY_COLLIDE_BLOCK)) {
+            if (playerData != null) {
+                playerData.setLastInteractData(claimManager.getWildernessClaim());
+            }
+            entityBlockCache.setLastResult(entityId, Tristate.TRUE);
+            GPTimings.BLOCK_COLLIDE_EVENT.stopTimingIfSync();
+            return;
+        }
+
+        if (playerData != null) {
             targetClaim = this.dataStore.getClaimAtPlayer(playerData, event.getTargetLocation());
         } else {
             targetClaim = this.dataStore.getClaimAt(event.getTargetLocation());
@@ -364,12 +433,12 @@ public void onBlockCollide(CollideBlockEvent event, @Root Entity source) {
                 if (playerData != null) {
                     playerData.setLastInteractData(targetClaim);
                 }
-                entityBlockCache.setLastResult(Tristate.TRUE);
+                entityBlockCache.setLastResult(entityId, Tristate.TRUE);
                 GPTimings.BLOCK_COLLIDE_EVENT.stopTimingIfSync();
                 return;
             }
 
-            entityBlockCache.setLastResult(Tristate.FALSE);
+            entityBlockCache.setLastResult(entityId, Tristate.FALSE);
             event.setCancelled(true);
             GPTimings.BLOCK_COLLIDE_EVENT.stopTimingIfSync();
             return;
@@ -380,7 +449,7 @@ public void onBlockCollide(CollideBlockEvent event, @Root Entity source) {
                 if (playerData != null) {
                     playerData.setLastInteractData(targetClaim);
                 }
-                entityBlockCache.setLastResult(Tristate.TRUE);
+                entityBlockCache.setLastResult(entityId, Tristate.TRUE);
                 GPTimings.BLOCK_COLLIDE_EVENT.stopTimingIfSync();
                 return;
             }
@@ -396,7 +465,7 @@ public void onBlockCollide(CollideBlockEvent event, @Root Entity source) {
                                 .apply(ImmutableMap.of(
                                 "owner", targetClaim.getOwnerName())).build();*/
                         event.setCancelled(true);
-                        entityBlockCache.setLastResult(Tristate.FALSE);
+                        entityBlockCache.setLastResult(entityId, Tristate.FALSE);
                         GPTimings.BLOCK_COLLIDE_EVENT.stopTimingIfSync();
                         return;
                     }
@@ -404,7 +473,7 @@ public void onBlockCollide(CollideBlockEvent event, @Root Entity source) {
             }
 
             event.setCancelled(true);
-            entityBlockCache.setLastResult(Tristate.FALSE);
+            entityBlockCache.setLastResult(entityId, Tristate.FALSE);
             GPTimings.BLOCK_COLLIDE_EVENT.stopTimingIfSync();
             return;
         }
@@ -412,7 +481,7 @@ public void onBlockCollide(CollideBlockEvent event, @Root Entity source) {
         if (playerData != null) {
             playerData.setLastInteractData(targetClaim);
         }
-        entityBlockCache.setLastResult(Tristate.TRUE);
+        entityBlockCache.setLastResult(entityId, Tristate.TRUE);
         GPTimings.BLOCK_COLLIDE_EVENT.stopTimingIfSync();
     }
 
@@ -435,6 +504,11 @@ public void onProjectileImpactBlock(CollideBlockEvent.Impact event) {
         final Cause cause = event.getCause();
         Object source = cause.root();
         Location<World> impactPoint = event.getImpactPoint();
+        if (this.dataStore.getClaimWorldManager(impactPoint.getExtent().getProperties()).isUnrestrictedWilderness(impactPoint, ClaimFlag.PROJECTILE_IMPACT_BLOCK)) {
+            GPTimings.PROJECTILE_IMPACT_BLOCK_EVENT.stopTimingIfSync();
+            return;
+        }
+
         GPClaim targetClaim = null;
         GPPlayerData playerData = null;
         if (user instanceof Player) {
@@ -464,31 +538,47 @@ public void onExplosion(ExplosionEvent.Post event) {
         GPTimings.EXPLOSION_EVENT.startTimingIfSync();
         Object source = event.getCause().root();
         final User user = CauseContextHelper.getEventUser(event);
-        GPClaim targetClaim = null;
-        for (Transaction<BlockSnapshot> transaction : event.getTransactions()) {
-            BlockSnapshot blockSnapshot = transaction.getOriginal();
-            Location<World> location = blockSnapshot.getLocation().orElse(null);
-            if (location == null) {
-                continue;
-            }
-
-            targetClaim =  GriefPreventionPlugin.instance.dataStore.getClaimAt(blockSnapshot.getLocation().get(), targetClaim);
-            if (GPFlags.EXPLOSION_SURFACE && location.getPosition().getY() > ((net.minecraft.world.World) world).getSeaLevel() && GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.EXPLOSION_SURFACE, source, blockSnapshot, user, true) == Tristate.FALSE) {
-                event.setCancelled(true);
-                GPTimings.EXPLOSION_EVENT.stopTimingIfSync();
-                return;
-            }
+        final int seaLevel = ((net.minecraft.world.World) world).getSeaLevel();
+        final Map<GPClaim, List<Transaction<BlockSnapshot>>> claimTransactions =
+                this.dataStore.getClaimsAt(world, event.getTransactions(), transaction -> transaction.getOriginal().getLocation().orElse(null));
+        for (Map.Entry<GPClaim, List<Transaction<BlockSnapshot>>> mapEntry : claimTransactions.entrySet()) {
+            final GPClaim targetClaim = mapEntry.getKey();
+            // blocks in the same claim only differ by block state
+            final Map<BlockState, Tristate> surfaceResults = new HashMap<>();
+            final Map<BlockState, Tristate> explosionResults = new HashMap<>();
+            for (Transaction<BlockSnapshot> transaction : mapEntry.getValue()) {
+                final BlockSnapshot blockSnapshot = transaction.getOriginal();
+                final BlockState blockState = blockSnapshot.getState();
+                final Location<World> location = blockSnapshot.getLocation().get();
+                if (GPFlags.EXPLOSION_SURFACE && location.getPosition().getY() > seaLevel) {
+                    Tristate result = surfaceResults.get(blockState);
+                    if (result == null) {
+                        result = GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.EXPLOSION_SURFACE, source, blockSnapshot, user, true);
+                        surfaceResults.put(blockState, result);
+                    }
+                    if (result == Tristate.FALSE) {
+                        event.setCancelled(true);
+                        GPTimings.EXPLOSION_EVENT.stopTimingIfSync();
+                        return;
+                    }
+                }
 
-            if (GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.EXPLOSION, source, blockSnapshot, user, true) == Tristate.FALSE) {
-                // Avoid lagging server from large explosions.
-                if (event.getTransactions().size() > 100) {
-                    event.setCancelled(true);
+                Tristate result = explosionResults.get(blockState);
+                if (result == null) {
+                    result = GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.EXPLOSION, source, blockSnapshot, user, true);
+                    explosionResults.put(blockState, result);
+                }
+                if (result == Tristate.FALSE) {
+                    // Avoid lagging server from large explosions.
+                    if (event.getTransactions().size() > 100) {
+                        event.setCancelled(true);
+                        GPTimings.EXPLOSION_EVENT.stopTimingIfSync();
+                        return;
+                    }
+                    transaction.setValid(false);
                     GPTimings.EXPLOSION_EVENT.stopTimingIfSync();
                     return;
                 }
-                transaction.setValid(false);
-                GPTimings.EXPLOSION_EVENT.stopTimingIfSync();
-                return;
             }
         }
         GPTimings.EXPLOSION_EVENT.stopTimingIfSync();
@@ -527,6 +617,35 @@ public void onBlockBreak(ChangeBlockEvent.Break event) {
         }
 
         List<Transaction<BlockSnapshot>> transactions = event.getTransactions();
+        if (transactions.size() >= BULK_TRANSACTION_THRESHOLD) {
+            final Map<GPClaim, List<Transaction<BlockSnapshot>>> claimTransactions =
+                    this.dataStore.getClaimsAt(world, transactions, transaction -> transaction.getOriginal().getLocation().orElse(null));
+            for (Map.Entry<GPClaim, List<Transaction<BlockSnapshot>>> mapEntry : claimTransactions.entrySet()) {
+                final GPClaim targetClaim = mapEntry.getKey();
+                if (locatable != null && targetClaim.isWilderness()) {
+                    continue;
+                }
+
+                // source and user are fixed for the event, so blocks in the same claim only differ by block state
+                final Map<BlockState, Tristate> results = new HashMap<>();
+                for (Transaction<BlockSnapshot> transaction : mapEntry.getValue()) {
+                    final BlockSnapshot blockSnapshot = transaction.getOriginal();
+                    Tristate value = results.get(blockSnapshot.getState());
+                    if (value == null) {
+                        value = GPPermissionHandler.getClaimPermission(event, blockSnapshot.getLocation().get(), targetClaim, GPPermissions.BLOCK_BREAK, source, blockSnapshot, user, TrustType.BUILDER, true);
+                        results.put(blockSnapshot.getState(), value);
+                    }
+                    if (value == Tristate.FALSE) {
+                        this.denyBlockBreak(event, source, targetClaim);
+                        GPTimings.BLOCK_BREAK_EVENT.stopTimingIfSync();
+                        return;
+                    }
+                }
+            }
+            GPTimings.BLOCK_BREAK_EVENT.stopTimingIfSync();
+            return;
+        }
+
         GPClaim targetClaim = null;
         for (Transaction<BlockSnapshot> transaction : transactions) {
             Location<World> location = transaction.getOriginal().getLocation().orElse(null);
@@ -538,15 +657,7 @@ public void onBlockBreak(ChangeBlockEvent.Break event) {
             // check overrides
             Tristate value = GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.BLOCK_BREAK, source, transaction.getOriginal(), user, TrustType.BUILDER, true);
             if (value == Tristate.FALSE) {
-                if (source instanceof Player) {
-                    final Text message = GriefPreventionPlugin.instance.messageData.permissionBuild
-                            .apply(ImmutableMap.of(
-                            "player", Text.of(targetClaim.getOwnerName())
-                    )).build();
-                    GriefPreventionPlugin.sendClaimDenyMessage(targetClaim, (Player) source, message);
-                }
-
-                event.setCancelled(true);
+                this.denyBlockBreak(event, source, targetClaim);
                 GPTimings.BLOCK_BREAK_EVENT.stopTimingIfSync();
                 return;
             }
@@ -554,6 +665,18 @@ public void onBlockBreak(ChangeBlockEvent.Break event) {
         GPTimings.BLOCK_BREAK_EVENT.stopTimingIfSync();
     }
 
+    private void denyBlockBreak(ChangeBlockEvent.Break event, Object source, GPClaim targetClaim) {
+        if (source instanceof Player) {
+            final Text message = GriefPreventionPlugin.instance.messageData.permissionBuild
+                    .apply(ImmutableMap.of(
+                    "player", Text.of(targetClaim.getOwnerName())
+            )).build();
+            GriefPreventionPlugin.sendClaimDenyMessage(targetClaim, (Player) source, message);
+        }
+
+        event.setCancelled(true);
+    }
+
     @Listener(order = Order.FIRST, beforeModifications = true)
     public void onBlockPlace(ChangeBlockEvent.Place event) {
         final World world = event.getTransactions().get(0).getFinal().getLocation().get().getExtent();
@@ -594,15 +717,30 @@ public void onBlockPlace(ChangeBlockEvent.Place event) {
             return;
         }
 
+        final List<Transaction<BlockSnapshot>> transactions = event.getTransactions();
+        // the loop below is order sensitive, so bulk events only share claim lookups and permission results
+        Map<Transaction<BlockSnapshot>, GPClaim> transactionClaims = null;
+        Map<GPClaim, Map<BlockState, Tristate>> placeResults = null;
+        if (transactions.size() >= BULK_TRANSACTION_THRESHOLD) {
+            transactionClaims = new IdentityHashMap<>(transactions.size());
+            placeResults = new HashMap<>();
+            for (Map.Entry<GPClaim, List<Transaction<BlockSnapshot>>> mapEntry : this.dataStore.getClaimsAt(world, transactions,
+                    transaction -> transaction.getFinal().getLocation().orElse(null)).entrySet()) {
+                for (Transaction<BlockSnapshot> transaction : mapEntry.getValue()) {
+                    transactionClaims.put(transaction, mapEntry.getKey());
+                }
+            }
+        }
+
         GPClaim targetClaim = null;
-        for (Transaction<BlockSnapshot> transaction : event.getTransactions()) {
+        for (Transaction<BlockSnapshot> transaction : transactions) {
             BlockSnapshot block = transaction.getFinal();
             Location<World> location = block.getLocation().orElse(null);
             if (location == null) {
                 continue;
             }
 
-            targetClaim = this.dataStore.getClaimAt(location, targetClaim);
+            targetClaim = transactionClaims != null ? transactionClaims.get(transaction) : this.dataStore.getClaimAt(location, targetClaim);
             if (locatable != null && targetClaim.isWilderness()) {
                 continue;
             }
@@ -615,7 +753,18 @@ public void onBlockPlace(ChangeBlockEvent.Place event) {
                 }
     
                 // check overrides
-                Tristate result = GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.BLOCK_PLACE, source, block, user, TrustType.BUILDER, true);
+                Map<BlockState, Tristate> claimResults = null;
+                Tristate result = null;
+                if (placeResults != null) {
+                    claimResults = placeResults.computeIfAbsent(targetClaim, claim -> new HashMap<>());
+                    result = claimResults.get(block.getState());
+                }
+                if (result == null) {
+                    result = GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.BLOCK_PLACE, source, block, user, TrustType.BUILDER, true);
+                    if (claimResults != null) {
+                        claimResults.put(block.getState(), result);
+                    }
+                }
                 if (result != Tristate.TRUE) {
                     // TODO - make sure this doesn't spam
                     /*if (source instanceof Player) {
@@ -632,7 +781,7 @@ public void onBlockPlace(ChangeBlockEvent.Place event) {
             }
 
             // warn players when they place TNT above sea level, since it doesn't destroy blocks there
-            if (GPFlags.EXPLOSION_SURFACE && player != null && GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.EXPLOSION_SURFACE, event.getCause().root(), block.getState(), user) == Tristate.FALSE && block.getState().getType() == BlockTypes.TNT &&
+            if (GPFlags.EXPLOSION_SURFACE && player != null && block.getState().getType() == BlockTypes.TNT && GPPermissionHandler.getClaimPermission(event, location, targetClaim, GPPermissions.EXPLOSION_SURFACE, event.getCause().root(), block.getState(), user) == Tristate.FALSE &&
                     !block.getLocation().get().getExtent().getDimension().getType().equals(DimensionTypes.NETHER) &&
                     block.getPosition().getY() > GriefPreventionPlugin.instance.getSeaLevel(block.getLocation().get().getExtent()) - 5 &&
                     targetClaim.isWilderness()) {
@@ -33,7 +33,9 @@
 import me.ryanhamshire.griefprevention.GPTimings;
 import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
 import me.ryanhamshire.griefprevention.api.claim.Claim;
+import me.ryanhamshire.griefprevention.api.claim.ClaimFlag;
 import me.ryanhamshire.griefprevention.api.claim.TrustType;
+import me.ryanhamshire.griefprevention.claim.ClaimBoundaryTracker;
 import me.ryanhamshire.griefprevention.claim.ClaimsMode;
 import me.ryanhamshire.griefprevention.claim.GPClaim;
 import me.ryanhamshire.griefprevention.claim.GPClaimManager;
@@ -96,8 +98,10 @@
 
 import java.lang.ref.WeakReference;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Predicate;
@@ -156,16 +160,19 @@ public void onEntityExplosionDetonate(ExplosionEvent.Detonate event) {
 
         GPTimings.ENTITY_EXPLOSION_DETONATE_EVENT.startTimingIfSync();
         final User user = CauseContextHelper.getEventUser(event);
-        Iterator<Entity> iterator = event.getEntities().iterator();
-        GPClaim targetClaim = null;
-        while (iterator.hasNext()) {
-            Entity entity = iterator.next();
-            targetClaim =  GriefPreventionPlugin.instance.dataStore.getClaimAt(entity.getLocation(), targetClaim);
-
-            if (GPPermissionHandler.getClaimPermission(event, entity.getLocation(), targetClaim, GPPermissions.ENTITY_DAMAGE, event.getCause().root(), entity, user) == Tristate.FALSE) {
-                iterator.remove();
+        final List<Entity> entitiesToRemove = new ArrayList<>();
+        final Map<GPClaim, List<Entity>> claimEntities = this.dataStore.getClaimsAt(event.getTargetWorld(), event.getEntities(), Entity::getLocation);
+        for (Map.Entry<GPClaim, List<Entity>> mapEntry : claimEntities.entrySet()) {
+            final GPClaim targetClaim = mapEntry.getKey();
+            for (Entity entity : mapEntry.getValue()) {
+                if (GPPermissionHandler.getClaimPermission(event, entity.getLocation(), targetClaim, GPPermissions.ENTITY_DAMAGE, event.getCause().root(), entity, user) == Tristate.FALSE) {
+                    entitiesToRemove.add(entity);
+                }
             }
         }
+        if (!entitiesToRemove.isEmpty()) {
+            event.getEntities().removeAll(entitiesToRemove);
+        }
         GPTimings.ENTITY_EXPLOSION_DETONATE_EVENT.stopTimingIfSync();
     }
 
@@ -183,21 +190,27 @@ public void onEntitySpawn(SpawnEntityEvent event, @Root Object sourceCause) {
 
         GPTimings.ENTITY_SPAWN_EVENT.startTimingIfSync();
         final User user = CauseContextHelper.getEventUser(event);
+        final GPClaimManager claimManager = this.dataStore.getClaimWorldManager(world.getProperties());
         event.filterEntities(new Predicate<Entity>() {
             GPClaim targetClaim = null;
 
             @Override
             public boolean test(Entity entity) {
+                final boolean itemSpawn = entity instanceof EntityItem || entity instanceof EntityXPOrb;
+                if (itemSpawn && user == null) {
+                    return true;
+                }
+                if (claimManager.isUnrestrictedWilderness(entity.getLocation(), itemSpawn ? ClaimFlag.ITEM_SPAWN : ClaimFlag.ENTITY_SPAWN)) {
+                    return true;
+                }
+
                 targetClaim = GriefPreventionPlugin.instance.dataStore.getClaimAt(entity.getLocation(), targetClaim);
                 if (targetClaim == null) {
                     return true;
                 }
 
                 String permission = GPPermissions.ENTITY_SPAWN;
-                if (entity instanceof EntityItem || entity instanceof EntityXPOrb) {
-                    if (user == null) {
-                        return true;
-                    }
+                if (itemSpawn) {
                     if (targetClaim.isUserTrusted(user, TrustType.BUILDER)) {
                         return true;
                     }
@@ -548,7 +561,6 @@ public void onEntityDeath(DestructEntityEvent.Death event) {
         GPTimings.ENTITY_DEATH_EVENT.stopTimingIfSync();
     }
 
-    @Listener(order = Order.FIRST, beforeModifications = true)
     public void onEntityMove(MoveEntityEvent event){
         if ((!GPFlags.ENTER_CLAIM && !GPFlags.EXIT_CLAIM) || event.getFromTransform().getLocation().getBlockPosition().equals(event.getToTransform().getLocation().getBlockPosition())) {
             return;
@@ -573,33 +585,45 @@ public void onEntityMove(MoveEntityEvent event){
                 player = (Player) ((net.minecraft.entity.Entity) entity).getControllingPassenger();
                 playerData = this.dataStore.getOrCreatePlayerData(world, player.getUniqueId());
             }
-            owner = ((IMixinEntity) entity).getTrackedPlayer(NbtDataUtil.SPONGE_ENTITY_CREATOR).orElse(null);
         }
 
         final Location<World> fromLocation = event.getFromTransform().getLocation();
         final Location<World> toLocation = event.getToTransform().getLocation();
 
+        GPClaim fromClaim = null;
+        GPClaim toClaim = null;
+        if (player == null) {
+            if (fromLocation.getExtent() == toLocation.getExtent()) {
+                // mobs only need claim lookups once they could have crossed a claim edge
+                final int entityId = ((net.minecraft.entity.Entity) entity).getEntityId();
+                final ClaimBoundaryTracker boundaryTracker = this.dataStore.getClaimWorldManager(fromLocation.getExtent().getProperties()).getBoundaryTracker();
+                fromClaim = boundaryTracker.getClaimAt(entityId, fromLocation);
+                toClaim = boundaryTracker.getClaimAt(entityId, toLocation);
+            } else {
+                fromClaim = this.dataStore.getClaimAt(fromLocation);
+                toClaim = this.dataStore.getClaimAt(toLocation);
+            }
+            if (fromClaim == toClaim) {
+                GPTimings.ENTITY_MOVE_EVENT.stopTimingIfSync();
+                return;
+            }
+            owner = ((IMixinEntity) entity).getTrackedPlayer(NbtDataUtil.SPONGE_ENTITY_CREATOR).orElse(null);
+        }
+
         if (player == null && owner == null) {
             // Handle border event without player
-            GPClaim fromClaim = this.dataStore.getClaimAt(fromLocation);
-            GPClaim toClaim = this.dataStore.getClaimAt(toLocation);
-            if (fromClaim != toClaim) {
-                GPBorderClaimEvent gpEvent = new GPBorderClaimEvent(entity, fromClaim, toClaim);
-                Sponge.getEventManager().post(gpEvent);
-                if (gpEvent.isCancelled()) {
-                    event.setCancelled(true);
-                }
+            GPBorderClaimEvent gpEvent = new GPBorderClaimEvent(entity, fromClaim, toClaim);
+            Sponge.getEventManager().post(gpEvent);
+            if (gpEvent.isCancelled()) {
+                event.setCancelled(true);
             }
             GPTimings.ENTITY_MOVE_EVENT.stopTimingIfSync();
             return;
         }
 
-        GPClaim fromClaim = null;
-        GPClaim toClaim = this.dataStore.getClaimAt(toLocation);
         if (playerData != null) {
+            toClaim = this.dataStore.getClaimAt(toLocation);
             fromClaim = this.dataStore.getClaimAtPlayer(playerData, fromLocation);
-        } else {
-            fromClaim = this.dataStore.getClaimAt(fromLocation);
         }
 
         if (GPFlags.ENTER_CLAIM && playerData != null && playerData.lastClaim != null) {
@@ -873,7 +897,6 @@ public void onEntityTeleport(MoveEntityEvent.Teleport event) {
         GPTimings.ENTITY_TELEPORT_EVENT.stopTimingIfSync();
     }
 
-    @Listener(order = Order.FIRST, beforeModifications = true)
     public void onEntityCollideEntity(CollideEntityEvent event) {
         if (!GPFlags.ENTITY_COLLIDE_ENTITY) {
             return;
@@ -891,6 +914,7 @@ public void onEntityCollideEntity(CollideEntityEvent event) {
 
         GPTimings.ENTITY_COLLIDE_EVENT.startTimingIfSync();
         Object rootCause = event.getCause().root();
+        final GPClaimManager claimManager = this.dataStore.getClaimWorldManager(world.getProperties());
         event.filterEntities(new Predicate<Entity>() {
             @Override
             public boolean test(Entity entity) {
@@ -904,7 +928,12 @@ public boolean test(Entity entity) {
                         return false;
                     }
 
-                    final GPClaim claim = GriefPreventionPlugin.instance.dataStore.getClaimAt(entity.getLocation());
+                    final Location<World> location = entity.getLocation();
+                    // entities in claim free chunks are always in the wilderness
+                    if (!claimManager.isChunkClaimed(location.getBlockX() >> 4, location.getBlockZ() >> 4)) {
+                        return true;
+                    }
+                    final GPClaim claim = GriefPreventionPlugin.instance.dataStore.getClaimAt(location);
                     if (claim.isWilderness()) {
                         return true;
                     }
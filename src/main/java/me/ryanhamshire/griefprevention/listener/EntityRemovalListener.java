@@ -24,7 +24,8 @@
  */
 package me.ryanhamshire.griefprevention.listener;
 
-import me.ryanhamshire.griefprevention.util.BlockUtils;
+import me.ryanhamshire.griefprevention.claim.ClaimBoundaryTracker;
+import me.ryanhamshire.griefprevention.util.EntityBlockCache;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
@@ -36,9 +37,18 @@
 
 public class EntityRemovalListener implements IWorldEventListener {
 
+    private final EntityBlockCache entityBlockCache;
+    private final ClaimBoundaryTracker boundaryTracker;
+
+    public EntityRemovalListener(EntityBlockCache entityBlockCache, ClaimBoundaryTracker boundaryTracker) {
+        this.entityBlockCache = entityBlockCache;
+        this.boundaryTracker = boundaryTracker;
+    }
+
     @Override
     public void onEntityRemoved(Entity entityIn) {
-        BlockUtils.ENTITY_BLOCK_CACHE.remove(entityIn.getEntityId());
+        this.entityBlockCache.remove(entityIn.getEntityId());
+        this.boundaryTracker.remove(entityIn.getEntityId());
     }
 
     @Override
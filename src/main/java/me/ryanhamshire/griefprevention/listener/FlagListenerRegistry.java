@@ -0,0 +1,155 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.listener;
+
+import me.ryanhamshire.griefprevention.GPFlags;
+import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
+import me.ryanhamshire.griefprevention.api.claim.ClaimFlag;
+import me.ryanhamshire.griefprevention.configuration.GriefPreventionConfig;
+import me.ryanhamshire.griefprevention.permission.FlagRuleAnalyzer;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.entity.Entity;
+import org.spongepowered.api.entity.living.player.Player;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.event.EventListener;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.block.CollideBlockEvent;
+import org.spongepowered.api.event.entity.CollideEntityEvent;
+import org.spongepowered.api.event.entity.MoveEntityEvent;
+import org.spongepowered.api.event.item.inventory.ChangeInventoryEvent;
+import org.spongepowered.api.world.World;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+// Registers high volume listeners only while some rule could act on their events.
+// Rules are analysed again on the next tick after GP changes flags, and every REFRESH_INTERVAL_SECONDS
+// to pick up changes made directly in the permission plugin.
+public final class FlagListenerRegistry {
+
+    private static final int REFRESH_INTERVAL_SECONDS = 60;
+
+    private final Object plugin;
+    private final List<FlagListener<?>> listeners = new ArrayList<>();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+
+    public FlagListenerRegistry(Object plugin, BlockEventHandler blockEventHandler, EntityEventHandler entityEventHandler, PlayerEventHandler playerEventHandler) {
+        this.plugin = plugin;
+        // enter and exit messages and border events ride on move events, so only the module switches apply
+        this.listeners.add(new FlagListener<>(MoveEntityEvent.class, Order.FIRST, true,
+                deniableFlags -> GPFlags.ENTER_CLAIM || GPFlags.EXIT_CLAIM,
+                entityEventHandler::onEntityMove));
+        this.listeners.add(new FlagListener<>(CollideBlockEvent.class, Order.FIRST, true,
+                deniableFlags -> GPFlags.ENTITY_COLLIDE_BLOCK && deniableFlags.contains(ClaimFlag.ENTITY_COLLIDE_BLOCK),
+                event -> {
+                    if (event.getCause().root() instanceof Entity) {
+                        blockEventHandler.onBlockCollide(event, (Entity) event.getCause().root());
+                    }
+                }));
+        this.listeners.add(new FlagListener<>(CollideEntityEvent.class, Order.FIRST, true,
+                deniableFlags -> GPFlags.ENTITY_COLLIDE_ENTITY && deniableFlags.contains(ClaimFlag.ENTITY_COLLIDE_ENTITY),
+                entityEventHandler::onEntityCollideEntity));
+        this.listeners.add(new FlagListener<>(ChangeInventoryEvent.Pickup.Pre.class, Order.LAST, true,
+                deniableFlags -> GPFlags.ITEM_PICKUP && (deniableFlags.contains(ClaimFlag.ITEM_PICKUP) || isFreshSpawnProtectionActive()),
+                event -> {
+                    if (event.getCause().root() instanceof Player) {
+                        playerEventHandler.onPlayerPickupItem(event, (Player) event.getCause().root());
+                    }
+                }));
+    }
+
+    public void start() {
+        // keep everything registered until the first analysis runs once worlds are loaded
+        for (FlagListener<?> listener : this.listeners) {
+            listener.setRegistered(this.plugin, true);
+        }
+        this.requestUpdate();
+        Sponge.getScheduler().createTaskBuilder().delay(REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                .interval(REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS).execute(this::update).submit(this.plugin);
+    }
+
+    // Coalesces update requests into a single analysis on the next tick
+    public void requestUpdate() {
+        if (this.updateScheduled.compareAndSet(false, true)) {
+            Sponge.getScheduler().createTaskBuilder().execute(this::update).submit(this.plugin);
+        }
+    }
+
+    private void update() {
+        this.updateScheduled.set(false);
+        // debug logging wants to see every event
+        final Set<ClaimFlag> deniableFlags = GriefPreventionPlugin.debugActive ? EnumSet.allOf(ClaimFlag.class) : FlagRuleAnalyzer.findDeniableFlags();
+        for (FlagListener<?> listener : this.listeners) {
+            listener.setRegistered(this.plugin, listener.required.test(deniableFlags));
+        }
+    }
+
+    // Fresh spawn immunity ends on item pickup in worlds with pvp rules
+    private static boolean isFreshSpawnProtectionActive() {
+        for (World world : Sponge.getServer().getWorlds()) {
+            final GriefPreventionConfig<?> activeConfig = GriefPreventionPlugin.getActiveConfig(world.getProperties());
+            if (activeConfig != null && activeConfig.getConfig().pvp.rulesEnabled && activeConfig.getConfig().pvp.protectFreshSpawns) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class FlagListener<T extends Event> {
+
+        private final Class<T> eventClass;
+        private final Order order;
+        private final boolean beforeModifications;
+        private final Predicate<Set<ClaimFlag>> required;
+        private final EventListener<T> listener;
+        private boolean registered;
+
+        private FlagListener(Class<T> eventClass, Order order, boolean beforeModifications, Predicate<Set<ClaimFlag>> required,
+                EventListener<T> listener) {
+            this.eventClass = eventClass;
+            this.order = order;
+            this.beforeModifications = beforeModifications;
+            this.required = required;
+            this.listener = listener;
+        }
+
+        private void setRegistered(Object plugin, boolean registered) {
+            if (registered == this.registered) {
+                return;
+            }
+            if (registered) {
+                Sponge.getEventManager().registerListener(plugin, this.eventClass, this.order, this.beforeModifications, this.listener);
+            } else {
+                Sponge.getEventManager().unregisterListeners(this.listener);
+            }
+            this.registered = registered;
+        }
+    }
+}
@@ -775,6 +775,12 @@ static void makeSocialLogEntry(String name, String message) {
     @SuppressWarnings("unused")
     private ConcurrentHashMap<String, Integer> ipCountHash = new ConcurrentHashMap<String, Integer>();
 
+    // while the client is still authenticating, prepare its player data off the main thread
+    @Listener(order = Order.LAST)
+    public void onPlayerAuth(ClientConnectionEvent.Auth event) {
+        this.dataStore.prefetchPlayerData(event.getProfile().getUniqueId());
+    }
+
     // when a player attempts to join the server...
     @Listener(order = Order.FIRST, beforeModifications = true)
     public void onPlayerLogin(ClientConnectionEvent.Login event) {
@@ -804,6 +810,7 @@ public void onPlayerLogin(ClientConnectionEvent.Login event) {
                         // DAS BOOT!;
                         event.setMessage(Text.of("You must wait " + cooldownRemaining + " seconds before logging-in again."));
                         event.setCancelled(true);
+                        this.dataStore.getPlayerDataLoader().discardPrefetched(player.getUniqueId());
                         GPTimings.PLAYER_LOGIN_EVENT.stopTimingIfSync();
                         return;
                     }
@@ -842,7 +849,10 @@ public void onPlayerLogin(ClientConnectionEvent.Login event) {
     @Listener(order = Order.FIRST)
     public void onPlayerJoin(ClientConnectionEvent.Join event) {
         GPTimings.PLAYER_JOIN_EVENT.startTimingIfSync();
+        // the permission plugin may have just loaded rules for this player
+        GPFlags.requestListenerUpdate();
         Player player = event.getTargetEntity();
+        GPPermissionHandler.restrictWildernessRules(player);
         if (!GriefPreventionPlugin.instance.claimsEnabledForWorld(player.getWorld().getProperties())) {
             GPTimings.PLAYER_JOIN_EVENT.stopTimingIfSync();
             return;
@@ -1545,8 +1555,7 @@ public void onPlayerInteractItem(InteractItemEvent event, @Root Player player) {
     }
 
     // when a player picks up an item...
-    @Listener(order = Order.LAST, beforeModifications = true)
-    public void onPlayerPickupItem(ChangeInventoryEvent.Pickup.Pre event, @Root Player player) {
+    public void onPlayerPickupItem(ChangeInventoryEvent.Pickup.Pre event, Player player) {
         if (!GPFlags.ITEM_PICKUP || !GriefPreventionPlugin.instance.claimsEnabledForWorld(player.getWorld().getProperties())) {
             return;
         }
@@ -24,6 +24,8 @@
  */
 package me.ryanhamshire.griefprevention.listener;
 
+import com.flowpowered.math.vector.Vector3i;
+import me.ryanhamshire.griefprevention.GPFlags;
 import me.ryanhamshire.griefprevention.GPTimings;
 import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
 import me.ryanhamshire.griefprevention.claim.GPClaimManager;
@@ -38,6 +40,7 @@
 import org.spongepowered.api.event.world.UnloadWorldEvent;
 import org.spongepowered.api.event.world.chunk.LoadChunkEvent;
 import org.spongepowered.api.event.world.chunk.UnloadChunkEvent;
+import org.spongepowered.api.world.World;
 import org.spongepowered.common.SpongeImpl;
 
 import java.util.concurrent.TimeUnit;
@@ -61,8 +64,10 @@ public void onWorldLoad(LoadWorldEvent event) {
 
         GPTimings.WORLD_LOAD_EVENT.startTimingIfSync();
         GriefPreventionPlugin.instance.dataStore.loadWorldData(event.getTargetWorld());
+        GPFlags.requestListenerUpdate();
         net.minecraft.world.World world = (net.minecraft.world.World) event.getTargetWorld();
-        world.addEventListener(new EntityRemovalListener());
+        final GPClaimManager claimWorldManager = GriefPreventionPlugin.instance.dataStore.getClaimWorldManager(event.getTargetWorld().getProperties());
+        world.addEventListener(new EntityRemovalListener(claimWorldManager.getEntityBlockCache(), claimWorldManager.getBoundaryTracker()));
         GPTimings.WORLD_LOAD_EVENT.stopTimingIfSync();
         if (!GriefPreventionPlugin.getActiveConfig(event.getTargetWorld().getProperties()).getConfig().claim.bankTaxSystem) {
             return;
@@ -103,11 +108,27 @@ public void onWorldSave(SaveWorldEvent.Post event) {
 
     @Listener
     public void onChunkLoad(LoadChunkEvent event) {
-        
+        final World world = event.getTargetChunk().getWorld();
+        if (!GriefPreventionPlugin.instance.claimsEnabledForWorld(world.getProperties())) {
+            return;
+        }
+
+        GPTimings.CHUNK_LOAD_EVENT.startTimingIfSync();
+        final Vector3i chunkPos = event.getTargetChunk().getPosition();
+        GriefPreventionPlugin.instance.dataStore.getClaimWorldManager(world.getProperties()).onChunkLoad(chunkPos.getX(), chunkPos.getZ());
+        GPTimings.CHUNK_LOAD_EVENT.stopTimingIfSync();
     }
 
     @Listener
     public void onChunkUnload(UnloadChunkEvent event) {
-        
+        final World world = event.getTargetChunk().getWorld();
+        if (!GriefPreventionPlugin.instance.claimsEnabledForWorld(world.getProperties())) {
+            return;
+        }
+
+        GPTimings.CHUNK_UNLOAD_EVENT.startTimingIfSync();
+        final Vector3i chunkPos = event.getTargetChunk().getPosition();
+        GriefPreventionPlugin.instance.dataStore.getClaimWorldManager(world.getProperties()).onChunkUnload(chunkPos.getX(), chunkPos.getZ());
+        GPTimings.CHUNK_UNLOAD_EVENT.stopTimingIfSync();
     }
 }
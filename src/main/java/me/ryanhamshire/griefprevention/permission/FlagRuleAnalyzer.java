@@ -0,0 +1,105 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.permission;
+
+import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
+import me.ryanhamshire.griefprevention.api.claim.ClaimFlag;
+import me.ryanhamshire.griefprevention.configuration.GriefPreventionConfig;
+import me.ryanhamshire.griefprevention.configuration.category.FlagCategory;
+import org.spongepowered.api.Sponge;
+import org.spongepowered.api.service.context.Context;
+import org.spongepowered.api.service.permission.PermissionService;
+import org.spongepowered.api.service.permission.Subject;
+import org.spongepowered.api.world.World;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+// Finds the flags that some configured rule could deny.
+// Looks at the flag defaults of every loaded world and at the permissions held by the default
+// subject, where GP keeps defaults, overrides and claim flags, as well as loaded groups and users
+// which receive flags through /cfg and /cfp.
+public final class FlagRuleAnalyzer {
+
+    private static final ClaimFlag[] FLAGS = ClaimFlag.values();
+
+    private FlagRuleAnalyzer() {
+    }
+
+    public static Set<ClaimFlag> findDeniableFlags() {
+        final Set<ClaimFlag> deniableFlags = EnumSet.noneOf(ClaimFlag.class);
+        addDefaultDenials(deniableFlags, GriefPreventionPlugin.getGlobalConfig().getConfig().flags);
+        for (World world : Sponge.getServer().getWorlds()) {
+            final GriefPreventionConfig<?> activeConfig = GriefPreventionPlugin.getActiveConfig(world.getProperties());
+            if (activeConfig != null) {
+                addDefaultDenials(deniableFlags, activeConfig.getConfig().flags);
+            }
+        }
+
+        addSubjectDenials(deniableFlags, GriefPreventionPlugin.GLOBAL_SUBJECT);
+        final PermissionService permissionService = GriefPreventionPlugin.instance.permissionService;
+        for (Subject subject : permissionService.getGroupSubjects().getLoadedSubjects()) {
+            addSubjectDenials(deniableFlags, subject);
+        }
+        for (Subject subject : permissionService.getUserSubjects().getLoadedSubjects()) {
+            addSubjectDenials(deniableFlags, subject);
+        }
+        return deniableFlags;
+    }
+
+    // Anything but an explicit allow counts, some listeners deny undefined results
+    private static void addDefaultDenials(Set<ClaimFlag> deniableFlags, FlagCategory flagConfig) {
+        for (ClaimFlag flag : FLAGS) {
+            final String flagName = flag.toString();
+            if (!Boolean.TRUE.equals(flagConfig.getAdminDefaults().get(flagName))
+                    || !Boolean.TRUE.equals(flagConfig.getBasicDefaults().get(flagName))
+                    || !Boolean.TRUE.equals(flagConfig.getTownDefaults().get(flagName))
+                    || !Boolean.TRUE.equals(flagConfig.getWildernessDefaults().get(flagName))) {
+                deniableFlags.add(flag);
+            }
+        }
+    }
+
+    private static void addSubjectDenials(Set<ClaimFlag> deniableFlags, Subject subject) {
+        addDenials(deniableFlags, subject.getTransientSubjectData().getAllPermissions());
+        addDenials(deniableFlags, subject.getSubjectData().getAllPermissions());
+    }
+
+    private static void addDenials(Set<ClaimFlag> deniableFlags, Map<Set<Context>, Map<String, Boolean>> permissions) {
+        for (Map<String, Boolean> contextPermissions : permissions.values()) {
+            for (Map.Entry<String, Boolean> permissionEntry : contextPermissions.entrySet()) {
+                if (permissionEntry.getValue()) {
+                    continue;
+                }
+                for (ClaimFlag flag : FLAGS) {
+                    if (GPPermissions.coversFlag(permissionEntry.getKey(), flag)) {
+                        deniableFlags.add(flag);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -35,7 +35,6 @@
 import me.ryanhamshire.griefprevention.claim.GPClaim;
 import me.ryanhamshire.griefprevention.util.BlockUtils;
 import net.minecraft.entity.EnumCreatureType;
-import net.minecraft.entity.item.EntityItem;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.item.ItemBlock;
 import org.apache.commons.lang3.StringUtils;
@@ -44,6 +43,7 @@
 import org.spongepowered.api.block.BlockState;
 import org.spongepowered.api.block.BlockType;
 import org.spongepowered.api.block.tileentity.TileEntity;
+import org.spongepowered.api.block.tileentity.TileEntityType;
 import org.spongepowered.api.entity.Entity;
 import org.spongepowered.api.entity.EntityType;
 import org.spongepowered.api.entity.Item;
@@ -68,20 +68,35 @@
 import org.spongepowered.api.world.World;
 import org.spongepowered.common.SpongeImplHooks;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 public class GPPermissionHandler {
 
-    private static Event currentEvent;
-    private static Location<World> eventLocation;
-    private static Subject eventSubject;
-    private static String eventSource = "none";
-    private static String eventTarget = "none";
+    private static final Pattern META_PATTERN = Pattern.compile("\\.[\\d+]*$");
+    private static final PermissionKeyCache CLAIM_PERMISSION_KEYS = new PermissionKeyCache(GPPermissionHandler::compileClaimPermission);
+    private static final PermissionKeyCache FLAG_OVERRIDE_KEYS = new PermissionKeyCache(GPPermissionHandler::compileFlagOverride);
+    private static final PermissionKeyCache FLAG_PERMISSION_KEYS = new PermissionKeyCache(GPPermissionHandler::compileFlagPermission);
+    private static final PermissionDecisionCache DECISION_CACHE = new PermissionDecisionCache();
+    private static final WildernessFlagRules WILDERNESS_RULES = new WildernessFlagRules();
+
+    // Identifiers only depend on the catalog type (and meta), so they are built once and interned
+    private static final int ITEM_META_CACHE_SIZE = 16;
+    private static final Map<EntityType, String> ENTITY_TYPE_IDS = new ConcurrentHashMap<>();
+    private static final Map<EntityType, String> LIVING_TARGET_IDS = new ConcurrentHashMap<>();
+    private static final Map<BlockState, String> BLOCKSTATE_IDS = new ConcurrentHashMap<>();
+    private static final Map<TileEntityType, String> TILE_ENTITY_TYPE_IDS = new ConcurrentHashMap<>();
+    private static final Map<ItemType, String> ITEM_TYPE_IDS = new ConcurrentHashMap<>();
+    private static final Map<ItemType, String[]> ITEM_META_IDS = new ConcurrentHashMap<>();
 
     public static Tristate getClaimPermission(Event event, Location<World> location, GPClaim claim, String flagPermission, Object source, Object target, User user) {
         return getClaimPermission(event, location, claim, flagPermission, source, target, user, null, false);
@@ -97,97 +112,112 @@ public static Tristate getClaimPermission(Event event, Location<World> location,
         }
 
         GPPlayerData playerData = null;
-        eventSubject = null;
-        if (user != null) {
-            eventSubject = user;
-            if (user instanceof Player) {
-                playerData = GriefPreventionPlugin.instance.dataStore.getOrCreatePlayerData(claim.world, user.getUniqueId());
+        if (user instanceof Player) {
+            playerData = GriefPreventionPlugin.instance.dataStore.getOrCreatePlayerData(claim.world, user.getUniqueId());
+        }
+        final PermissionContext context = PermissionContext.current().begin(event, location, user);
+
+        final String sourceId = getPermissionIdentifier(context, source, true);
+        final String targetId = getPermissionIdentifier(context, target, false);
+        final PermissionKey permissionKey = CLAIM_PERMISSION_KEYS.get(flagPermission, sourceId, targetId);
+        final String targetPermission = permissionKey.permission;
+        final String targetModPermission = permissionKey.modPermission;
+        final String targetMetaPermission = permissionKey.metaPermission;
+
+        // debug logging and ignoring claims need the full evaluation every time
+        PermissionDecisionCache.Key decisionKey = null;
+        if (!GriefPreventionPlugin.debugActive && (playerData == null || !playerData.ignoreClaims)) {
+            final Set<Context> activeContexts = user == null ? Collections.<Context>emptySet() : getActiveContextsWithoutClaims(context, user);
+            decisionKey = context.decisionKey.set(claim.getUniqueId(), user == null ? null : user.getUniqueId(), permissionKey, type, checkOverride,
+                    activeContexts);
+            final Tristate decision = DECISION_CACHE.get(decisionKey);
+            if (decision != null) {
+                return decision;
             }
         }
-        currentEvent = event;
-        eventLocation = location;
 
-        String sourceId = getPermissionIdentifier(source, true);
-        String targetPermission = flagPermission;
-        String targetId = getPermissionIdentifier(target);
-        String targetModPermission = null;
-        String targetMetaPermission = null;
-        if (!targetId.isEmpty()) {
-            String[] parts = targetId.split(":");
-            String targetMod = parts[0];
-            // move target meta to end of permission
-            Pattern p = Pattern.compile("\\.[\\d+]*$");
-            Matcher m = p.matcher(targetId);
-            String targetMeta = "";
-            if (m.find()) {
-                targetMeta = m.group(0);
-                targetId = targetId.replace(targetMeta, "");
-            }
-            if (!targetMeta.isEmpty()) {
-                targetMetaPermission = flagPermission + "." + targetId.replace(":", ".") + targetMeta;
-            }
-            if (!sourceId.isEmpty()) {
-                targetModPermission = flagPermission + "." + targetMod + ".source." + sourceId + targetMeta;
-                targetModPermission = StringUtils.replace(targetModPermission, ":", ".");
-                targetPermission += "." + targetId + ".source." + sourceId + targetMeta;
-            } else {
-                targetModPermission = flagPermission + "." + targetMod + targetMeta;
-                targetModPermission = StringUtils.replace(targetModPermission, ":", ".");
-                targetPermission += "." + targetId + targetMeta;
-            }
-        } else if (!sourceId.isEmpty()) {
-            String targetMod = "";
-            if (sourceId.contains(":")) {
-                String[] parts = sourceId.split(":");
-                targetMod = parts[0];
-                targetModPermission = flagPermission + "." + targetMod + ".source." + sourceId;
-                targetModPermission = StringUtils.replace(targetModPermission, ":", ".");
-            }
-            targetPermission += ".source." + sourceId;
-        }
-
-        targetPermission = StringUtils.replace(targetPermission, ":", ".");
         if (checkOverride) {
             Tristate override = Tristate.UNDEFINED;
             if (user != null) {
                 // check global bans in wilderness
-                override = getFlagOverride((GPClaim) claim.getWilderness(), user, user, playerData, targetPermission, targetModPermission, targetMetaPermission);
+                override = getFlagOverride(context, (GPClaim) claim.getWilderness(), user, user, playerData, targetPermission, targetModPermission, targetMetaPermission);
                 if (override != Tristate.UNDEFINED) {
-                    return override;
+                    // wilderness denials may send the player a ban reason, keep those uncached
+                    return override == Tristate.FALSE && user instanceof Player ? override : cacheDecision(decisionKey, override);
                 }
             }
             // First check for claim flag overrides
-            override = getFlagOverride(claim, user == null ? GriefPreventionPlugin.GLOBAL_SUBJECT : user, user, playerData, targetPermission, targetModPermission, targetMetaPermission);
+            override = getFlagOverride(context, claim, user == null ? GriefPreventionPlugin.GLOBAL_SUBJECT : user, user, playerData, targetPermission, targetModPermission, targetMetaPermission);
             if (override != Tristate.UNDEFINED) {
-                return override;
+                return override == Tristate.FALSE && user instanceof Player && claim.isWilderness() ? override : cacheDecision(decisionKey, override);
             }
         }
 
         // Check for ignoreclaims after override checks
         if (playerData != null && playerData.canIgnoreClaim(claim)) {
-            return processResult(claim, "trust.ignore", Tristate.TRUE, user);
+            return processResult(context, claim, "trust.ignore", Tristate.TRUE, user);
         }
         if (user != null) {
             if (type != null) {
                 if (claim.isUserTrusted(user, type)) {
-                    return processResult(claim, "trust." + type.toString().toLowerCase(), Tristate.TRUE, user);
+                    return cacheDecision(decisionKey, processResult(context, claim, "trust." + type.toString().toLowerCase(), Tristate.TRUE, user));
                 }
             }
-            return getUserPermission(user, claim, targetPermission, targetModPermission, targetMetaPermission, playerData);
+            return cacheDecision(decisionKey, getUserPermission(context, user, claim, targetPermission, targetModPermission, targetMetaPermission, playerData));
         }
 
-        return getClaimFlagPermission(claim, targetPermission, targetModPermission, targetMetaPermission);
+        return cacheDecision(decisionKey, getClaimFlagPermission(context, claim, targetPermission, targetModPermission, targetMetaPermission));
     }
 
-    private static Tristate getUserPermission(User user, GPClaim claim, String permission, String targetModPermission, String targetMetaPermission, GPPlayerData playerData) {
-        final List<Claim> inheritParents = claim.getInheritedParents();
-        if (playerData != null) {
-            playerData.ignoreActiveContexts = true;
+    private static Tristate cacheDecision(@Nullable PermissionDecisionCache.Key decisionKey, Tristate value) {
+        if (decisionKey == null) {
+            return value;
         }
-        final Set<Context> contexts = new HashSet<>(user.getActiveContexts());
-        if (playerData != null) {
-            playerData.ignoreActiveContexts = false;
+        return DECISION_CACHE.put(decisionKey, value);
+    }
+
+    // Drops all cached permission decisions and wilderness rules, called whenever flags or the permission service change
+    public static void invalidateDecisionCache() {
+        invalidateClaimDecisionCache();
+        WILDERNESS_RULES.clear();
+    }
+
+    // Drops all cached permission decisions, called whenever claims or trust change
+    public static void invalidateClaimDecisionCache() {
+        DECISION_CACHE.clear();
+        GPFlags.requestListenerUpdate();
+    }
+
+    // A newly loaded subject may deny wilderness flags
+    public static void restrictWildernessRules(Subject subject) {
+        WILDERNESS_RULES.restrict(subject);
+    }
+
+    // Returns true if the flag is allowed in the wilderness and no override or flag could deny it
+    public static boolean isWildernessUnrestricted(GPClaim wilderness, ClaimFlag flag) {
+        // debug logging needs the full evaluation every time
+        return !GriefPreventionPlugin.debugActive && WILDERNESS_RULES.isUnrestricted(wilderness, flag);
+    }
+
+    // The flag lives in the thread's PermissionContext so concurrent checks for one player do not clobber it
+    private static Set<Context> getActiveContextsWithoutClaims(PermissionContext context, Subject subject) {
+        final boolean ignoreActiveContexts = context.ignoreActiveContexts;
+        context.ignoreActiveContexts = true;
+        try {
+            return subject.getActiveContexts();
+        } finally {
+            context.ignoreActiveContexts = ignoreActiveContexts;
         }
+    }
+
+    // Read by ClaimContextCalculator, true while a check collects the active contexts without claim contexts
+    public static boolean isIgnoringActiveContexts() {
+        return PermissionContext.current().ignoreActiveContexts;
+    }
+
+    private static Tristate getUserPermission(PermissionContext context, User user, GPClaim claim, String permission, String targetModPermission, String targetMetaPermission, GPPlayerData playerData) {
+        final List<Claim> inheritParents = claim.getInheritedParents();
+        final Set<Context> contexts = new HashSet<>(getActiveContextsWithoutClaims(context, user));
 
         for (Claim parentClaim : inheritParents) {
             GPClaim parent = (GPClaim) parentClaim;
@@ -196,12 +226,12 @@ private static Tristate getUserPermission(User user, GPClaim claim, String permi
 
             Tristate value = user.getPermissionValue(contexts, permission);
             if (value != Tristate.UNDEFINED) {
-                return processResult(claim, permission, value, user);
+                return processResult(context, claim, permission, value, user);
             }
             if (targetModPermission != null) {
                 value = user.getPermissionValue(contexts, targetModPermission);
                 if (value != Tristate.UNDEFINED) {
-                    return processResult(claim, targetModPermission, value, user);
+                    return processResult(context, claim, targetModPermission, value, user);
                 }
             }
 
@@ -211,50 +241,50 @@ private static Tristate getUserPermission(User user, GPClaim claim, String permi
         contexts.add(claim.getContext());
         Tristate value = user.getPermissionValue(contexts, permission);
         if (value != Tristate.UNDEFINED) {
-            return processResult(claim, permission, value, user);
+            return processResult(context, claim, permission, value, user);
         }
         if (targetMetaPermission != null) {
             value = user.getPermissionValue(contexts, targetMetaPermission);
             if (value != Tristate.UNDEFINED) {
-                return processResult(claim, targetMetaPermission, value, user);
+                return processResult(context, claim, targetMetaPermission, value, user);
             }
         }
         if (targetModPermission != null) {
             value = user.getPermissionValue(contexts, targetModPermission);
             if (value != Tristate.UNDEFINED) {
-                return processResult(claim, targetModPermission, value, user);
+                return processResult(context, claim, targetModPermission, value, user);
             }
         }
 
-        return getClaimFlagPermission(claim, permission, targetModPermission, targetMetaPermission);
+        return getClaimFlagPermission(context, claim, permission, targetModPermission, targetMetaPermission);
     }
 
-    private static Tristate getClaimFlagPermission(GPClaim claim, String permission, String targetModPermission, String targetMetaPermission) {
+    private static Tristate getClaimFlagPermission(PermissionContext context, GPClaim claim, String permission, String targetModPermission, String targetMetaPermission) {
         Set<Context> contexts = new HashSet<>(GriefPreventionPlugin.GLOBAL_SUBJECT.getActiveContexts());
         contexts.add(claim.getContext());
 
         Tristate value = GriefPreventionPlugin.GLOBAL_SUBJECT.getPermissionValue(contexts, permission);
         if (value != Tristate.UNDEFINED) {
-            return processResult(claim, permission, value, GriefPreventionPlugin.GLOBAL_SUBJECT);
+            return processResult(context, claim, permission, value, GriefPreventionPlugin.GLOBAL_SUBJECT);
         }
         if (targetMetaPermission != null) {
             value = GriefPreventionPlugin.GLOBAL_SUBJECT.getPermissionValue(contexts, targetMetaPermission);
             if (value != Tristate.UNDEFINED) {
-                return processResult(claim, targetMetaPermission, value, GriefPreventionPlugin.GLOBAL_SUBJECT);
+                return processResult(context, claim, targetMetaPermission, value, GriefPreventionPlugin.GLOBAL_SUBJECT);
             }
         }
         if (targetModPermission != null) {
             value = GriefPreventionPlugin.GLOBAL_SUBJECT.getPermissionValue(contexts, targetModPermission);
             if (value != Tristate.UNDEFINED) {
-                return processResult(claim, targetModPermission, value, GriefPreventionPlugin.GLOBAL_SUBJECT);
+                return processResult(context, claim, targetModPermission, value, GriefPreventionPlugin.GLOBAL_SUBJECT);
             }
         }
 
-        return getFlagDefaultPermission(claim, permission);
+        return getFlagDefaultPermission(context, claim, permission);
     }
 
     // Only uses world and claim type contexts
-    private static Tristate getFlagDefaultPermission(GPClaim claim, String permission) {
+    private static Tristate getFlagDefaultPermission(PermissionContext context, GPClaim claim, String permission) {
         // Fallback to defaults
         Set<Context> contexts = new HashSet<>(GriefPreventionPlugin.GLOBAL_SUBJECT.getActiveContexts());
         if (claim.parent != null && claim.getData().doesInheritParent()) {
@@ -279,25 +309,19 @@ private static Tristate getFlagDefaultPermission(GPClaim claim, String permissio
         // check persisted/transient default data
         Tristate value = GriefPreventionPlugin.GLOBAL_SUBJECT.getPermissionValue(contexts, permission);
         if (value != Tristate.UNDEFINED) {
-            return processResult(claim, permission, value, GriefPreventionPlugin.GLOBAL_SUBJECT);
+            return processResult(context, claim, permission, value, GriefPreventionPlugin.GLOBAL_SUBJECT);
         }
 
-        return processResult(claim, permission, Tristate.UNDEFINED, GriefPreventionPlugin.GLOBAL_SUBJECT);
+        return processResult(context, claim, permission, Tristate.UNDEFINED, GriefPreventionPlugin.GLOBAL_SUBJECT);
     }
 
-    private static Tristate getFlagOverride(GPClaim claim, Subject subject, User user, GPPlayerData playerData, String flagPermission, String targetModPermission, String targetMetaPermission) {
+    private static Tristate getFlagOverride(PermissionContext context, GPClaim claim, Subject subject, User user, GPPlayerData playerData, String flagPermission, String targetModPermission, String targetMetaPermission) {
         if (!claim.getInternalClaimData().allowFlagOverrides()) {
             return Tristate.UNDEFINED;
         }
 
         Player player = null;
-        if (playerData != null) {
-            playerData.ignoreActiveContexts = true;
-        }
-        Set<Context> contexts = new LinkedHashSet<>(subject.getActiveContexts());
-        if (playerData != null) {
-            playerData.ignoreActiveContexts = false;
-        }
+        Set<Context> contexts = new LinkedHashSet<>(getActiveContextsWithoutClaims(context, subject));
         if (claim.isAdminClaim()) {
             contexts.add(ClaimContexts.ADMIN_OVERRIDE_CONTEXT);
             contexts.add(claim.world.getContext());
@@ -320,7 +344,7 @@ private static Tristate getFlagOverride(GPClaim claim, Subject subject, User use
                     player.sendMessage(reason);
                 }
             }
-            return processResult(claim, flagPermission, value, user);
+            return processResult(context, claim, flagPermission, value, user);
         }
         if (targetMetaPermission != null) {
             value = subject.getPermissionValue(contexts, targetMetaPermission);
@@ -331,7 +355,7 @@ private static Tristate getFlagOverride(GPClaim claim, Subject subject, User use
                         player.sendMessage(reason);
                     }
                 }
-                return processResult(claim, targetMetaPermission, value, user);
+                return processResult(context, claim, targetMetaPermission, value, user);
             }
         }
         if (targetModPermission != null) {
@@ -343,7 +367,7 @@ private static Tristate getFlagOverride(GPClaim claim, Subject subject, User use
                         player.sendMessage(reason);
                     }
                 }
-                return processResult(claim, targetModPermission, value, user);
+                return processResult(context, claim, targetModPermission, value, user);
             }
         }
 
@@ -362,51 +386,22 @@ public static Tristate getFlagOverride(Event event, Location<World> location, GP
             }
         }
 
-        currentEvent = event;
-        eventLocation = location;
-        eventSubject = user;
+        final PermissionContext context = PermissionContext.current().begin(event, location, user);
         Player player = null;
         final Subject subject = user != null ? user : GriefPreventionPlugin.GLOBAL_SUBJECT;
-        String targetModPermission = null;
-        String targetMetaPermission = null;
-        if (target != null && source == null) {
-            String targetId = getPermissionIdentifier(target);
-            flagPermission += "." + targetId;
-        } else if (target != null && source != null) {
-            String sourceId = getPermissionIdentifier(source, true);
-            String targetId = getPermissionIdentifier(target);
-            if (!targetId.isEmpty()) {
-                String[] parts = targetId.split(":");
-                String targetMod = parts[0];
-                if (!sourceId.isEmpty()) {
-                    // move target meta to end of permission
-                    Pattern p = Pattern.compile("\\.[\\d+]*$");
-                    Matcher m = p.matcher(targetId);
-                    String targetMeta = "";
-                    if (m.find()) {
-                        targetMeta = m.group(0);
-                        targetId = targetId.replace(targetMeta, "");
-                    }
-                    if (!targetMeta.isEmpty()) {
-                        targetMetaPermission = flagPermission + "." + targetId.replace(":", ".") + targetMeta;
-                    }
-                    targetModPermission = flagPermission + "." + targetMod + ".source." + sourceId + targetMeta;
-                    targetModPermission = StringUtils.replace(targetModPermission, ":", ".");
-                    flagPermission += "." + targetId + ".source." + sourceId + targetMeta;
-                } else {
-                    flagPermission += "." + targetId;
-                }
+        String sourceId = "";
+        String targetId = "";
+        if (target != null) {
+            targetId = getPermissionIdentifier(context, target, false);
+            if (source != null) {
+                sourceId = getPermissionIdentifier(context, source, true);
             }
         }
-
-        flagPermission = StringUtils.replace(flagPermission, ":", ".");
-        if (playerData != null) {
-            playerData.ignoreActiveContexts = true;
-        }
-        Set<Context> contexts = new LinkedHashSet<>(subject.getActiveContexts());
-        if (playerData != null) {
-            playerData.ignoreActiveContexts = false;
-        }
+        final PermissionKey permissionKey = FLAG_OVERRIDE_KEYS.get(flagPermission, sourceId, targetId);
+        flagPermission = permissionKey.permission;
+        final String targetModPermission = permissionKey.modPermission;
+        final String targetMetaPermission = permissionKey.metaPermission;
+        Set<Context> contexts = new LinkedHashSet<>(getActiveContextsWithoutClaims(context, subject));
         if (claim.isWilderness()) {
             contexts.add(ClaimContexts.WILDERNESS_OVERRIDE_CONTEXT);
             player = user instanceof Player ? (Player) user : null;
@@ -429,7 +424,7 @@ public static Tristate getFlagOverride(Event event, Location<World> location, GP
                     player.sendMessage(reason);
                 }
             }
-            return processResult(claim, flagPermission, value, user);
+            return processResult(context, claim, flagPermission, value, user);
         }
         if (targetMetaPermission != null) {
             value = subject.getPermissionValue(contexts, targetMetaPermission);
@@ -440,7 +435,7 @@ public static Tristate getFlagOverride(Event event, Location<World> location, GP
                         player.sendMessage(reason);
                     }
                 }
-                return processResult(claim, targetMetaPermission, value, user);
+                return processResult(context, claim, targetMetaPermission, value, user);
             }
         }
         // check target modid
@@ -453,7 +448,7 @@ public static Tristate getFlagOverride(Event event, Location<World> location, GP
                         player.sendMessage(reason);
                     }
                 }
-                return processResult(claim, targetModPermission, value, user);
+                return processResult(context, claim, targetModPermission, value, user);
             }
         }
 
@@ -463,52 +458,35 @@ public static Tristate getFlagOverride(Event event, Location<World> location, GP
     // used by Flag API
     public static Tristate getClaimPermission(GPClaim claim, ClaimFlag flag, Subject subject, String source, String target, Context context) {
         final String flagBasePermission = GPPermissions.FLAG_BASE + "." + flag.toString();
-        String sourceId = getPermissionIdentifier(source, true);
-        String targetPermission = flagBasePermission;
-        String targetId = getPermissionIdentifier(target);
-        String targetModPermission = null;
-        if (!targetId.isEmpty()) {
-            if (!sourceId.isEmpty()) {
-                String[] parts = targetId.split(":");
-                String targetMod = parts[0];
-                // move target meta to end of permission
-                Pattern p = Pattern.compile("\\.[\\d+]*$");
-                Matcher m = p.matcher(targetId);
-                String targetMeta = "";
-                if (m.find()) {
-                    targetMeta = m.group(0);
-                    targetId = targetId.replace(targetMeta, "");
-                }
-                targetModPermission = flagBasePermission + "." + targetMod + ".source." + sourceId + targetMeta;
-                targetModPermission = StringUtils.replace(targetModPermission, ":", ".");
-                targetPermission += "." + targetId + ".source." + sourceId + targetMeta;
-            } else {
-                targetPermission += "." + targetId;
-            }
-        }
-        targetPermission = StringUtils.replace(targetPermission, ":", ".");
+        final String sourceId = getPermissionIdentifier(source, true);
+        final String targetId = getPermissionIdentifier(target);
+        final String targetPermission = FLAG_PERMISSION_KEYS.get(flagBasePermission, sourceId, targetId).permission;
         Set<Context> contexts = new HashSet<>();
         contexts.add(context);
         return subject.getPermissionValue(contexts, targetPermission);
     }
 
     public static Tristate processResult(GPClaim claim, String permission, Tristate permissionValue, Subject subject) {
+        return processResult(PermissionContext.current(), claim, permission, permissionValue, subject);
+    }
+
+    private static Tristate processResult(PermissionContext context, GPClaim claim, String permission, Tristate permissionValue, Subject subject) {
         if (GriefPreventionPlugin.debugActive) {
             if (subject == null) {
-                if (eventSubject != null) {
-                    subject = eventSubject;
-                } else if (currentEvent.getCause().root() instanceof User) {
-                    subject = (Subject) currentEvent.getCause().root();
+                if (context.subject != null) {
+                    subject = context.subject;
+                } else if (context.event.getCause().root() instanceof User) {
+                    subject = (Subject) context.event.getCause().root();
                 } else {
                     subject = GriefPreventionPlugin.GLOBAL_SUBJECT;
                 }
             }
-            if (currentEvent instanceof CollideEvent || currentEvent instanceof NotifyNeighborBlockEvent) {
+            if (context.event instanceof CollideEvent || context.event instanceof NotifyNeighborBlockEvent) {
                 if (claim.getWorld().getProperties().getTotalTime() % 100 == 0L) {
-                    GriefPreventionPlugin.addEventLogEntry(currentEvent, claim, eventLocation, eventSource, eventTarget, subject, permission, permissionValue);
+                    GriefPreventionPlugin.addEventLogEntry(context.event, claim, context.location, context.source, context.target, subject, permission, permissionValue);
                 }
             } else {
-                GriefPreventionPlugin.addEventLogEntry(currentEvent, claim, eventLocation, eventSource, eventTarget, subject, permission, permissionValue);
+                GriefPreventionPlugin.addEventLogEntry(context.event, claim, context.location, context.source, context.target, subject, permission, permissionValue);
             }
         }
 
@@ -519,104 +497,83 @@ public static String getPermissionIdentifier(Object obj) {
         return getPermissionIdentifier(obj, false);
     }
 
-    @SuppressWarnings("deprecation")
     public static String getPermissionIdentifier(Object obj, boolean isSource) {
+        return getPermissionIdentifier(PermissionContext.current(), obj, isSource);
+    }
+
+    private static String getPermissionIdentifier(PermissionContext context, Object obj, boolean isSource) {
         if (obj != null) {
             if (obj instanceof Entity) {
-                Entity targetEntity = (Entity) obj;
-                net.minecraft.entity.Entity mcEntity = (net.minecraft.entity.Entity) targetEntity;
-                String id = "";
-                if (mcEntity instanceof EntityItem) {
-                    EntityItem mcItem = (EntityItem) mcEntity;
-                    net.minecraft.item.ItemStack itemStack = mcItem.getItem();
-                    if (itemStack != null && itemStack.getItem() != null) {
-                        ItemType itemType = (ItemType) itemStack.getItem();
-                        id = itemType.getId() + "." + itemStack.getItemDamage();
-                    }
-                } else {
-                    if (targetEntity.getType() != null) {
-                        id = targetEntity.getType().getId();
-                    }
+                final Entity targetEntity = (Entity) obj;
+                if (targetEntity instanceof Item) {
+                    final String id = getItemTypeIdentifier(((Item) targetEntity).getItemType());
+                    populateEventSourceTarget(context, id, isSource);
+                    return id;
                 }
 
-                if (id.contains("unknown") && SpongeImplHooks.isFakePlayer(mcEntity)) {
-                    id = "fakeplayer:" + ((EntityPlayer) obj).getName().toLowerCase();
-                }
-                populateEventSourceTarget(id, isSource);
-                if (!isSource && targetEntity instanceof Living) {
-                    for (EnumCreatureType type : EnumCreatureType.values()) {
-                        if (SpongeImplHooks.isCreatureOfType(mcEntity, type)) {
-                            String[] parts = id.split(":");
-                            if (parts.length > 1) {
-                                id =  parts[0] + ":" + GPFlags.SPAWN_TYPES.inverse().get(type) + ":" + parts[1];
-                                break;
-                            }
-                        }
-                    }
+                final EntityType entityType = targetEntity.getType();
+                if (entityType == null) {
+                    populateEventSourceTarget(context, "", isSource);
+                    return "";
                 }
 
-                if (targetEntity instanceof Item) {
-                    id = ((Item) targetEntity).getItemType().getId();
-                    populateEventSourceTarget(id, isSource);
+                final net.minecraft.entity.Entity mcEntity = (net.minecraft.entity.Entity) targetEntity;
+                final String id = getEntityTypeIdentifier(entityType);
+                if (id.contains("unknown") && SpongeImplHooks.isFakePlayer(mcEntity)) {
+                    final String fakePlayerId = "fakeplayer:" + ((EntityPlayer) obj).getName().toLowerCase();
+                    populateEventSourceTarget(context, fakePlayerId, isSource);
+                    return fakePlayerId;
                 }
 
-                return id.toLowerCase();
+                populateEventSourceTarget(context, id, isSource);
+                if (!isSource && targetEntity instanceof Living) {
+                    return getLivingTargetIdentifier(mcEntity, entityType);
+                }
+                return id;
             } else if (obj instanceof EntityType) {
                 final String id = ((EntityType) obj).getId();
-                populateEventSourceTarget(id, isSource);
+                populateEventSourceTarget(context, id, isSource);
                 return ((EntityType) obj).getId();
             } else if (obj instanceof BlockType) {
                 final String id = ((BlockType) obj).getId();
-                populateEventSourceTarget(id, isSource);
+                populateEventSourceTarget(context, id, isSource);
                 return id;
             } else if (obj instanceof BlockSnapshot) {
                 final BlockSnapshot blockSnapshot = (BlockSnapshot) obj;
-                final BlockState blockstate = blockSnapshot.getState();
-                final String id = blockstate.getType().getId() + "." + BlockUtils.getBlockStateMeta(blockstate);
-                populateEventSourceTarget(id, isSource);
-                return id.toLowerCase();
+                final String id = getBlockStateIdentifier(blockSnapshot.getState());
+                populateEventSourceTarget(context, id, isSource);
+                return id;
             } else if (obj instanceof BlockState) {
-                final BlockState blockstate = (BlockState) obj;
-                final String id = blockstate.getType().getId() + "." + BlockUtils.getBlockStateMeta(blockstate);
-                populateEventSourceTarget(id, isSource);
-                return id.toLowerCase();
+                final String id = getBlockStateIdentifier((BlockState) obj);
+                populateEventSourceTarget(context, id, isSource);
+                return id;
             } else if (obj instanceof LocatableBlock) {
                 final LocatableBlock locatableBlock = (LocatableBlock) obj;
-                final BlockState blockstate = locatableBlock.getBlockState();
-                final String id = blockstate.getType().getId() + "." + BlockUtils.getBlockStateMeta(blockstate);
-                populateEventSourceTarget(id, isSource);
-                return id.toLowerCase();
+                final String id = getBlockStateIdentifier(locatableBlock.getBlockState());
+                populateEventSourceTarget(context, id, isSource);
+                return id;
             } else if (obj instanceof TileEntity) {
                 TileEntity tileEntity = (TileEntity) obj;
-                final String id = tileEntity.getType().getId().toLowerCase();
-                populateEventSourceTarget(id, isSource);
+                final String id = getTileEntityTypeIdentifier(tileEntity.getType());
+                populateEventSourceTarget(context, id, isSource);
                 return id;
             } else if (obj instanceof ItemStack) {
                 final ItemStack itemstack = (ItemStack) obj;
-                String id = "";
-                if (itemstack.getItem() instanceof ItemBlock) {
-                    ItemBlock itemBlock = (ItemBlock) itemstack.getItem();
-                    net.minecraft.item.ItemStack nmsStack = (net.minecraft.item.ItemStack)(Object) itemstack;
-                    BlockState blockState = ((BlockState) itemBlock.getBlock().getStateFromMeta(nmsStack.getItemDamage()));
-                    id = blockState.getType().getId() + "." + nmsStack.getItemDamage();
-                } else {
-                    id = itemstack.getItem().getId() + "." + ((net.minecraft.item.ItemStack)(Object) itemstack).getItemDamage();
-                }
-
-                populateEventSourceTarget(id, isSource);
-                return id.toLowerCase();
+                final String id = getItemStackIdentifier(itemstack.getItem(), ((net.minecraft.item.ItemStack)(Object) itemstack).getItemDamage());
+                populateEventSourceTarget(context, id, isSource);
+                return id;
             } else if (obj instanceof ItemType) {
-                final String id = ((ItemType) obj).getId().toLowerCase();
-                populateEventSourceTarget(id, isSource);
+                final String id = getItemTypeIdentifier((ItemType) obj);
+                populateEventSourceTarget(context, id, isSource);
                 return id;
             } else if (obj instanceof EntityDamageSource) {
                 final EntityDamageSource damageSource = (EntityDamageSource) obj;
-                if (eventSubject == null && damageSource.getSource() instanceof User) {
-                    eventSubject = (User) damageSource.getSource();
+                if (context.subject == null && damageSource.getSource() instanceof User) {
+                    context.subject = (User) damageSource.getSource();
                 }
 
                 final String id = damageSource.getSource().getType().getId();
-                populateEventSourceTarget(id, isSource);
+                populateEventSourceTarget(context, id, isSource);
                 return damageSource.getSource().getType().getId();
             } else if (obj instanceof DamageSource) {
                 final DamageSource damageSource = (DamageSource) obj;
@@ -625,31 +582,117 @@ public static String getPermissionIdentifier(Object obj, boolean isSource) {
                     id = "minecraft:" + id;
                 }
 
-                populateEventSourceTarget(id, isSource);
+                populateEventSourceTarget(context, id, isSource);
                 return id;
             } else if (obj instanceof ItemStackSnapshot) {
                 final String id = ((ItemStackSnapshot) obj).getType().getId();
-                populateEventSourceTarget(id, isSource);
+                populateEventSourceTarget(context, id, isSource);
                 return id;
             } else if (obj instanceof CatalogType) {
                 final String id = ((CatalogType) obj).getId();
-                populateEventSourceTarget(id, isSource);
+                populateEventSourceTarget(context, id, isSource);
                 return id;
             } else if (obj instanceof String) {
                 final String id = obj.toString().toLowerCase();
-                populateEventSourceTarget(id, isSource);
+                populateEventSourceTarget(context, id, isSource);
                 return id;
             } else if (obj instanceof PluginContainer) {
                 final String id = ((PluginContainer) obj).getId();
-                populateEventSourceTarget(id, isSource);
+                populateEventSourceTarget(context, id, isSource);
                 return id;
             }
         }
 
-        populateEventSourceTarget("none", isSource);
+        populateEventSourceTarget(context, "none", isSource);
         return "";
     }
 
+    private static String getEntityTypeIdentifier(EntityType type) {
+        String id = ENTITY_TYPE_IDS.get(type);
+        if (id == null) {
+            id = type.getId().toLowerCase().intern();
+            ENTITY_TYPE_IDS.put(type, id);
+        }
+        return id;
+    }
+
+    // Living targets are qualified with their spawn type, e.g. minecraft:monster:zombie
+    private static String getLivingTargetIdentifier(net.minecraft.entity.Entity mcEntity, EntityType type) {
+        String id = LIVING_TARGET_IDS.get(type);
+        if (id == null) {
+            id = getEntityTypeIdentifier(type);
+            for (EnumCreatureType creatureType : EnumCreatureType.values()) {
+                if (SpongeImplHooks.isCreatureOfType(mcEntity, creatureType)) {
+                    String[] parts = id.split(":");
+                    if (parts.length > 1) {
+                        id = (parts[0] + ":" + GPFlags.SPAWN_TYPES.inverse().get(creatureType) + ":" + parts[1]).toLowerCase().intern();
+                        break;
+                    }
+                }
+            }
+            LIVING_TARGET_IDS.put(type, id);
+        }
+        return id;
+    }
+
+    private static String getBlockStateIdentifier(BlockState state) {
+        String id = BLOCKSTATE_IDS.get(state);
+        if (id == null) {
+            id = (state.getType().getId() + "." + BlockUtils.getBlockStateMeta(state)).toLowerCase().intern();
+            BLOCKSTATE_IDS.put(state, id);
+        }
+        return id;
+    }
+
+    private static String getTileEntityTypeIdentifier(TileEntityType type) {
+        String id = TILE_ENTITY_TYPE_IDS.get(type);
+        if (id == null) {
+            id = type.getId().toLowerCase().intern();
+            TILE_ENTITY_TYPE_IDS.put(type, id);
+        }
+        return id;
+    }
+
+    private static String getItemTypeIdentifier(ItemType type) {
+        String id = ITEM_TYPE_IDS.get(type);
+        if (id == null) {
+            id = type.getId().toLowerCase().intern();
+            ITEM_TYPE_IDS.put(type, id);
+        }
+        return id;
+    }
+
+    // Only meta values are cached, damage on tools covers too wide a range
+    private static String getItemStackIdentifier(ItemType type, int damage) {
+        if (damage < 0 || damage >= ITEM_META_CACHE_SIZE) {
+            return computeItemStackIdentifier(type, damage);
+        }
+
+        String[] ids = ITEM_META_IDS.get(type);
+        if (ids == null) {
+            ids = new String[ITEM_META_CACHE_SIZE];
+            final String[] existing = ITEM_META_IDS.putIfAbsent(type, ids);
+            if (existing != null) {
+                ids = existing;
+            }
+        }
+        String id = ids[damage];
+        if (id == null) {
+            id = computeItemStackIdentifier(type, damage).intern();
+            ids[damage] = id;
+        }
+        return id;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String computeItemStackIdentifier(ItemType type, int damage) {
+        if (type instanceof ItemBlock) {
+            final BlockState blockState = (BlockState) ((ItemBlock) type).getBlock().getStateFromMeta(damage);
+            return (blockState.getType().getId() + "." + damage).toLowerCase();
+        }
+        return (type.getId() + "." + damage).toLowerCase();
+    }
+
     public static ClaimFlag getFlagFromPermission(String flagPermission) {
         try {
             return ClaimFlag.getEnum(flagPermission);
@@ -689,44 +732,117 @@ public static String getTargetPermission(String flagPermission) {
 
     // Used for debugging
     public static String getPermission(Object source, Object target, String flagPermission) {
-        String sourceId = getPermissionIdentifier(source, true);
+        final String sourceId = getPermissionIdentifier(source, true);
+        final String targetId = getPermissionIdentifier(target);
+        return FLAG_PERMISSION_KEYS.get(flagPermission, sourceId, targetId).permission;
+    }
+
+    public static String getIdentifierWithoutMeta(String targetId) {
+        Matcher m = META_PATTERN.matcher(targetId);
+        String targetMeta = "";
+        if (m.find()) {
+            targetMeta = m.group(0);
+            targetId = targetId.replace(targetMeta, "");
+        }
+        return targetId;
+    }
+
+    private static PermissionKey compileClaimPermission(String flagPermission, String sourceId, String targetId) {
+        String targetPermission = flagPermission;
+        String targetModPermission = null;
+        String targetMetaPermission = null;
+        if (!targetId.isEmpty()) {
+            String[] parts = targetId.split(":");
+            String targetMod = parts[0];
+            // move target meta to end of permission
+            Matcher m = META_PATTERN.matcher(targetId);
+            String targetMeta = "";
+            if (m.find()) {
+                targetMeta = m.group(0);
+                targetId = targetId.replace(targetMeta, "");
+            }
+            if (!targetMeta.isEmpty()) {
+                targetMetaPermission = flagPermission + "." + targetId.replace(":", ".") + targetMeta;
+            }
+            if (!sourceId.isEmpty()) {
+                targetModPermission = flagPermission + "." + targetMod + ".source." + sourceId + targetMeta;
+                targetModPermission = StringUtils.replace(targetModPermission, ":", ".");
+                targetPermission += "." + targetId + ".source." + sourceId + targetMeta;
+            } else {
+                targetModPermission = flagPermission + "." + targetMod + targetMeta;
+                targetModPermission = StringUtils.replace(targetModPermission, ":", ".");
+                targetPermission += "." + targetId + targetMeta;
+            }
+        } else if (!sourceId.isEmpty()) {
+            if (sourceId.contains(":")) {
+                String[] parts = sourceId.split(":");
+                String targetMod = parts[0];
+                targetModPermission = flagPermission + "." + targetMod + ".source." + sourceId;
+                targetModPermission = StringUtils.replace(targetModPermission, ":", ".");
+            }
+            targetPermission += ".source." + sourceId;
+        }
+
+        targetPermission = StringUtils.replace(targetPermission, ":", ".");
+        return new PermissionKey(targetPermission, targetModPermission, targetMetaPermission);
+    }
+
+    private static PermissionKey compileFlagOverride(String flagPermission, String sourceId, String targetId) {
         String targetPermission = flagPermission;
-        String targetId = getPermissionIdentifier(target);
+        String targetModPermission = null;
+        String targetMetaPermission = null;
         if (!targetId.isEmpty()) {
             if (!sourceId.isEmpty()) {
+                String[] parts = targetId.split(":");
+                String targetMod = parts[0];
                 // move target meta to end of permission
-                Pattern p = Pattern.compile("\\.[\\d+]*$");
-                Matcher m = p.matcher(targetId);
+                Matcher m = META_PATTERN.matcher(targetId);
                 String targetMeta = "";
                 if (m.find()) {
                     targetMeta = m.group(0);
                     targetId = targetId.replace(targetMeta, "");
-        }
+                }
+                if (!targetMeta.isEmpty()) {
+                    targetMetaPermission = flagPermission + "." + targetId.replace(":", ".") + targetMeta;
+                }
+                targetModPermission = flagPermission + "." + targetMod + ".source." + sourceId + targetMeta;
+                targetModPermission = StringUtils.replace(targetModPermission, ":", ".");
                 targetPermission += "." + targetId + ".source." + sourceId + targetMeta;
             } else {
                 targetPermission += "." + targetId;
             }
         }
+
         targetPermission = StringUtils.replace(targetPermission, ":", ".");
-        return targetPermission;
+        return new PermissionKey(targetPermission, targetModPermission, targetMetaPermission);
     }
 
-    public static String getIdentifierWithoutMeta(String targetId) {
-        Pattern p = Pattern.compile("\\.[\\d+]*$");
-        Matcher m = p.matcher(targetId);
-        String targetMeta = "";
-        if (m.find()) {
-            targetMeta = m.group(0);
-            targetId = targetId.replace(targetMeta, "");
+    private static PermissionKey compileFlagPermission(String flagPermission, String sourceId, String targetId) {
+        String targetPermission = flagPermission;
+        if (!targetId.isEmpty()) {
+            if (!sourceId.isEmpty()) {
+                // move target meta to end of permission
+                Matcher m = META_PATTERN.matcher(targetId);
+                String targetMeta = "";
+                if (m.find()) {
+                    targetMeta = m.group(0);
+                    targetId = targetId.replace(targetMeta, "");
+                }
+                targetPermission += "." + targetId + ".source." + sourceId + targetMeta;
+            } else {
+                targetPermission += "." + targetId;
+            }
         }
-        return targetId;
+
+        targetPermission = StringUtils.replace(targetPermission, ":", ".");
+        return new PermissionKey(targetPermission, null, null);
     }
 
-    private static void populateEventSourceTarget(String id, boolean isSource) {
+    private static void populateEventSourceTarget(PermissionContext context, String id, boolean isSource) {
         if (isSource) {
-            eventSource = id.toLowerCase();
+            context.source = id.toLowerCase();
         } else {
-            eventTarget = id.toLowerCase();
+            context.target = id.toLowerCase();
         }
     }
 }
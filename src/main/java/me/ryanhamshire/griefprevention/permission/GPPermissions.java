@@ -24,6 +24,7 @@
  */
 package me.ryanhamshire.griefprevention.permission;
 
+import me.ryanhamshire.griefprevention.api.claim.ClaimFlag;
 import me.ryanhamshire.griefprevention.api.claim.TrustType;
 
 public class GPPermissions {
@@ -226,4 +227,16 @@ public static String getTrustPermission(TrustType type) {
 
         return GPPermissions.TRUST_MANAGER;
     }
+
+    // Returns true if a value set on the permission also applies to the flag, nodes inherit along the dot hierarchy
+    public static boolean coversFlag(String permission, ClaimFlag flag) {
+        final String flagPermission = FLAG_BASE + "." + flag.toString();
+        if (permission.length() == flagPermission.length()) {
+            return permission.equals(flagPermission);
+        }
+        if (permission.length() > flagPermission.length()) {
+            return permission.startsWith(flagPermission) && permission.charAt(flagPermission.length()) == '.';
+        }
+        return flagPermission.startsWith(permission) && flagPermission.charAt(permission.length()) == '.';
+    }
 }
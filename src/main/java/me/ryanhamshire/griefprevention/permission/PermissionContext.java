@@ -0,0 +1,63 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.permission;
+
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.service.permission.Subject;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
+
+// State of the permission check currently running on a thread, used for debug logging
+// and to leave claim contexts out of the subject's active contexts.
+// Each thread reuses a single instance so checks can run off the main thread without
+// clobbering each other and without allocating per evaluation.
+final class PermissionContext {
+
+    private static final ThreadLocal<PermissionContext> CURRENT = ThreadLocal.withInitial(PermissionContext::new);
+
+    Event event;
+    Location<World> location;
+    Subject subject;
+    String source = "none";
+    String target = "none";
+    // set while the active contexts are collected without the claim contexts
+    boolean ignoreActiveContexts;
+    // reused to probe the decision cache without allocating
+    final PermissionDecisionCache.Key decisionKey = new PermissionDecisionCache.Key();
+
+    private PermissionContext() {
+    }
+
+    static PermissionContext current() {
+        return CURRENT.get();
+    }
+
+    PermissionContext begin(Event event, Location<World> location, Subject subject) {
+        this.event = event;
+        this.location = location;
+        this.subject = subject;
+        return this;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.permission;
+
+import com.google.common.collect.ImmutableSet;
+import me.ryanhamshire.griefprevention.api.claim.TrustType;
+import org.spongepowered.api.service.context.Context;
+import org.spongepowered.api.util.Tristate;
+import org.spongepowered.common.SpongeImpl;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+// Final results of claim permission checks keyed by claim, subject, compiled permission key
+// and the subject's active contexts.
+// Claim, flag and trust changes made through GP clear the cache directly. Permission plugins
+// give no notice when subject data changes, so entries also expire after EXPIRE_TICKS.
+final class PermissionDecisionCache {
+
+    private static final int MAX_DECISIONS = 32768;
+    private static final int EXPIRE_TICKS = 20;
+
+    private final Map<Key, Decision> decisions = new ConcurrentHashMap<>();
+
+    @Nullable
+    Tristate get(Key key) {
+        final Decision decision = this.decisions.get(key);
+        if (decision == null) {
+            return null;
+        }
+        if ((SpongeImpl.getServer().getTickCounter() - decision.tick) > EXPIRE_TICKS) {
+            this.decisions.remove(key, decision);
+            return null;
+        }
+        return decision.value;
+    }
+
+    Tristate put(Key key, Tristate value) {
+        if (this.decisions.size() >= MAX_DECISIONS) {
+            this.decisions.clear();
+        }
+        this.decisions.put(new Key(key), new Decision(value, SpongeImpl.getServer().getTickCounter()));
+        return value;
+    }
+
+    void clear() {
+        this.decisions.clear();
+    }
+
+    // Mutable so each thread can probe with a single reused instance, stored entries are always copies
+    static final class Key {
+
+        private UUID claimId;
+        @Nullable private UUID subjectId;
+        private PermissionKey permissionKey;
+        @Nullable private TrustType trustType;
+        private boolean checkOverride;
+        // active contexts of the subject without claim contexts, calculators of other plugins can change the decision
+        private Set<Context> contexts;
+        private int hashCode;
+
+        Key() {
+        }
+
+        private Key(Key probe) {
+            this.claimId = probe.claimId;
+            this.subjectId = probe.subjectId;
+            this.permissionKey = probe.permissionKey;
+            this.trustType = probe.trustType;
+            this.checkOverride = probe.checkOverride;
+            this.contexts = ImmutableSet.copyOf(probe.contexts);
+            this.hashCode = probe.hashCode;
+        }
+
+        Key set(UUID claimId, @Nullable UUID subjectId, PermissionKey permissionKey, @Nullable TrustType trustType, boolean checkOverride,
+                Set<Context> contexts) {
+            this.claimId = claimId;
+            this.subjectId = subjectId;
+            this.permissionKey = permissionKey;
+            this.trustType = trustType;
+            this.checkOverride = checkOverride;
+            this.contexts = contexts;
+            int hash = claimId.hashCode();
+            hash = 31 * hash + Objects.hashCode(subjectId);
+            hash = 31 * hash + System.identityHashCode(permissionKey);
+            hash = 31 * hash + Objects.hashCode(trustType);
+            hash = 31 * hash + contexts.hashCode();
+            this.hashCode = 31 * hash + (checkOverride ? 1 : 0);
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            // compiled keys are shared per (flag, source, target) so identity is enough
+            return this.hashCode == other.hashCode
+                    && this.permissionKey == other.permissionKey
+                    && this.checkOverride == other.checkOverride
+                    && this.trustType == other.trustType
+                    && this.claimId.equals(other.claimId)
+                    && Objects.equals(this.subjectId, other.subjectId)
+                    && this.contexts.equals(other.contexts);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
+    private static final class Decision {
+
+        private final Tristate value;
+        private final int tick;
+
+        private Decision(Tristate value, int tick) {
+            this.value = value;
+            this.tick = tick;
+        }
+    }
+}
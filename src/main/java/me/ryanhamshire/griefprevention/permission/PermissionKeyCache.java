@@ -0,0 +1,87 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.permission;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Caches compiled permission keys by flag permission -> source id -> target id.
+// Nested maps let the lookup run on the incoming strings without allocating a
+// composite key. Source ids may come from free-form strings, so the cache is
+// dropped as a whole once it grows past MAX_KEYS.
+final class PermissionKeyCache {
+
+    private static final int MAX_KEYS = 16384;
+
+    private final Map<String, Map<String, Map<String, PermissionKey>>> keys = new ConcurrentHashMap<>();
+    private final Compiler compiler;
+    private volatile int size;
+
+    PermissionKeyCache(Compiler compiler) {
+        this.compiler = compiler;
+    }
+
+    PermissionKey get(String flagPermission, String sourceId, String targetId) {
+        Map<String, Map<String, PermissionKey>> sourceKeys = this.keys.get(flagPermission);
+        if (sourceKeys == null) {
+            sourceKeys = new ConcurrentHashMap<>();
+            final Map<String, Map<String, PermissionKey>> existing = this.keys.putIfAbsent(flagPermission, sourceKeys);
+            if (existing != null) {
+                sourceKeys = existing;
+            }
+        }
+        Map<String, PermissionKey> targetKeys = sourceKeys.get(sourceId);
+        if (targetKeys == null) {
+            targetKeys = new ConcurrentHashMap<>();
+            final Map<String, PermissionKey> existing = sourceKeys.putIfAbsent(sourceId, targetKeys);
+            if (existing != null) {
+                targetKeys = existing;
+            }
+        }
+
+        PermissionKey key = targetKeys.get(targetId);
+        if (key == null) {
+            key = this.compiler.compile(flagPermission, sourceId, targetId);
+            if (this.size >= MAX_KEYS) {
+                this.clear();
+            }
+            if (targetKeys.putIfAbsent(targetId, key) == null) {
+                this.size++;
+            }
+        }
+        return key;
+    }
+
+    void clear() {
+        this.keys.clear();
+        this.size = 0;
+    }
+
+    @FunctionalInterface
+    interface Compiler {
+
+        PermissionKey compile(String flagPermission, String sourceId, String targetId);
+    }
+}
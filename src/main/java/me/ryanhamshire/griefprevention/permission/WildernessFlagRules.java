@@ -0,0 +1,203 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.permission;
+
+import me.ryanhamshire.griefprevention.GriefPreventionPlugin;
+import me.ryanhamshire.griefprevention.api.claim.ClaimFlag;
+import me.ryanhamshire.griefprevention.claim.GPClaim;
+import me.ryanhamshire.griefprevention.configuration.category.FlagCategory;
+import org.spongepowered.api.service.context.Context;
+import org.spongepowered.api.service.permission.PermissionService;
+import org.spongepowered.api.service.permission.Subject;
+import org.spongepowered.api.world.World;
+import org.spongepowered.common.SpongeImpl;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per world summary of which flags the wilderness allows by default with nothing able to deny them.
+// The default subject holds GP's flag defaults, overrides and wilderness flags, loaded groups and users
+// can carry denials from the permission plugin. Summaries are compiled on the executor and dropped on
+// GP flag changes and permission service swaps. Joining players only add their own denials. Summaries
+// also expire after EXPIRE_TICKS to pick up edits made in the permission plugin.
+// Until a world's summary is compiled every check takes the full evaluation.
+final class WildernessFlagRules {
+
+    private static final int EXPIRE_TICKS = 6000;
+    private static final ClaimFlag[] FLAGS = ClaimFlag.values();
+
+    private final Map<UUID, Rules> worldRules = new ConcurrentHashMap<>();
+    private final Set<UUID> compiling = ConcurrentHashMap.newKeySet();
+    // bumped on every change so compiles that started before it are discarded
+    private int generation;
+
+    boolean isUnrestricted(GPClaim wilderness, ClaimFlag flag) {
+        final World world = wilderness.getWorld();
+        final int tick = SpongeImpl.getServer().getTickCounter();
+        final Rules rules = this.worldRules.get(world.getUniqueId());
+        if (rules == null || (tick - rules.tick) > EXPIRE_TICKS) {
+            // expired rules stay in use until the new ones are compiled
+            this.compileLater(world, wilderness, tick);
+        }
+        return rules != null && rules.unrestricted[flag.ordinal()];
+    }
+
+    private void compileLater(World world, GPClaim wilderness, int tick) {
+        final UUID worldUniqueId = world.getUniqueId();
+        if (!this.compiling.add(worldUniqueId)) {
+            return;
+        }
+        final int generation;
+        synchronized (this) {
+            generation = this.generation;
+        }
+        try {
+            GriefPreventionPlugin.instance.executor.execute(() -> {
+                try {
+                    final boolean[] unrestricted = compile(world, wilderness);
+                    synchronized (this) {
+                        if (this.generation == generation) {
+                            this.worldRules.put(worldUniqueId, new Rules(unrestricted, tick, world, wilderness));
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    GriefPreventionPlugin.instance.getLogger().error("Failed to compile wilderness flag rules for " + world.getName(), e);
+                } finally {
+                    this.compiling.remove(worldUniqueId);
+                }
+            });
+        } catch (RuntimeException e) {
+            this.compiling.remove(worldUniqueId);
+            throw e;
+        }
+    }
+
+    synchronized void clear() {
+        this.generation++;
+        this.worldRules.clear();
+    }
+
+    // A newly loaded subject can only add denials, so it is applied to the compiled rules directly
+    synchronized void restrict(Subject subject) {
+        // a compile still running may have missed the subject
+        this.generation++;
+        for (Map.Entry<UUID, Rules> entry : this.worldRules.entrySet()) {
+            final Rules rules = entry.getValue();
+            final boolean[] unrestricted = rules.unrestricted.clone();
+            restrict(unrestricted, subject, rules.world, rules.wilderness);
+            entry.setValue(new Rules(unrestricted, rules.tick, rules.world, rules.wilderness));
+        }
+    }
+
+    private static boolean[] compile(World world, GPClaim wilderness) {
+        final boolean[] unrestricted = new boolean[FLAGS.length];
+        final FlagCategory flagConfig = GriefPreventionPlugin.getActiveConfig(world.getProperties()).getConfig().flags;
+        if (!flagConfig.isWildernessFastPathEnabled()) {
+            return unrestricted;
+        }
+
+        final Map<String, Boolean> wildernessDefaults = flagConfig.getWildernessDefaults();
+        for (ClaimFlag flag : FLAGS) {
+            unrestricted[flag.ordinal()] = Boolean.TRUE.equals(wildernessDefaults.get(flag.toString()));
+        }
+        restrict(unrestricted, GriefPreventionPlugin.GLOBAL_SUBJECT, world, wilderness);
+        final PermissionService permissionService = GriefPreventionPlugin.instance.permissionService;
+        for (Subject subject : permissionService.getGroupSubjects().getLoadedSubjects()) {
+            restrict(unrestricted, subject, world, wilderness);
+        }
+        for (Subject subject : permissionService.getUserSubjects().getLoadedSubjects()) {
+            restrict(unrestricted, subject, world, wilderness);
+        }
+        return unrestricted;
+    }
+
+    private static void restrict(boolean[] unrestricted, Subject subject, World world, GPClaim wilderness) {
+        restrict(unrestricted, subject.getTransientSubjectData().getAllPermissions(), world, wilderness);
+        restrict(unrestricted, subject.getSubjectData().getAllPermissions(), world, wilderness);
+    }
+
+    // Any denial that can apply in this world's wilderness restricts the flags it covers
+    private static void restrict(boolean[] unrestricted, Map<Set<Context>, Map<String, Boolean>> permissions, World world, GPClaim wilderness) {
+        for (Map.Entry<Set<Context>, Map<String, Boolean>> contextEntry : permissions.entrySet()) {
+            if (!appliesToWilderness(contextEntry.getKey(), world, wilderness)) {
+                continue;
+            }
+            for (Map.Entry<String, Boolean> permissionEntry : contextEntry.getValue().entrySet()) {
+                if (permissionEntry.getValue()) {
+                    continue;
+                }
+                final String permission = permissionEntry.getKey();
+                for (ClaimFlag flag : FLAGS) {
+                    if (GPPermissions.coversFlag(permission, flag)) {
+                        unrestricted[flag.ordinal()] = false;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean appliesToWilderness(Set<Context> contexts, World world, GPClaim wilderness) {
+        for (Context context : contexts) {
+            switch (context.getKey()) {
+                case "gp_claim_defaults":
+                case "gp_claim_overrides":
+                    if (!context.getValue().equals("WILDERNESS")) {
+                        return false;
+                    }
+                    break;
+                case "gp_claim":
+                    if (!context.equals(wilderness.getContext())) {
+                        return false;
+                    }
+                    break;
+                case Context.WORLD_KEY:
+                    if (!context.getValue().equalsIgnoreCase(world.getName())) {
+                        return false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private static final class Rules {
+
+        private final boolean[] unrestricted;
+        private final int tick;
+        private final World world;
+        private final GPClaim wilderness;
+
+        private Rules(boolean[] unrestricted, int tick, World world, GPClaim wilderness) {
+            this.unrestricted = unrestricted;
+            this.tick = tick;
+            this.world = world;
+            this.wilderness = wilderness;
+        }
+    }
+}
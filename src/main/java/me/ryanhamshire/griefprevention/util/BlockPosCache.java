@@ -38,6 +38,10 @@ public BlockPosCache(short pos) {
         this.lastTickCounter = SpongeImpl.getServer().getTickCounter();
     }
 
+    int getLastTickCounter() {
+        return this.lastTickCounter;
+    }
+
     public void setLastResult(Tristate result) {
         this.lastResult = result;
     }
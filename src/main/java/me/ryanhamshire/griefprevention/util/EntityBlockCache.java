@@ -0,0 +1,165 @@
+/*
+ * This file is part of GriefPrevention, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) bloodmc
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package me.ryanhamshire.griefprevention.util;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import org.spongepowered.api.util.Tristate;
+import org.spongepowered.common.SpongeImpl;
+
+// Per-world entity id -> last collided block cache.
+// Open addressing with linear probing over primitive keys so lookups on the collide
+// path never box the entity id. Entries that were not touched for EXPIRE_TICKS are
+// swept periodically and the table never grows past MAX_ENTRIES.
+public final class EntityBlockCache {
+
+    private static final int MAX_ENTRIES = 4096;
+    private static final int EXPIRE_TICKS = 200;
+    private static final int SWEEP_INTERVAL = 100;
+
+    // kept at twice the entry limit so probe chains stay short
+    private final int[] keys = new int[MAX_ENTRIES * 2];
+    private final BlockPosCache[] values = new BlockPosCache[MAX_ENTRIES * 2];
+    private final int mask = MAX_ENTRIES * 2 - 1;
+    private int size;
+    private int lastSweepTick;
+    private long hits;
+    private long misses;
+
+    // Returns the cached result for the entity at pos, starting a new entry if none exists
+    public Tristate getCacheResult(int entityId, short pos) {
+        final BlockPosCache entry = this.get(entityId);
+        if (entry == null) {
+            this.misses++;
+            this.put(entityId, new BlockPosCache(pos));
+            return Tristate.UNDEFINED;
+        }
+
+        final Tristate result = entry.getCacheResult(pos);
+        if (result == Tristate.UNDEFINED) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return result;
+    }
+
+    public void setLastResult(int entityId, Tristate result) {
+        final BlockPosCache entry = this.get(entityId);
+        if (entry != null) {
+            entry.setLastResult(result);
+        }
+    }
+
+    public void remove(int entityId) {
+        int slot = this.findSlot(entityId);
+        if (this.values[slot] == null) {
+            return;
+        }
+
+        this.removeSlot(slot);
+    }
+
+    public void clear() {
+        for (int i = 0; i < this.values.length; i++) {
+            this.values[i] = null;
+        }
+        this.size = 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public long getHits() {
+        return this.hits;
+    }
+
+    public long getMisses() {
+        return this.misses;
+    }
+
+    private BlockPosCache get(int entityId) {
+        return this.values[this.findSlot(entityId)];
+    }
+
+    private void put(int entityId, BlockPosCache entry) {
+        final int currentTick = SpongeImpl.getServer().getTickCounter();
+        if (this.size >= MAX_ENTRIES || (currentTick - this.lastSweepTick) >= SWEEP_INTERVAL) {
+            this.sweep(currentTick);
+        }
+        // every live entry is recent, skip caching rather than grow
+        if (this.size >= MAX_ENTRIES) {
+            return;
+        }
+
+        final int slot = this.findSlot(entityId);
+        if (this.values[slot] == null) {
+            this.keys[slot] = entityId;
+            this.size++;
+        }
+        this.values[slot] = entry;
+    }
+
+    // Returns the slot holding the key or the empty slot ending its probe chain
+    private int findSlot(int entityId) {
+        int slot = HashCommon.mix(entityId) & this.mask;
+        while (this.values[slot] != null && this.keys[slot] != entityId) {
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+    private void sweep(int currentTick) {
+        this.lastSweepTick = currentTick;
+        int slot = 0;
+        while (slot < this.values.length) {
+            final BlockPosCache entry = this.values[slot];
+            if (entry != null && (currentTick - entry.getLastTickCounter()) > EXPIRE_TICKS) {
+                // backward shift may move an unvisited entry into this slot, check it again
+                this.removeSlot(slot);
+                continue;
+            }
+            slot++;
+        }
+    }
+
+    // Backward shift deletion, keeps probe chains intact without tombstones
+    private void removeSlot(int slot) {
+        int last = slot;
+        int current = (slot + 1) & this.mask;
+        while (this.values[current] != null) {
+            final int home = HashCommon.mix(this.keys[current]) & this.mask;
+            // move the entry back if its home slot does not lie cyclically in (last, current]
+            if (last <= current ? (home <= last || home > current) : (home <= last && home > current)) {
+                this.keys[last] = this.keys[current];
+                this.values[last] = this.values[current];
+                last = current;
+            }
+            current = (current + 1) & this.mask;
+        }
+        this.values[last] = null;
+        this.size--;
+    }
+}